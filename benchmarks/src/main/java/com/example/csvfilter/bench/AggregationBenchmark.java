@@ -0,0 +1,55 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.service.AggregationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Group-by aggregation over the filtered rows: few groups (country), two-column keys
+// (country, active) and about one group per row (name), each with the usual aggregates.
+// The filter result is cached after the first call, so this measures the aggregation itself.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class AggregationBenchmark {
+
+    private static final List<String> AGGREGATES =
+            List.of("count(*)", "sum(price)", "avg(qty)", "min(price)", "max(price)", "count_distinct(qty)");
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"country", "country,active", "name"})
+    public String groupBy;
+
+    @Param({"", "qty > 10"})
+    public String filter;
+
+    private AggregationService aggregationService;
+
+    @Setup
+    public void setup() {
+        UserSessionData session = Fixtures.load(SyntheticCsv.generate(rows));
+        aggregationService = Fixtures.services(session).aggregation();
+    }
+
+    @Benchmark
+    public Object aggregate() {
+        return aggregationService.aggregate(filter, List.of(groupBy.split(",")), AGGREGATES, 1000);
+    }
+}
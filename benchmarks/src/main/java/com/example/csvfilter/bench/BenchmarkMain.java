@@ -0,0 +1,27 @@
+package com.example.csvfilter.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Entry point of benchmarks.jar: JMH's own, except that results are written as JSON unless -rf
+// names another format, to jmh-result.json (or -rff), so that every run leaves a file ResultDiff
+// can compare with the run of another version. "diff <baseline.json> <current.json>" runs
+// ResultDiff instead.
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("diff")) {
+            ResultDiff.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.addAll(List.of("-rf", "json"));
+        }
+        org.openjdk.jmh.Main.main(options.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.Writer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Many sessions filtering, paging and exporting at once. Each JMH thread is a client that sends one
+// request at a time and waits for it; requests run on a fixed pool of platform threads, as on
+// Tomcat's default connector, or on a virtual thread each. Sample mode reports the latency
+// percentiles, p99 included, with the time spent waiting for a pool thread.
+// Every request picks a random session and a random price bound, so most filters miss the caches;
+// one in four is a full export to a discarding writer.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class ConcurrencyBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"32"})
+    public int sessions;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    // Size of the platform pool, kept below the client count so that requests queue
+    @Param({"16"})
+    public int poolSize;
+
+    private UserSessionData[] sessionData;
+    private Fixtures.Services[] services;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        UserSessionData loaded = Fixtures.load(SyntheticCsv.generate(rows));
+        sessionData = new UserSessionData[sessions];
+        services = new Fixtures.Services[sessions];
+        for (int i = 0; i < sessions; i++) {
+            sessionData[i] = new UserSessionData();
+            sessionData[i].setData(loaded.getTable()); // Tables are read-only, so sessions can share one
+            services[i] = Fixtures.services(sessionData[i]);
+        }
+        executor = threads.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(poolSize);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearCaches() {
+        for (UserSessionData session : sessionData) {
+            session.getResultCache().clear();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object request() throws InterruptedException, ExecutionException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Fixtures.Services session = services[random.nextInt(sessions)];
+        String filter = "price > " + random.nextInt(2000) + " AND qty < " + random.nextInt(21);
+        if (random.nextInt(4) == 0) {
+            return executor.submit(() -> {
+                session.export().exportFilteredData(filter, Sort.unsorted(), Writer.nullWriter());
+                return null;
+            }).get();
+        }
+        PageRequest page = PageRequest.of(random.nextInt(5), 20, Sort.by("price"));
+        return executor.submit(() -> session.data().getFilteredPaginatedData(filter, page)).get();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.csv.CsvExporter;
+import com.example.csvfilter.csv.CsvParser;
+import com.example.csvfilter.csv.TableLoader;
+import com.example.csvfilter.csv.TypeInferrer;
+import com.example.csvfilter.table.DataTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// The stages of an upload and an export over in-memory files of each SyntheticCsv shape: OpenCSV
+// parsing alone (records are counted and dropped), parsing into typed columns through TableLoader,
+// and CsvExporter writing every row of the loaded table to a discarding writer.
+// 10M rows fit the narrow shapes only: run with -p rows=10000000 -p shape=narrow-numeric,narrow-text.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class CsvPipelineBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"narrow-numeric", "narrow-text", "wide-numeric", "wide-text"})
+    public String shape;
+
+    private byte[] csv;
+    private TypeInferrer typeInferrer;
+    private DataTable table;
+    private CsvExporter exporter;
+
+    @Setup
+    public void setup() {
+        csv = SyntheticCsv.generate(rows, shape);
+        typeInferrer = new TypeInferrer();
+        table = load();
+        exporter = new CsvExporter();
+    }
+
+    @Benchmark
+    public long parse() {
+        long[] cells = new long[1];
+        new CsvParser().parse(new ByteArrayInputStream(csv), new CsvParser.RecordHandler() {
+            @Override
+            public void headers(String[] headers) {
+            }
+
+            @Override
+            public void record(String[] values) {
+                cells[0] += values.length;
+            }
+        });
+        return cells[0];
+    }
+
+    @Benchmark
+    public DataTable load() {
+        TableLoader loader = new TableLoader(typeInferrer);
+        new CsvParser().parse(new ByteArrayInputStream(csv), loader);
+        return loader.finish();
+    }
+
+    @Benchmark
+    public long export() {
+        return exporter.export(table, IntStream.range(0, table.rowCount()), Writer.nullWriter());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.service.ExportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+// Export to a discarding writer, so this measures filtering and formatting only. The filter result
+// is not cached between invocations; the sorted export reuses the cached sort order after the first.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ExportBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"", "price > 1000 AND qty < 5"})
+    public String filter;
+
+    // Where the table's columns live: on heap, or in a memory-mapped file
+    @Param({"heap", "mapped"})
+    public String storage;
+
+    private UserSessionData session;
+    private ExportService exportService;
+
+    @Setup
+    public void setup() {
+        long heapBudget = storage.equals("mapped") ? 0 : Long.MAX_VALUE;
+        session = Fixtures.load(SyntheticCsv.generate(rows), heapBudget);
+        exportService = Fixtures.services(session, true, heapBudget, false).export();
+    }
+
+    @Benchmark
+    public void streamed() {
+        session.getResultCache().clear();
+        exportService.exportFilteredData(filter, Sort.unsorted(), Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void sorted() {
+        exportService.exportFilteredData(filter, Sort.by("price"), Writer.nullWriter());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.parser.Evaluator;
+import com.example.csvfilter.parser.FilterCompiler;
+import com.example.csvfilter.parser.Parser;
+import com.example.csvfilter.parser.RowPredicate;
+import com.example.csvfilter.parser.Tokenizer;
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.table.DataTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Tree-walking Evaluator vs. compiled RowPredicate, counting matches over every row, for single
+// terms, a long AND chain and nested groups
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FilterCompilerBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"price > 1000 AND qty < 5", "country == \"DE\" OR active == true", "name contains \"12\"",
+            "price > 100 AND qty < 18 AND active == true AND country != \"US\" AND id >= 10 AND price < 1900",
+            "((price > 1000 OR qty < 5) AND (country == \"DE\" OR country == \"FR\")) OR (name contains \"12\" AND active == false)"})
+    public String filter;
+
+    private DataTable table;
+    private Expression ast;
+    private RowPredicate predicate;
+
+    @Setup
+    public void setup() {
+        table = Fixtures.load(SyntheticCsv.generate(rows)).getTable();
+        ast = new Parser(new Tokenizer(filter).tokenize(), table.schema().keySet()).parse();
+        predicate = new FilterCompiler(table).compile(ast);
+    }
+
+    @Benchmark
+    public int interpreted() {
+        Evaluator evaluator = new Evaluator(table);
+        int matches = 0;
+        for (int row = 0; row < table.rowCount(); row++) {
+            if (evaluator.evaluate(ast, row)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int matches = 0;
+        for (int row = 0; row < table.rowCount(); row++) {
+            if (predicate.test(row)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int compileAndScan() {
+        RowPredicate fresh = new FilterCompiler(table).compile(ast);
+        int matches = 0;
+        for (int row = 0; row < table.rowCount(); row++) {
+            if (fresh.test(row)) matches++;
+        }
+        return matches;
+    }
+}
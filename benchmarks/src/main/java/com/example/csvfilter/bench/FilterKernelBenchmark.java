@@ -0,0 +1,95 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.parser.BitmapFilter;
+import com.example.csvfilter.parser.BitmapFilterCompiler;
+import com.example.csvfilter.parser.BlockFilter;
+import com.example.csvfilter.parser.BlockMatch;
+import com.example.csvfilter.parser.FilterCompiler;
+import com.example.csvfilter.parser.Parser;
+import com.example.csvfilter.parser.RowPredicate;
+import com.example.csvfilter.parser.Tokenizer;
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.service.FilterExecutor;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.DoubleColumn;
+import com.example.csvfilter.table.LongColumn;
+import com.example.csvfilter.table.NumericKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Single-threaded scans of 10M-row numeric columns without block pruning: the RowPredicate per
+// row, against the bitmap filter on the scalar and on the vector kernels. The columns are built
+// directly rather than parsed from CSV; about 1 row in 20 is null.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class FilterKernelBenchmark {
+
+    @Param({"10000000"})
+    public int rows;
+
+    @Param({"qty > 10", "price <= 1000", "qty >= 5 AND qty < 15 AND price > 500", "qty == 7 OR price > 1900"})
+    public String filter;
+
+    private DataTable table;
+    private RowPredicate predicate;
+    private BitmapFilter scalar;
+    private BitmapFilter vector;
+    private FilterExecutor executor;
+    private final BlockFilter everyBlock = BlockFilter.constant(BlockMatch.SOME);
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        long[] qty = new long[rows];
+        double[] price = new double[rows];
+        BitSet qtyNulls = new BitSet();
+        BitSet priceNulls = new BitSet();
+        for (int row = 0; row < rows; row++) {
+            if (random.nextInt(20) == 0) qtyNulls.set(row);
+            else qty[row] = random.nextInt(21);
+            if (random.nextInt(20) == 0) priceNulls.set(row);
+            else price[row] = random.nextInt(200_000) / 100.0;
+        }
+        table = new DataTable(List.of("qty", "price"),
+                new Column[]{new LongColumn(qty, qtyNulls, rows), new DoubleColumn(price, priceNulls, rows)}, rows);
+        Expression ast = new Parser(new Tokenizer(filter).tokenize(), table.schema().keySet()).parse();
+        predicate = new FilterCompiler(table).compile(ast);
+        scalar = new BitmapFilterCompiler(table, NumericKernels.SCALAR).compile(ast);
+        vector = new BitmapFilterCompiler(table, NumericKernels.named("vector")).compile(ast);
+        executor = new FilterExecutor(Integer.MAX_VALUE, 1);
+    }
+
+    @Benchmark
+    public int[] rowByRow() {
+        return executor.select(table.rowCount(), predicate, everyBlock);
+    }
+
+    @Benchmark
+    public int[] scalarKernels() {
+        return executor.select(table.rowCount(), scalar, everyBlock);
+    }
+
+    @Benchmark
+    public int[] vectorKernels() {
+        return executor.select(table.rowCount(), vector, everyBlock);
+    }
+}
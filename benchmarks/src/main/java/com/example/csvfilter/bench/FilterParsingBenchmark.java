@@ -0,0 +1,56 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.parser.Parser;
+import com.example.csvfilter.parser.Token;
+import com.example.csvfilter.parser.Tokenizer;
+import com.example.csvfilter.parser.ast.Expression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Tokenizing and parsing filter text, which every uncached request does, at least once, before any
+// row is read. The shapes range from one comparison to a long AND chain and nested groups.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterParsingBenchmark {
+
+    private static final Set<String> COLUMNS = Set.of("id", "name", "price", "qty", "active", "country");
+
+    @Param({"price > 1000",
+            "price > 1000 AND qty < 5 AND active == true AND country != \"US\" AND id >= 10 AND name startsWith \"na\"",
+            "((price > 1000 OR qty < 5) AND (country == \"DE\" OR country == \"FR\")) OR (name contains \"12\" AND active == false)"})
+    public String filter;
+
+    private List<Token> tokens;
+
+    @Setup
+    public void setup() {
+        tokens = new Tokenizer(filter).tokenize();
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        return new Tokenizer(filter).tokenize();
+    }
+
+    @Benchmark
+    public Expression parse() {
+        return new Parser(tokens, COLUMNS).parse();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.service.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Full filter scan over a loaded table, returning the first page
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FilterScanBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"price > 1000 AND qty < 5", "country == \"DE\"", "name contains \"12\""})
+    public String filter;
+
+    private DataService dataService;
+
+    @Setup
+    public void setup() {
+        UserSessionData session = Fixtures.load(SyntheticCsv.generate(rows));
+        dataService = Fixtures.dataService(session);
+    }
+
+    @Benchmark
+    public Page<Map<String, Object>> filterFirstPage() {
+        return dataService.getFilteredPaginatedData(filter, PageRequest.of(0, 20));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.csv.CsvExporter;
+import com.example.csvfilter.csv.CsvParser;
+import com.example.csvfilter.csv.LazyCsvLoader;
+import com.example.csvfilter.csv.ParallelCsvParser;
+import com.example.csvfilter.csv.TypeInferrer;
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.service.AggregationService;
+import com.example.csvfilter.service.DataMetrics;
+import com.example.csvfilter.service.DataService;
+import com.example.csvfilter.service.ExportService;
+import com.example.csvfilter.service.FilterExecutor;
+import com.example.csvfilter.service.FilterService;
+import com.example.csvfilter.service.LoadService;
+import com.example.csvfilter.service.MemoryGovernor;
+import com.example.csvfilter.service.SortService;
+import com.example.csvfilter.service.TableStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.ByteArrayInputStream;
+
+// Wires the application services by hand, without a Spring context
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    // The services of one session
+    record Services(LoadService loader, DataService data, ExportService export, AggregationService aggregation) {
+    }
+
+    static DataService dataService(UserSessionData session) {
+        return dataService(session, true);
+    }
+
+    static DataService dataService(UserSessionData session, boolean indexes) {
+        return services(session, indexes, Long.MAX_VALUE, false).data();
+    }
+
+    static Services services(UserSessionData session) {
+        return services(session, true, Long.MAX_VALUE, false);
+    }
+
+    // With a heap budget of 0 every table is memory-mapped
+    static Services services(UserSessionData session, boolean indexes, long heapBudget, boolean lazyColumns) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DataMetrics metrics = new DataMetrics(registry);
+        TypeInferrer typeInferrer = new TypeInferrer();
+        TableStorage storage = new TableStorage(heapBudget, "", registry);
+        // Admits every load and evicts nothing, so that eviction never lands inside a measurement
+        MemoryGovernor governor = new MemoryGovernor(storage, registry, Long.MAX_VALUE, 0, Long.MAX_VALUE, Long.MAX_VALUE, 0);
+        FilterExecutor filterExecutor = new FilterExecutor(200_000, 0);
+        FilterService filterService = new FilterService(session, filterExecutor, metrics, indexes, "auto");
+        SortService sortService = new SortService(session, metrics);
+        LoadService loader = new LoadService(session, new CsvParser(), new ParallelCsvParser(typeInferrer, "", 1),
+                new LazyCsvLoader(new CsvParser(), typeInferrer, ""), typeInferrer, storage, governor, metrics,
+                false, lazyColumns);
+        return new Services(loader, new DataService(session, filterService, sortService, metrics),
+                new ExportService(session, filterService, sortService, new CsvExporter(), metrics),
+                new AggregationService(session, filterService, filterExecutor));
+    }
+
+    static UserSessionData load(byte[] csv) {
+        return load(csv, Long.MAX_VALUE);
+    }
+
+    static UserSessionData load(byte[] csv, long heapBudget) {
+        UserSessionData session = new UserSessionData();
+        services(session, true, heapBudget, false).loader().loadAndStoreCsv(new ByteArrayInputStream(csv));
+        return session;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+// Retained heap of one uploaded dataset.
+// Usage: java -cp benchmarks.jar com.example.csvfilter.bench.HeapFootprint [rows] [heap|mapped]
+public final class HeapFootprint {
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long heapBudget = args.length > 1 && args[1].equals("mapped") ? 0 : Long.MAX_VALUE;
+        byte[] csv = SyntheticCsv.generate(rows);
+
+        long before = usedHeapAfterGc();
+        UserSessionData session = Fixtures.load(csv, heapBudget);
+        long after = usedHeapAfterGc();
+
+        long retained = after - before;
+        System.out.printf("rows=%d csvBytes=%d retainedBytes=%d (%.1fx csv, %.1f bytes/row), estimated=%d, mapped=%d%n",
+                rows, csv.length, retained, (double) retained / csv.length, (double) retained / rows,
+                session.getTable().estimatedBytes(), session.getTable().offHeapBytes());
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
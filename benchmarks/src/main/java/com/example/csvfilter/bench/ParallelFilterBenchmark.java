@@ -0,0 +1,63 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.parser.FilterCompiler;
+import com.example.csvfilter.parser.Parser;
+import com.example.csvfilter.parser.RowPredicate;
+import com.example.csvfilter.parser.Tokenizer;
+import com.example.csvfilter.service.FilterExecutor;
+import com.example.csvfilter.table.DataTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Filter throughput as the dedicated pool grows from 1 thread to N
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ParallelFilterBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"price > 1000 AND qty < 5", "name contains \"12\""})
+    public String filter;
+
+    private DataTable table;
+    private RowPredicate predicate;
+    private FilterExecutor executor;
+
+    @Setup
+    public void setup() {
+        table = Fixtures.load(SyntheticCsv.generate(rows)).getTable();
+        predicate = new FilterCompiler(table).compile(
+                new Parser(new Tokenizer(filter).tokenize(), table.schema().keySet()).parse());
+        executor = new FilterExecutor(0, threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public int[] select() {
+        return executor.select(table.rowCount(), predicate);
+    }
+}
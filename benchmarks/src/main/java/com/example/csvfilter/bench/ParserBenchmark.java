@@ -0,0 +1,74 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.csv.CsvParser;
+import com.example.csvfilter.csv.ParallelCsvParser;
+import com.example.csvfilter.csv.TableLoader;
+import com.example.csvfilter.csv.TypeInferrer;
+import com.example.csvfilter.table.DataTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Loads a synthetic file from disk into a table, sequentially through OpenCSV or in parallel chunks.
+// Files are generated once into java.io.tmpdir and kept for later runs. The 1 GB case needs a
+// machine with about 12 GB of memory.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx8g"})
+public class ParserBenchmark {
+
+    @Param({"100", "1000"})
+    public int megabytes;
+
+    @Param({"opencsv", "parallel"})
+    public String parser;
+
+    private Path file;
+    private TypeInferrer typeInferrer;
+    private ParallelCsvParser parallelCsvParser;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Path.of(System.getProperty("java.io.tmpdir"), "csvfilter-bench-" + megabytes + "mb.csv");
+        if (!Files.exists(file)) {
+            SyntheticCsv.write(file, megabytes * 1_000_000L);
+        }
+        typeInferrer = new TypeInferrer();
+        parallelCsvParser = new ParallelCsvParser(typeInferrer, "", 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallelCsvParser.shutdown();
+    }
+
+    @Benchmark
+    public DataTable load() throws IOException {
+        if (parser.equals("parallel")) {
+            return parallelCsvParser.load(file);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            TableLoader loader = new TableLoader(typeInferrer);
+            new CsvParser().parse(in, loader);
+            return loader.finish();
+        }
+    }
+}
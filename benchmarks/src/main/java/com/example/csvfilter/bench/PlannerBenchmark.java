@@ -0,0 +1,70 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.parser.FilterCompiler;
+import com.example.csvfilter.parser.FilterPlanner;
+import com.example.csvfilter.parser.Parser;
+import com.example.csvfilter.parser.RowPredicate;
+import com.example.csvfilter.parser.Tokenizer;
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.table.DataTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Filters written with the expensive term first, compiled as written vs. as planned. The name
+// column is high-cardinality, so `contains` runs per row unless a cheaper term decides first.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class PlannerBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"name contains \"12\" AND qty < 2 AND country == \"DE\"",
+            "(name endsWith \"7\" OR price > 1990) AND (true AND active == true)"})
+    public String filter;
+
+    private DataTable table;
+    private RowPredicate asWritten;
+    private RowPredicate planned;
+
+    @Setup
+    public void setup() {
+        table = Fixtures.load(SyntheticCsv.generate(rows)).getTable();
+        Expression ast = new Parser(new Tokenizer(filter).tokenize(), table.schema().keySet()).parse();
+        asWritten = new FilterCompiler(table).compile(ast);
+        planned = new FilterCompiler(table).compile(FilterPlanner.plan(table, ast).expression());
+    }
+
+    @Benchmark
+    public int asWritten() {
+        return count(asWritten);
+    }
+
+    @Benchmark
+    public int planned() {
+        return count(planned);
+    }
+
+    private int count(RowPredicate predicate) {
+        int matches = 0;
+        for (int row = 0; row < table.rowCount(); row++) {
+            if (predicate.test(row)) matches++;
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// A wide file of which a view uses a handful of columns. uploadAndView loads the file and serves a
+// filtered, sorted first page of five columns, building every column up front ("eager") or only the
+// ones the page reads ("lazy"). export writes the filtered rows with all columns or the five.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ProjectionBenchmark {
+
+    private static final List<String> SELECTED = List.of("c0", "c1", "c2", "c3", "c4");
+
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"60"})
+    public int columns;
+
+    @Param({"eager", "lazy"})
+    public String loading;
+
+    private byte[] csv;
+    private UserSessionData loadedSession;
+    private Fixtures.Services loaded;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder sb = new StringBuilder();
+        for (int column = 0; column < columns; column++) {
+            sb.append(column > 0 ? "," : "").append('c').append(column);
+        }
+        sb.append('\n');
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (column > 0) sb.append(',');
+                if (column % 3 == 0) sb.append(random.nextInt(1000));
+                else if (column % 3 == 1) sb.append(random.nextInt(100_000) / 100.0);
+                else sb.append("v").append(random.nextInt(5000));
+            }
+            sb.append('\n');
+        }
+        csv = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        loadedSession = new UserSessionData();
+        loaded = Fixtures.services(loadedSession, true, Long.MAX_VALUE, loading.equals("lazy"));
+        loaded.loader().loadAndStoreCsv(new ByteArrayInputStream(csv));
+    }
+
+    @TearDown
+    public void tearDown() {
+        loadedSession.clearData();
+    }
+
+    @Benchmark
+    public Object uploadAndView() {
+        UserSessionData session = new UserSessionData();
+        Fixtures.Services services = Fixtures.services(session, true, Long.MAX_VALUE, loading.equals("lazy"));
+        services.loader().loadAndStoreCsv(new ByteArrayInputStream(csv));
+        Object page = services.data().getFilteredPaginatedData("c0 > 500",
+                PageRequest.of(0, 20, Sort.by("c1")), SELECTED);
+        session.clearData(); // Deletes the spool file of a lazy table
+        return page;
+    }
+
+    @Benchmark
+    public void exportAllColumns() {
+        loaded.export().prepareExport("c0 > 500", Sort.unsorted(), null).writeTo(Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void exportSelectedColumns() {
+        loaded.export().prepareExport("c0 > 500", Sort.unsorted(), SELECTED).writeTo(Writer.nullWriter());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.service.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.TimeUnit;
+
+// A filter built up step by step: the second step adds a term to the first. "refined" has the
+// first step's result cached, so only the new term is tested, on those rows; "cold" has nothing
+// cached and scans the table. Indexes are off, so both evaluate the terms row by row.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class RefinementBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    // First step, and how much it keeps
+    @Param({"price > 1000", "price > 1900"})
+    public String first;
+
+    @Param({"refined", "cold"})
+    public String cache;
+
+    private UserSessionData session;
+    private DataService dataService;
+
+    @Setup
+    public void setup() {
+        session = Fixtures.load(SyntheticCsv.generate(rows));
+        dataService = Fixtures.dataService(session, false);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetCache() {
+        session.getResultCache().clear();
+        if (cache.equals("refined")) {
+            dataService.getFilteredPaginatedData(first, PageRequest.of(0, 20));
+        }
+    }
+
+    @Benchmark
+    public Object secondStep() {
+        return dataService.getFilteredPaginatedData(first + " AND qty < 5 AND country == \"DE\"", PageRequest.of(0, 20));
+    }
+}
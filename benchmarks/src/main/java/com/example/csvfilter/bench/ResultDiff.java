@@ -0,0 +1,89 @@
+package com.example.csvfilter.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compares two JMH JSON result files, benchmark by benchmark and parameter set by parameter set:
+//   java -cp benchmarks.jar com.example.csvfilter.bench.ResultDiff baseline.json current.json [max-regression-%]
+// A change counts as a regression when it is worse than the baseline by more than the given
+// percentage (default 5) and the two scores' error intervals do not overlap. The exit status is 1
+// when there is one, so the comparison can gate a build.
+public final class ResultDiff {
+
+    private ResultDiff() {
+    }
+
+    private record Score(String mode, double score, double error, String unit) {
+        // Throughput is better higher; the time modes are better lower
+        double worseBy(Score baseline) {
+            double change = (score - baseline.score) / baseline.score;
+            return mode.equals("thrpt") ? -change : change;
+        }
+
+        boolean overlaps(Score other) {
+            return Math.abs(score - other.score) <= error + other.error;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ResultDiff <baseline.json> <current.json> [max-regression-%]");
+            System.exit(2);
+        }
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+        double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.05;
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-100s %12s  %12.3f %-8s  new%n", entry.getKey(), "", now.score, now.unit);
+                continue;
+            }
+            double worse = now.worseBy(before);
+            String verdict = now.overlaps(before) ? "" : worse > 0 ? "worse" : "better";
+            if (!now.overlaps(before) && worse > maxRegression) {
+                verdict = "REGRESSION";
+                regressions++;
+            }
+            System.out.printf("%-100s %12.3f  %12.3f %-8s %+7.1f%%  %s%n", entry.getKey(), before.score, now.score,
+                    now.unit, 100 * (now.score - before.score) / before.score, verdict);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-100s %12.3f  %12s %-8s  removed%n", key, baseline.get(key).score, "", baseline.get(key).unit);
+            }
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " regression(s) over " + 100 * maxRegression + "%");
+            System.exit(1);
+        }
+    }
+
+    // Scores by benchmark name and parameters, e.g. "ExportBenchmark.sorted rows=1000000 storage=heap"
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace(SyntheticCsv.class.getPackageName() + ".", ""));
+            Map<String, String> params = new TreeMap<>();
+            for (Map.Entry<String, JsonNode> param : result.path("params").properties()) {
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            JsonNode metric = result.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key.toString(), new Score(result.path("mode").asText(), metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+}
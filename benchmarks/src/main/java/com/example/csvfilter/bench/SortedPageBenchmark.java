@@ -0,0 +1,56 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.service.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Latency of a sorted page with cold caches and no sort index: shallow pages use top-K, deep pages a full sort
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class SortedPageBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"price", "name"})
+    public String column;
+
+    @Param({"0", "1000"})
+    public int page;
+
+    private UserSessionData session;
+    private DataService dataService;
+
+    @Setup
+    public void setup() {
+        session = Fixtures.load(SyntheticCsv.generate(rows));
+        dataService = Fixtures.dataService(session);
+    }
+
+    @Benchmark
+    public Page<Map<String, Object>> coldSortedPage() {
+        session.getResultCache().clear();
+        session.getSortIndexes().clear();
+        return dataService.getFilteredPaginatedData("", PageRequest.of(page, 20, Sort.by(Sort.Direction.DESC, column)));
+    }
+}
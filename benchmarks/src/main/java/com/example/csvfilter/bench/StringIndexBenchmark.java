@@ -0,0 +1,62 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.service.DataService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// First page of a string filter with a cold result cache, answered from already built string
+// indexes or by scanning every row
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class StringIndexBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean indexes;
+
+    @Param({
+            "country == \"de\"",
+            "name startsWith \"name12\"",
+            "name contains \"4242\"",
+            "name endsWith \"77\"",
+            "price > 1000 AND country != \"us\""
+    })
+    public String filter;
+
+    private UserSessionData session;
+    private DataService dataService;
+
+    @Setup
+    public void setup() {
+        session = Fixtures.load(SyntheticCsv.generate(rows));
+        dataService = Fixtures.dataService(session, indexes);
+        dataService.getFilteredPaginatedData(filter, PageRequest.of(0, 20)); // Builds the indexes it needs
+    }
+
+    @Benchmark
+    public Page<Map<String, Object>> firstPage() {
+        session.getResultCache().clear();
+        return dataService.getFilteredPaginatedData(filter, PageRequest.of(0, 20));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.csvfilter.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+// Deterministic CSV generator: the same row count always yields the same bytes.
+public final class SyntheticCsv {
+    private static final String[] COUNTRIES = {"US", "DE", "FR", "IN", "BR", "JP", "GB", "CN"};
+
+    private SyntheticCsv() {
+    }
+
+    // id, name, price, qty, active, country. Every 50th price is empty.
+    public static byte[] generate(int rows) {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder sb = new StringBuilder(rows * 48);
+        sb.append("id,name,price,qty,active,country\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append(',')
+                    .append("name").append(random.nextInt(rows)).append(',');
+            if (i % 50 != 0) {
+                sb.append(random.nextInt(200_000) / 100.0);
+            }
+            sb.append(',')
+                    .append(random.nextInt(21)).append(',')
+                    .append(random.nextBoolean()).append(',')
+                    .append(COUNTRIES[random.nextInt(COUNTRIES.length)]).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Tables of a given shape, for benchmarks of the CSV pipeline across file layouts:
+    // "narrow-numeric" has 6 columns and "wide-numeric" 40, of longs and decimals with every 50th
+    // cell empty; "narrow-text" and "wide-text" have as many columns of names, codes and free text,
+    // a tenth of them quoted with commas or doubled quotes. The result is one array, so it has to
+    // stay under 2 GB: up to 10M rows for the narrow shapes, 1M for the wide ones.
+    public static byte[] generate(int rows, String shape) {
+        int columns = switch (shape) {
+            case "narrow-numeric", "narrow-text" -> 6;
+            case "wide-numeric", "wide-text" -> 40;
+            default -> throw new IllegalArgumentException("Unknown shape '" + shape + "'");
+        };
+        boolean numeric = shape.endsWith("numeric");
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, (long) rows * columns * (numeric ? 8 : 12)));
+        for (int column = 0; column < columns; column++) {
+            if (column > 0) sb.append(',');
+            sb.append('c').append(column);
+        }
+        sb.append('\n');
+        for (int i = 0; i < rows; i++) {
+            for (int column = 0; column < columns; column++) {
+                if (column > 0) sb.append(',');
+                if (numeric) {
+                    if ((i + column) % 50 == 0) continue;
+                    if (column % 2 == 0) sb.append(random.nextInt(1_000_000));
+                    else sb.append(random.nextInt(10_000_000) / 100.0);
+                } else {
+                    switch (column % 3) {
+                        case 0 -> sb.append("name").append(random.nextInt(Math.max(1, rows)));
+                        case 1 -> sb.append(COUNTRIES[random.nextInt(COUNTRIES.length)]);
+                        default -> {
+                            int kind = random.nextInt(10);
+                            if (kind == 0) sb.append("\"note, ").append(random.nextInt(100)).append('"');
+                            else if (kind == 1) sb.append("\"said \"\"hi\"\"\"");
+                            else sb.append("lorem ipsum ").append(random.nextInt(1000));
+                        }
+                    }
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Writes about `bytes` bytes of the same columns plus a quoted note holding commas, doubled quotes
+    // and line breaks, for parser benchmarks on files too large to hold as one array
+    public static void write(Path file, long bytes) throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        int names = (int) Math.max(1, bytes / 64);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("id,name,price,qty,active,country,note\n");
+            long written = 0;
+            for (long i = 0; written < bytes; i++) {
+                sb.append(i).append(',')
+                        .append("name").append(random.nextInt(names)).append(',');
+                if (i % 50 != 0) {
+                    sb.append(random.nextInt(200_000) / 100.0);
+                }
+                sb.append(',')
+                        .append(random.nextInt(21)).append(',')
+                        .append(random.nextBoolean()).append(',')
+                        .append(COUNTRIES[random.nextInt(COUNTRIES.length)]).append(',');
+                switch (random.nextInt(4)) {
+                    case 0 -> sb.append("\"note, ").append(random.nextInt(10)).append('"');
+                    case 1 -> sb.append("\"said \"\"hi\"\"\"");
+                    case 2 -> sb.append("\"two\nlines\"");
+                    default -> sb.append("plain");
+                }
+                sb.append('\n');
+                written += sb.length();
+                out.append(sb);
+                sb.setLength(0);
+            }
+        }
+    }
+}
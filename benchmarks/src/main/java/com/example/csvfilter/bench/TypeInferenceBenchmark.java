@@ -0,0 +1,141 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.csv.CellScanner;
+import com.example.csvfilter.csv.TableLoader;
+import com.example.csvfilter.csv.TypeInferrer;
+import com.example.csvfilter.table.DataTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Classifying and coercing cells: the exception-based JDK parsers the inferrer used before vs. the
+// CellScanner TableLoader parses each cell with, schema inference over a sample, and a full
+// TableLoader pass over in-memory records.
+// "numeric" columns hold longs and decimals, "string" columns names and codes, "mixed" both plus
+// booleans and nulls.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class TypeInferenceBenchmark {
+
+    private static final int COLUMNS = 8;
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"mixed", "numeric", "string"})
+    public String columns;
+
+    private List<String[]> records;
+    private TypeInferrer typeInferrer;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        records = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            String[] record = new String[COLUMNS];
+            for (int column = 0; column < COLUMNS; column++) {
+                record[column] = cell(random, column);
+            }
+            records.add(record);
+        }
+        typeInferrer = new TypeInferrer();
+    }
+
+    private String cell(Random random, int column) {
+        boolean numeric = switch (columns) {
+            case "numeric" -> true;
+            case "string" -> false;
+            default -> column % 2 == 0;
+        };
+        if (columns.equals("mixed") && random.nextInt(20) == 0) {
+            return random.nextBoolean() ? "" : "null";
+        }
+        if (numeric) {
+            return column % 4 < 2
+                    ? Long.toString(random.nextInt(1_000_000))
+                    : Double.toString(Math.round(random.nextDouble() * 100_000) / 100.0);
+        }
+        if (columns.equals("mixed") && column % 4 == 1) {
+            return random.nextBoolean() ? "true" : "false";
+        }
+        return column % 4 == 1 ? "customer-" + random.nextInt(50_000) : "SKU" + Integer.toHexString(random.nextInt());
+    }
+
+    @Benchmark
+    public long exceptions() {
+        long checksum = 0;
+        for (String[] record : records) {
+            for (String value : record) {
+                if (value.isBlank() || value.equalsIgnoreCase("null")) continue;
+                Object parsed;
+                try {
+                    parsed = Long.parseLong(value);
+                } catch (NumberFormatException notLong) {
+                    try {
+                        parsed = Double.parseDouble(value);
+                    } catch (NumberFormatException notDouble) {
+                        parsed = value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false") ? Boolean.TRUE : value;
+                    }
+                }
+                checksum += parsed.hashCode();
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long scanner() {
+        CellScanner scanner = new CellScanner();
+        long checksum = 0;
+        for (String[] record : records) {
+            for (String value : record) {
+                Class<?> type = scanner.scan(value);
+                if (type == null) continue;
+                if (type == Long.class) checksum += Long.hashCode(scanner.longValue());
+                else if (type == Double.class) checksum += Double.hashCode(scanner.doubleValue());
+                else if (type == Boolean.class) checksum += Boolean.hashCode(scanner.booleanValue());
+                else checksum += value.hashCode();
+            }
+        }
+        return checksum;
+    }
+
+    // The sample TableLoader infers column types from before it builds any column
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Class<?>[] inferSchema() {
+        return typeInferrer.inferSchema(records.subList(0, TypeInferrer.ROWS_TO_SCAN), COLUMNS);
+    }
+
+    @Benchmark
+    public DataTable load() {
+        TableLoader loader = new TableLoader(typeInferrer);
+        String[] headers = new String[COLUMNS];
+        for (int column = 0; column < COLUMNS; column++) {
+            headers[column] = "c" + column;
+        }
+        loader.headers(headers);
+        for (String[] record : records) {
+            loader.record(record);
+        }
+        return loader.finish();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.csvfilter.bench;
+
+import com.example.csvfilter.parser.BlockFilter;
+import com.example.csvfilter.parser.BlockFilterCompiler;
+import com.example.csvfilter.parser.FilterCompiler;
+import com.example.csvfilter.parser.Parser;
+import com.example.csvfilter.parser.RowPredicate;
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.parser.Tokenizer;
+import com.example.csvfilter.service.FilterExecutor;
+import com.example.csvfilter.table.DataTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Single-threaded scan with and without block pruning. `id` is ascending, like a time column;
+// `price` is random, so its filter measures the cost of consulting zone maps that never help.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ZoneMapBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"id > 900000", "id >= 100000 AND id < 200000 AND qty < 5", "price > 1000 AND qty < 5"})
+    public String filter;
+
+    // Where the table's columns live: on heap, or in a memory-mapped file
+    @Param({"heap", "mapped"})
+    public String storage;
+
+    private DataTable table;
+    private RowPredicate predicate;
+    private BlockFilter blocks;
+    private FilterExecutor executor;
+
+    @Setup
+    public void setup() {
+        table = Fixtures.load(SyntheticCsv.generate(rows), storage.equals("mapped") ? 0 : Long.MAX_VALUE).getTable();
+        Expression ast = new Parser(new Tokenizer(filter).tokenize(), table.schema().keySet()).parse();
+        predicate = new FilterCompiler(table).compile(ast);
+        blocks = new BlockFilterCompiler(table).compile(ast);
+        executor = new FilterExecutor(Integer.MAX_VALUE, 1);
+    }
+
+    @Benchmark
+    public int[] scanAll() {
+        return executor.select(table.rowCount(), predicate);
+    }
+
+    @Benchmark
+    public int[] pruned() {
+        return executor.select(table.rowCount(), predicate, blocks);
+    }
+}
@@ -1,40 +1,74 @@
 package com.example.csvfilter.controller;
 
+import com.example.csvfilter.model.UploadJob;
 import com.example.csvfilter.model.UserSessionData;
 import com.example.csvfilter.parser.exception.FilterException;
 import com.example.csvfilter.service.DataService;
-import jakarta.servlet.http.HttpServletResponse;
+import com.example.csvfilter.service.ExportService;
+import com.example.csvfilter.service.FilterService;
+import com.example.csvfilter.service.LoadService;
+import com.example.csvfilter.service.UploadService;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort; // <-- IMPORT
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.bind.support.SessionStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Controller
 public class CsvController {
 
+    private static final Pattern EXPLAIN = Pattern.compile("\\s*explain\\s+", Pattern.CASE_INSENSITIVE);
+
+    private final LoadService loadService;
     private final DataService dataService;
+    private final FilterService filterService;
+    private final ExportService exportService;
+    private final UploadService uploadService;
     private final UserSessionData userSessionData;
+    private final boolean asyncUploads;
 
-    public CsvController(DataService dataService, UserSessionData userSessionData) {
+    public CsvController(LoadService loadService, DataService dataService, FilterService filterService,
+                         ExportService exportService, UploadService uploadService, UserSessionData userSessionData,
+                         @Value("${csvfilter.upload.async:false}") boolean asyncUploads) {
+        this.loadService = loadService;
         this.dataService = dataService;
+        this.filterService = filterService;
+        this.exportService = exportService;
+        this.uploadService = uploadService;
         this.userSessionData = userSessionData;
+        this.asyncUploads = asyncUploads;
     }
 
     @GetMapping("/")
     public String index() {
+        if (userSessionData.isLoading()) {
+            return "redirect:/view";
+        }
         if (userSessionData.hasData()) {
             if (userSessionData.getHeaders() == null || userSessionData.getSchema() == null) {
                 userSessionData.clearData();
@@ -52,7 +86,13 @@ public class CsvController {
             return "redirect:/";
         }
         try {
-            dataService.loadAndStoreCsv(file.getInputStream());
+            if (asyncUploads) {
+                // Returns once the file is spooled; /view shows the rows loaded so far and the progress
+                UploadJob job = uploadService.submit(file, userSessionData);
+                redirectAttributes.addAttribute("upload", job.id());
+            } else {
+                loadService.loadAndStoreCsv(file.getInputStream(), file.getSize());
+            }
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Failed to process file: " + e.getMessage());
             return "redirect:/";
@@ -60,26 +100,56 @@ public class CsvController {
         return "redirect:/view";
     }
 
-    // --- METHOD MODIFIED to handle Sort ---
+    // Bytes and rows processed so far and the estimated time left, for the session's upload
+    @GetMapping("/upload/{id}/progress")
+    @ResponseBody
+    public ResponseEntity<UploadJob.Progress> uploadProgress(@PathVariable String id) {
+        UploadJob job = userSessionData.getUpload();
+        if (job == null || !job.id().equals(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.progress());
+    }
+
     @GetMapping("/view")
     public String viewData(
             @RequestParam(required = false, defaultValue = "") String filter,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) List<String> cols,
-            @RequestParam(required = false, defaultValue = "") String sort, // <-- NEW
-            @RequestParam(required = false, defaultValue = "ASC") String dir, // <-- NEW
-            Model model) {
+            @RequestParam(required = false) List<String> sort,
+            @RequestParam(required = false) List<String> dir,
+            Model model,
+            RedirectAttributes redirectAttributes) {
 
-        if (!userSessionData.hasData()) {
+        UploadJob upload = userSessionData.getUpload();
+        if (upload != null && upload.state() == UploadJob.State.FAILED) {
+            userSessionData.clearData();
+            redirectAttributes.addFlashAttribute("error", "Failed to process file: " + upload.error());
+            return "redirect:/";
+        }
+        boolean loading = upload != null && upload.isRunning();
+        if (!userSessionData.hasData() && !loading) {
             return "redirect:/";
         }
 
         List<String> allHeaders = userSessionData.getHeaders();
-        if (allHeaders == null || userSessionData.getSchema() == null) {
+        if (loading) {
+            model.addAttribute("upload", upload.progress());
+            if (allHeaders == null) {
+                allHeaders = List.of(); // The column types are not known yet
+            }
+        } else if (allHeaders == null || userSessionData.getSchema() == null) {
             userSessionData.clearData();
             return "redirect:/";
         }
+        // "EXPLAIN <filter>" shows the plan of the filter above its rows
+        Matcher explain = EXPLAIN.matcher(filter);
+        boolean explaining = explain.lookingAt();
+        if (explaining) {
+            filter = filter.substring(explain.end());
+        }
+
         List<String> selectedHeaders = cols;
         if (selectedHeaders == null || selectedHeaders.isEmpty()) {
             selectedHeaders = allHeaders;
@@ -89,21 +159,25 @@ public class CsvController {
         model.addAttribute("selectedHeaders", selectedHeaders);
         model.addAttribute("currentFilter", filter);
 
-        // --- NEW SORTING LOGIC ---
-        Sort sortOrder = Sort.unsorted();
-        if (sort != null && !sort.isBlank() && allHeaders.contains(sort)) {
-            sortOrder = Sort.by(Sort.Direction.fromString(dir), sort);
-        }
+        // sort and dir are paired by position; the first pair is the primary order
+        Map<String, String> sortDirections = sortDirections(sort, dir, allHeaders);
+        Sort sortOrder = toSort(sortDirections);
+        Sort.Order primary = sortOrder.stream().findFirst().orElse(null);
 
-        model.addAttribute("currentSort", sort);
-        model.addAttribute("currentDir", dir);
-        // --- END NEW SORTING LOGIC ---
+        model.addAttribute("currentSort", primary == null ? "" : primary.getProperty());
+        model.addAttribute("currentDir", primary == null ? "ASC" : primary.getDirection().name());
+        model.addAttribute("sortColumns", new ArrayList<>(sortDirections.keySet()));
+        model.addAttribute("sortDirs", new ArrayList<>(sortDirections.values()));
+        model.addAttribute("sortDirections", sortDirections);
 
         try {
-            // Pageable now includes the sort order
+            // The page request carries the sort order
             Pageable pageable = PageRequest.of(page, size, sortOrder);
-            Page<Map<String, Object>> paginatedData = dataService.getFilteredPaginatedData(filter, pageable);
+            Page<Map<String, Object>> paginatedData = dataService.getFilteredPaginatedData(filter, pageable, selectedHeaders);
             model.addAttribute("page", paginatedData);
+            if (explaining && !loading) {
+                model.addAttribute("plan", filterService.explain(filter));
+            }
         } catch (FilterException e) {
             model.addAttribute("error", e.getMessage());
             model.addAttribute("page", Page.empty());
@@ -112,25 +186,60 @@ public class CsvController {
         return "view";
     }
 
+    // The rows are selected on the request thread; the body is written afterwards on the MVC async
+    // executor (virtual threads with spring.threads.virtual.enabled), so a long export does not hold
+    // a request thread
     @GetMapping("/export")
-    public void exportData(
+    public ResponseEntity<StreamingResponseBody> exportData(
             @RequestParam(required = false, defaultValue = "") String filter,
-            HttpServletResponse response,
-            RedirectAttributes redirectAttributes) {
+            @RequestParam(required = false) List<String> sort,
+            @RequestParam(required = false) List<String> dir,
+            @RequestParam(required = false) List<String> cols) {
 
         if (!userSessionData.hasData()) {
-            return;
+            return ResponseEntity.noContent().build();
         }
 
+        ExportService.Export export;
         try {
-            response.setContentType("text/csv");
-            response.setHeader("Content-Disposition", "attachment; filename=\"filtered_data.csv\"");
-            dataService.exportFilteredData(filter, response.getWriter());
+            Sort sortOrder = toSort(sortDirections(sort, dir, userSessionData.getHeaders()));
+            export = exportService.prepareExport(filter, sortOrder, cols);
         } catch (FilterException e) {
-            redirectAttributes.addFlashAttribute("error", "Export failed: " + e.getMessage());
-        } catch (IOException e) {
-            // Handle IO exception
+            byte[] message = ("Export failed: " + e.getMessage()).getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(out -> out.write(message));
         }
+        // No Content-Length: the export is streamed with chunked transfer encoding
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"filtered_data.csv\"")
+                .body(out -> {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    export.writeTo(writer);
+                    writer.flush();
+                });
+    }
+
+    // Known columns from the sort/dir parameter pairs, in order, with their direction (ASC/DESC)
+    static Map<String, String> sortDirections(List<String> sort, List<String> dir, List<String> headers) {
+        Map<String, String> sortDirections = new LinkedHashMap<>();
+        if (sort != null) {
+            for (int i = 0; i < sort.size(); i++) {
+                String column = sort.get(i);
+                if (column == null || !headers.contains(column) || sortDirections.containsKey(column)) {
+                    continue;
+                }
+                Sort.Direction direction = dir != null && i < dir.size()
+                        ? Sort.Direction.fromString(dir.get(i)) : Sort.Direction.ASC;
+                sortDirections.put(column, direction.name());
+            }
+        }
+        return sortDirections;
+    }
+
+    static Sort toSort(Map<String, String> sortDirections) {
+        List<Sort.Order> orders = new ArrayList<>();
+        sortDirections.forEach((column, direction) -> orders.add(new Sort.Order(Sort.Direction.valueOf(direction), column)));
+        return Sort.by(orders);
     }
 
     @GetMapping("/new")
@@ -0,0 +1,169 @@
+package com.example.csvfilter.controller;
+
+import com.example.csvfilter.csv.JsonExporter;
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.parser.exception.FilterException;
+import com.example.csvfilter.service.AggregationService;
+import com.example.csvfilter.service.DataService;
+import com.example.csvfilter.service.ExportService;
+import com.example.csvfilter.service.FilterService;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+// Rows of the session's table for programmatic clients, with the same filter, sort/dir and cols
+// parameters as /view. Pages are chained with the nextCursor of the previous one instead of an
+// offset. Accept: application/json, the default, gives one document with the rows and paging state;
+// application/x-ndjson gives one row per line, with the paging state in headers.
+// /aggregate summarizes the filtered rows instead: aggregates per group of the group-by columns.
+// /explain describes the plan a filter runs with.
+@RestController
+@RequestMapping("/api")
+public class DataApiController {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 10_000;
+    static final int DEFAULT_GROUP_LIMIT = 1000;
+
+    private final DataService dataService;
+    private final FilterService filterService;
+    private final AggregationService aggregationService;
+    private final JsonExporter jsonExporter;
+    private final UserSessionData userSessionData;
+
+    public DataApiController(DataService dataService, FilterService filterService, AggregationService aggregationService,
+                             JsonExporter jsonExporter, UserSessionData userSessionData) {
+        this.dataService = dataService;
+        this.filterService = filterService;
+        this.aggregationService = aggregationService;
+        this.jsonExporter = jsonExporter;
+        this.userSessionData = userSessionData;
+    }
+
+    // One mapping for both formats: two mappings that differ only in what they produce are
+    // ambiguous for Accept: */*, which would then fail instead of getting JSON
+    @GetMapping(value = "/rows", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> rows(
+            @RequestParam(required = false, defaultValue = "") String filter,
+            @RequestParam(required = false) List<String> sort,
+            @RequestParam(required = false) List<String> dir,
+            @RequestParam(required = false) List<String> cols,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        if (!userSessionData.hasData()) {
+            return notFound();
+        }
+        DataService.RowSlice slice = slice(filter, sort, dir, cols, cursor, limit);
+        if (!prefersNdjson(accept)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> write(out, writer -> jsonExporter.json(slice.table(), slice.columns(), slice.rows(),
+                            slice.total(), slice.nextCursor(), writer)));
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header("X-Total-Count", Integer.toString(slice.total()));
+        if (slice.nextCursor() != null) {
+            response.header("X-Next-Cursor", slice.nextCursor());
+        }
+        return response.body(out -> write(out, writer -> jsonExporter.ndjson(slice.table(), slice.columns(), slice.rows(), writer)));
+    }
+
+    // group: group-by columns, in order; agg: "count(*)", "sum(price)", "count_distinct(name)" etc.,
+    // count(*) when none are given. Groups come in ascending order of their values, nulls first.
+    @GetMapping(value = "/aggregate", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> aggregate(
+            @RequestParam(required = false, defaultValue = "") String filter,
+            @RequestParam(required = false) List<String> group,
+            @RequestParam(required = false) List<String> agg,
+            @RequestParam(defaultValue = "" + DEFAULT_GROUP_LIMIT) int limit) {
+
+        if (!userSessionData.hasData()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No data loaded"));
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return ResponseEntity.ok(aggregationService.aggregate(filter, group, agg, limit));
+    }
+
+    // The filter as planned: AND/OR chains and their terms in evaluation order, each with the
+    // estimated fraction of rows it selects and its cost per row
+    @GetMapping(value = "/explain", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> explain(@RequestParam(required = false, defaultValue = "") String filter) {
+        if (!userSessionData.hasData()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No data loaded"));
+        }
+        return ResponseEntity.ok(Map.of("filter", filter, "plan", filterService.explain(filter)));
+    }
+
+    @ExceptionHandler({FilterException.class, IllegalArgumentException.class, ArithmeticException.class})
+    public ResponseEntity<Map<String, String>> badRequest(RuntimeException e) {
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    // NDJSON when the client accepts it with a higher quality than anything JSON would match;
+    // no Accept header, */* and ties get JSON
+    static boolean prefersNdjson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        double ndjson = 0;
+        double json = 0;
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            if (type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON)) {
+                ndjson = Math.max(ndjson, type.getQualityValue());
+            } else if (type.includes(MediaType.APPLICATION_JSON)) {
+                json = Math.max(json, type.getQualityValue());
+            }
+        }
+        return ndjson > json;
+    }
+
+    private DataService.RowSlice slice(String filter, List<String> sort, List<String> dir, List<String> cols,
+                                       String cursor, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        List<String> headers = userSessionData.getHeaders();
+        if (cols != null) {
+            for (String col : cols) {
+                if (!headers.contains(col)) {
+                    throw new IllegalArgumentException("Unknown column '" + col + "'");
+                }
+            }
+        }
+        Sort sortOrder = CsvController.toSort(CsvController.sortDirections(sort, dir, headers));
+        return dataService.rowSlice(filter, sortOrder, cursor, limit, cols);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> notFound() {
+        byte[] message = "{\"error\":\"No data loaded\"}".getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON).body(out -> out.write(message));
+    }
+
+    private static void write(OutputStream out, ExportService.Export body) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        body.writeTo(writer);
+        writer.flush();
+    }
+}
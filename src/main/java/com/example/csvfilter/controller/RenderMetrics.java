@@ -0,0 +1,52 @@
+package com.example.csvfilter.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.TimeUnit;
+
+// Times the rendering of Thymeleaf views, which http.server.requests lumps in with the handler:
+// from postHandle, called once the controller has returned, to afterCompletion, called once the
+// view has been written. Tagged by view name; redirects and bodies written by handlers are skipped.
+@Component
+public class RenderMetrics implements HandlerInterceptor, WebMvcConfigurer {
+
+    private static final String START = RenderMetrics.class.getName() + ".start";
+    private static final String VIEW = RenderMetrics.class.getName() + ".view";
+
+    private final MeterRegistry meterRegistry;
+
+    public RenderMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        String view = modelAndView != null ? modelAndView.getViewName() : null;
+        if (view != null && !view.startsWith("redirect:") && !view.startsWith("forward:")) {
+            request.setAttribute(VIEW, view);
+            request.setAttribute(START, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(START) instanceof Long start && request.getAttribute(VIEW) instanceof String view) {
+            meterRegistry.timer("csvfilter.render", "view", view)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.csvfilter.csv;
+
+// Classifies a CSV cell and parses it in the same pass, without exceptions: null-like, Long, Double,
+// Boolean or String, in that order of preference. It accepts exactly what the JDK parsers accept:
+// Long.parseLong (sign, digits, no blanks), Double.parseDouble (surrounding blanks, NaN, Infinity,
+// exponents, hex and a trailing f/d), case-insensitive true/false, and blank or "null" for nulls.
+// The parsed value of the last cell is kept in the scanner, so one scanner serves one thread.
+// So is whether the cell is written the way its value would be printed back (see scale()), which
+// lets a loader recover the text of a number without keeping it.
+// Public for the benchmarks, which time it against the JDK parsers.
+public final class CellScanner {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private long longValue;
+    private double doubleValue;
+    private boolean booleanValue;
+    private int scale;
+
+    public long longValue() {
+        return longValue;
+    }
+
+    // Also set for Long cells, so a Double column can take them
+    public double doubleValue() {
+        return doubleValue;
+    }
+
+    public boolean booleanValue() {
+        return booleanValue;
+    }
+
+    // For a Long or Double cell written as a plain decimal that its value prints back to, the number
+    // of digits after the point; -1 for any other cell. Plain means an optional minus, digits with
+    // no leading zero, and a point followed by digits: "12", "0.50" and "-3.25" are, while "+12",
+    // "007", "-0", ".5", "5.", "1e3" and " 1" are not. A Double cell also needs at most 15
+    // significant digits, so that the double printed to that many decimals gives its text back.
+    // A Long cell prints back with Long.toString, a Double one with
+    // new BigDecimal(value).setScale(scale, HALF_EVEN).toPlainString().
+    int scale() {
+        return scale;
+    }
+
+    // Type of the cell, or null for a null-like cell
+    public Class<?> scan(CharSequence value) {
+        return isNull(value) ? null : type(value, 0, value.length());
+    }
+
+    static boolean isNull(CharSequence value) {
+        if (value == null) {
+            return true;
+        }
+        int length = value.length();
+        if (length == 4 && equalsIgnoreCase(value, 0, 4, "null")) {
+            return true;
+        }
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Most specific type of a non-null cell
+    Class<?> type(CharSequence value, int from, int to) {
+        if (scanLong(value, from, to)) {
+            doubleValue = longValue == 0 && value.charAt(from) == '-' ? -0.0 : longValue;
+            return Long.class;
+        }
+        if (scanDouble(value, from, to)) {
+            return Double.class;
+        }
+        scale = -1;
+        if (equalsIgnoreCase(value, from, to, "true") || equalsIgnoreCase(value, from, to, "false")) {
+            booleanValue = to - from == 4;
+            return Boolean.class;
+        }
+        return String.class;
+    }
+
+    // Long.parseLong's grammar, including its acceptance of non-ASCII digits
+    private boolean scanLong(CharSequence value, int from, int to) {
+        int i = from;
+        if (i == to) return false;
+        char first = value.charAt(i);
+        boolean negative = first == '-';
+        if (negative || first == '+') {
+            if (++i == to) return false;
+        }
+        boolean plain = first != '+' && (value.charAt(i) != '0' || i == to - 1);
+        // Accumulated negatively, so Long.MIN_VALUE fits
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyMin = limit / 10;
+        long result = 0;
+        for (; i < to; i++) {
+            char c = value.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else {
+                digit = c < 128 ? -1 : Character.digit(c, 10);
+                plain = false;
+            }
+            if (digit < 0 || result < multiplyMin) return false;
+            result *= 10;
+            if (result < limit + digit) return false;
+            result -= digit;
+        }
+        longValue = negative ? result : -result;
+        scale = plain && !(negative && result == 0) ? 0 : -1;
+        return true;
+    }
+
+    // Double.parseDouble's grammar. Values with up to 15 significant digits and a power of ten within
+    // 1e22 are computed exactly from one multiplication or division; others go to the JDK parser,
+    // which cannot throw on input that passed this scan.
+    private boolean scanDouble(CharSequence value, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && value.charAt(start) <= ' ') start++;
+        while (end > start && value.charAt(end - 1) <= ' ') end--;
+        int i = start;
+        if (i == end) return false;
+        boolean negative = false;
+        char c = value.charAt(i);
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            if (++i == end) return false;
+            c = value.charAt(i);
+        }
+        scale = -1;
+        if (c == 'N' || c == 'I') {
+            String word = c == 'N' ? "NaN" : "Infinity";
+            if (end - i != word.length()) return false;
+            for (int k = 0; k < word.length(); k++) {
+                if (value.charAt(i + k) != word.charAt(k)) return false;
+            }
+            doubleValue = c == 'N' ? Double.NaN : negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            return true;
+        }
+        if (c == '0' && i + 1 < end && (value.charAt(i + 1) == 'x' || value.charAt(i + 1) == 'X')) {
+            if (!isHexFloat(value, i + 2, end)) return false;
+            doubleValue = Double.parseDouble(value.subSequence(from, to).toString());
+            return true;
+        }
+
+        // Plain so far: no blanks, no plus and no leading zero before further integer digits
+        boolean plain = start == from && end == to && value.charAt(from) != '+'
+                && (c != '0' || i + 1 == end || value.charAt(i + 1) == '.');
+        int first = i;
+        long significand = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        int exponent = 0; // Power of ten to apply to the significand
+        boolean dot = false;
+        for (; i < end; i++) {
+            c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (dot) fractionDigits++;
+                if (significand == 0 && c == '0') {
+                    if (dot) exponent--; // Leading zeros only move the decimal point
+                    continue;
+                }
+                if (significantDigits < 18) {
+                    significand = significand * 10 + (c - '0');
+                    if (dot) exponent--;
+                } else if (!dot) {
+                    exponent++; // Dropped digit left of the point
+                }
+                significantDigits++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) return false;
+        plain &= i == end && significantDigits <= 15 && value.charAt(first) != '.' && (!dot || fractionDigits > 0);
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            if (++i == end) return false;
+            boolean negativeExponent = value.charAt(i) == '-';
+            if (negativeExponent || value.charAt(i) == '+') {
+                if (++i == end) return false;
+            }
+            int explicit = 0;
+            int exponentDigits = 0;
+            for (; i < end && value.charAt(i) >= '0' && value.charAt(i) <= '9'; i++) {
+                explicit = Math.min(explicit * 10 + (value.charAt(i) - '0'), 100_000); // Saturates far past any double
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) return false;
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (i < end) {
+            c = value.charAt(i);
+            if (i != end - 1 || (c != 'f' && c != 'F' && c != 'd' && c != 'D')) return false;
+        }
+
+        scale = plain && !(negative && significand == 0) ? fractionDigits : -1;
+        double result;
+        if (significand == 0) {
+            result = 0;
+        } else if (significantDigits <= 15 && exponent >= -22 && exponent <= 22) {
+            result = exponent >= 0 ? significand * POWERS_OF_TEN[exponent] : significand / POWERS_OF_TEN[-exponent];
+        } else {
+            doubleValue = Double.parseDouble(value.subSequence(from, to).toString());
+            return true;
+        }
+        doubleValue = negative ? -result : result;
+        return true;
+    }
+
+    // 0x must be followed by hex digits with an optional point, a binary exponent and an optional
+    // f/d suffix; `from` is just past the 0x
+    private static boolean isHexFloat(CharSequence value, int from, int end) {
+        int i = from;
+        int digits = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (Character.digit(c, 16) >= 0 && c < 128) {
+                digits++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0 || i == end || (value.charAt(i) != 'p' && value.charAt(i) != 'P')) return false;
+        if (++i < end && (value.charAt(i) == '+' || value.charAt(i) == '-')) i++;
+        int exponentDigits = 0;
+        for (; i < end && value.charAt(i) >= '0' && value.charAt(i) <= '9'; i++) {
+            exponentDigits++;
+        }
+        if (exponentDigits == 0) return false;
+        if (i == end) return true;
+        char c = value.charAt(i);
+        return i == end - 1 && (c == 'f' || c == 'F' || c == 'd' || c == 'D');
+    }
+
+    // String.equalsIgnoreCase against a lower-case ASCII word
+    private static boolean equalsIgnoreCase(CharSequence value, int from, int to, String word) {
+        if (to - from != word.length()) return false;
+        for (int i = 0; i < word.length(); i++) {
+            char c = value.charAt(from + i);
+            char w = word.charAt(i);
+            if (c == w) continue;
+            char upper = Character.toUpperCase(c);
+            if (upper != Character.toUpperCase(w) && Character.toLowerCase(upper) != w) return false;
+        }
+        return true;
+    }
+}
@@ -1,30 +1,138 @@
 package com.example.csvfilter.csv;
 
-import com.opencsv.CSVWriter;
+import com.example.csvfilter.table.BooleanColumn;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.DoubleColumn;
+import com.example.csvfilter.table.LongColumn;
+import com.example.csvfilter.table.StringColumn;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
-import java.util.List;
-import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
 
+// Writes rows straight from the typed columns into a large char buffer, which is handed to the
+// writer and flushed whenever it fills up, so a response goes out in chunks while rows are still
+// being produced. Output matches OpenCSV's CSVWriter defaults: every field quoted, quotes doubled,
+// nulls as "" and "\n" line ends.
 @Component
 public class CsvExporter {
-    public void export(List<String> headers, List<Map<String, Object>> rows, Writer writer) {
-        try (CSVWriter csvWriter = new CSVWriter(writer)) {
-            // Write header
-            csvWriter.writeNext(headers.toArray(new String[0]));
-
-            // Write rows
-            for (Map<String, Object> row : rows) {
-                String[] line = new String[headers.size()];
-                for (int i = 0; i < headers.size(); i++) {
-                    Object value = row.get(headers.get(i));
-                    line[i] = (value != null) ? value.toString() : "";
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    public long export(DataTable table, int[] rows, Writer writer) {
+        return export(table, IntStream.of(rows), writer);
+    }
+
+    public long export(DataTable table, IntStream rows, Writer writer) {
+        return export(table, IntStream.range(0, table.columnCount()).toArray(), rows, writer);
+    }
+
+    // Only the given columns, in the given order. Returns the number of rows written.
+    public long export(DataTable table, int[] selected, IntStream rows, Writer writer) {
+        try {
+            Output out = new Output(writer);
+            for (int i = 0; i < selected.length; i++) {
+                if (i > 0) out.write(',');
+                out.quoted(table.headers().get(selected[i]));
+            }
+            out.write('\n');
+
+            int columnCount = selected.length;
+            Column[] columns = new Column[columnCount];
+            for (int i = 0; i < columnCount; i++) columns[i] = table.column(selected[i]);
+            long written = 0;
+            for (PrimitiveIterator.OfInt it = rows.iterator(); it.hasNext(); written++) {
+                int row = it.nextInt();
+                for (int i = 0; i < columnCount; i++) {
+                    if (i > 0) out.write(',');
+                    out.value(columns[i], row);
                 }
-                csvWriter.writeNext(line);
+                out.write('\n');
             }
-        } catch (Exception e) {
+            out.flush();
+            return written;
+        } catch (IOException | UncheckedIOException e) {
             throw new RuntimeException("Error writing CSV export: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    private static final class Output {
+        private final Writer writer;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        // Numbers are appended here (no String per value) and copied into the buffer
+        private final StringBuilder number = new StringBuilder(32);
+        private int length;
+
+        Output(Writer writer) {
+            this.writer = writer;
+        }
+
+        void value(Column column, int row) throws IOException {
+            if (column.isNull(row)) {
+                write('"');
+                write('"');
+                return;
+            }
+            if (column instanceof StringColumn c) {
+                quoted(c.getString(row));
+                return;
+            }
+            number.setLength(0);
+            if (column instanceof LongColumn c) number.append(c.getLong(row));
+            else if (column instanceof DoubleColumn c) number.append(c.getDouble(row));
+            else if (column instanceof BooleanColumn c) number.append(c.getBoolean(row));
+            else number.append(column.get(row));
+            write('"');
+            append(number);
+            write('"');
+        }
+
+        void quoted(String value) throws IOException {
+            write('"');
+            if (value.indexOf('"') < 0) {
+                append(value);
+            } else {
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') write('"');
+                    write(c);
+                }
+            }
+            write('"');
+        }
+
+        void write(char c) throws IOException {
+            if (length == BUFFER_SIZE) flush();
+            buffer[length++] = c;
+        }
+
+        private void append(String value) throws IOException {
+            int size = value.length();
+            if (BUFFER_SIZE - length < size) flush();
+            if (size > BUFFER_SIZE) {
+                writer.write(value);
+                return;
+            }
+            value.getChars(0, size, buffer, length);
+            length += size;
+        }
+
+        private void append(StringBuilder value) throws IOException {
+            int size = value.length(); // Always short: one formatted number
+            if (BUFFER_SIZE - length < size) flush();
+            value.getChars(0, size, buffer, length);
+            length += size;
+        }
+
+        // Hands the buffer to the writer and flushes it, which sends a chunk to the client
+        void flush() throws IOException {
+            writer.write(buffer, 0, length);
+            writer.flush();
+            length = 0;
+        }
+    }
+}
@@ -7,39 +7,44 @@ import org.springframework.stereotype.Component;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 @Component
 public class CsvParser {
-    public List<Map<String, String>> parse(InputStream inputStream) {
-        List<Map<String, String>> result = new ArrayList<>();
-        try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream))) {
+
+    // Receives the file one record at a time, so nothing is buffered here
+    public interface RecordHandler {
+        void headers(String[] headers);
+
+        // Records may be shorter than the header row; missing trailing values are null
+        void record(String[] values);
+    }
+
+    // Uploads are read as UTF-8, as the parallel and lazy loaders read them, whatever the
+    // platform charset
+    public void parse(InputStream inputStream, RecordHandler handler) {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
             String[] headers = reader.readNext();
             if (headers == null) {
-                return result; // Empty file
+                return; // Empty file
             }
 
             // Check for duplicate headers
             checkDuplicateHeaders(headers);
+            handler.headers(headers);
 
             String[] line;
             while ((line = reader.readNext()) != null) {
-                Map<String, String> row = new LinkedHashMap<>();
-                for (int i = 0; i < headers.length; i++) {
-                    row.put(headers[i], (i < line.length) ? line[i] : null);
-                }
-                result.add(row);
+                handler.record(line);
             }
         } catch (IOException | CsvValidationException e) {
             throw new RuntimeException("Error reading CSV file: " + e.getMessage(), e);
         }
-        return result;
     }
 
-    private void checkDuplicateHeaders(String[] headers) {
+    static void checkDuplicateHeaders(String[] headers) {
         List<String> seen = new ArrayList<>();
         for (String header : headers) {
             if (seen.contains(header)) {
@@ -48,4 +53,4 @@ public class CsvParser {
             seen.add(header);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+package com.example.csvfilter.csv;
+
+import com.example.csvfilter.table.BooleanColumn;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.DoubleColumn;
+import com.example.csvfilter.table.LongColumn;
+import com.example.csvfilter.table.StringColumn;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+// Writes rows as JSON objects straight from the typed columns, for the data API: either one JSON
+// document with the rows and the paging state, or NDJSON with one row per line. Only the selected
+// columns are written, in the given order. NaN and infinite doubles, which JSON cannot hold, are
+// written as null.
+@Component
+public class JsonExporter {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    // {"columns":[{"name":..,"type":..}],"total":..,"nextCursor":..,"rows":[{..},..]}
+    public void json(DataTable table, int[] columns, int[] rows, int total, String nextCursor, Writer writer) {
+        try {
+            BufferedWriter out = new BufferedWriter(writer, BUFFER_SIZE);
+            out.write("{\"columns\":[");
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) out.write(',');
+                out.write("{\"name\":");
+                string(out, table.headers().get(columns[i]));
+                out.write(",\"type\":");
+                string(out, table.column(columns[i]).type().getSimpleName());
+                out.write('}');
+            }
+            out.write("],\"total\":");
+            out.write(Integer.toString(total));
+            out.write(",\"nextCursor\":");
+            if (nextCursor == null) out.write("null");
+            else string(out, nextCursor);
+            out.write(",\"rows\":[");
+            String[] keys = keys(table, columns);
+            for (int i = 0; i < rows.length; i++) {
+                if (i > 0) out.write(',');
+                row(out, table, columns, keys, rows[i]);
+            }
+            out.write("]}");
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing JSON: " + e.getMessage(), e);
+        }
+    }
+
+    public void ndjson(DataTable table, int[] columns, int[] rows, Writer writer) {
+        try {
+            BufferedWriter out = new BufferedWriter(writer, BUFFER_SIZE);
+            String[] keys = keys(table, columns);
+            for (int row : rows) {
+                row(out, table, columns, keys, row);
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing NDJSON: " + e.getMessage(), e);
+        }
+    }
+
+    // "name": prefixes, escaped once instead of once per row
+    private static String[] keys(DataTable table, int[] columns) throws IOException {
+        String[] keys = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            StringWriter key = new StringWriter();
+            if (i > 0) key.write(',');
+            string(key, table.headers().get(columns[i]));
+            key.write(':');
+            keys[i] = key.toString();
+        }
+        return keys;
+    }
+
+    private static void row(Writer out, DataTable table, int[] columns, String[] keys, int row) throws IOException {
+        out.write('{');
+        for (int i = 0; i < columns.length; i++) {
+            out.write(keys[i]);
+            value(out, table.column(columns[i]), row);
+        }
+        out.write('}');
+    }
+
+    private static void value(Writer out, Column column, int row) throws IOException {
+        if (column.isNull(row)) {
+            out.write("null");
+        } else if (column instanceof StringColumn c) {
+            string(out, c.getString(row));
+        } else if (column instanceof LongColumn c) {
+            out.write(Long.toString(c.getLong(row)));
+        } else if (column instanceof DoubleColumn c) {
+            double value = c.getDouble(row);
+            out.write(Double.isFinite(value) ? Double.toString(value) : "null");
+        } else if (column instanceof BooleanColumn c) {
+            out.write(c.getBoolean(row) ? "true" : "false");
+        } else {
+            string(out, String.valueOf(column.get(row)));
+        }
+    }
+
+    // A JSON string literal: quotes, backslashes and control characters escaped
+    private static void string(Writer out, String value) throws IOException {
+        out.write('"');
+        int plain = 0; // Start of the run of characters that need no escaping
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+            out.write(value, plain, i - plain);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> out.write(String.format("\\u%04x", (int) c));
+            }
+            plain = i + 1;
+        }
+        out.write(value, plain, value.length() - plain);
+        out.write('"');
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.csvfilter.csv;
+
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.ColumnSource;
+import com.example.csvfilter.table.DataTable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+
+// Loads an upload without building any of its columns. The file is spooled to a temp file and
+// read once for its headers and row count; a column is parsed and typed the first time a view,
+// filter, sort or export reads it, together with any other columns the same request needs. Each
+// of those loads reads the spool file again through OpenCSV and builds only the columns asked for,
+// with the same sampling and widening as a full load, so a column comes out as it would have then.
+// Wide files of which most requests read a few columns never hold the rest in memory.
+@Component
+public class LazyCsvLoader {
+
+    private final CsvParser csvParser;
+    private final TypeInferrer typeInferrer;
+    private final Path spoolDirectory;
+
+    public LazyCsvLoader(CsvParser csvParser, TypeInferrer typeInferrer,
+                         @Value("${csvfilter.storage.dir:}") String spoolDirectory) {
+        this.csvParser = csvParser;
+        this.typeInferrer = typeInferrer;
+        this.spoolDirectory = Path.of(spoolDirectory.isEmpty() ? System.getProperty("java.io.tmpdir") : spoolDirectory);
+    }
+
+    // The spool file is deleted when the table's source is closed
+    public DataTable load(InputStream inputStream) {
+        Path file = null;
+        try {
+            Files.createDirectories(spoolDirectory);
+            file = Files.createTempFile(spoolDirectory, "csvfilter-lazy-", ".csv");
+            Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+            TableLoader loader = new TableLoader(typeInferrer, new BitSet());
+            parse(file, loader);
+            DataTable table = loader.finish(new SpooledColumns(file, loader.rowCount()));
+            if (table.rowCount() == 0) {
+                throw new IllegalArgumentException("CSV file is empty or invalid.");
+            }
+            return table;
+        } catch (IOException | RuntimeException e) {
+            delete(file);
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Error reading CSV file: " + e.getMessage(), e);
+        }
+    }
+
+    private void parse(Path file, TableLoader loader) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            csvParser.parse(in, loader);
+        }
+    }
+
+    private static void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Best effort, like the table files
+        }
+    }
+
+    private final class SpooledColumns implements ColumnSource {
+        private final Path file;
+        private final int rowCount;
+
+        SpooledColumns(Path file, int rowCount) {
+            this.file = file;
+            this.rowCount = rowCount;
+        }
+
+        @Override
+        public Column[] load(int[] columns) throws IOException {
+            BitSet selected = new BitSet();
+            for (int column : columns) {
+                selected.set(column);
+            }
+            TableLoader loader = new TableLoader(typeInferrer, selected);
+            parse(file, loader);
+            if (loader.rowCount() != rowCount) {
+                throw new IOException("Spooled CSV file changed: expected " + rowCount + " rows but read " + loader.rowCount());
+            }
+            Column[] built = loader.buildColumns();
+            Column[] result = new Column[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                result[i] = built[columns[i]];
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+            delete(file);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.csvfilter.csv;
+
+import com.example.csvfilter.table.BooleanColumn;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.ColumnBuilder;
+import com.example.csvfilter.table.DoubleColumn;
+import com.example.csvfilter.table.LongColumn;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// A column being loaded: its current type, its builder, and while it is not a String column, what
+// each cell looked like in the file. A typed column widened to String by a later cell takes the
+// text of the cells it already holds, so "1.50", "007" and "TRUE" stay as they were uploaded instead
+// of becoming the parsed values' "1.5", "7" and "true".
+// Most cells are printed back from their value, so per row only a format byte is kept: for a Long,
+// 0 for Long.toString; for a Double, the number of decimals of a plain decimal (see
+// CellScanner.scale()); for a Boolean, the letter case. The text of any other cell is kept as is.
+final class LoadingColumn {
+
+    private static final byte VERBATIM = -1;
+    private static final byte LOWER_CASE = 0;
+    private static final byte UPPER_CASE = 1;
+    private static final byte CAPITALIZED = 2;
+    // Longs beyond this do not survive the conversion to double, so their text is kept once the
+    // column widens to Double
+    private static final long EXACT_IN_DOUBLE = 1L << 53;
+
+    private final CellScanner scanner;
+    private final TypeInferrer typeInferrer;
+    private Class<?> type;
+    private ColumnBuilder builder;
+    // Format of each row so far; null once the column is a String column
+    private byte[] formats;
+    // Text of the VERBATIM rows, in row order
+    private List<String> verbatim;
+    private int size;
+
+    // A null type is a column that has seen only nulls so far
+    LoadingColumn(Class<?> type, CellScanner scanner, TypeInferrer typeInferrer) {
+        this.type = type;
+        this.scanner = scanner;
+        this.typeInferrer = typeInferrer;
+        this.builder = ColumnBuilder.forType(type); // Columns without a type yet hold nulls as strings
+        if (type != String.class) {
+            formats = new byte[ColumnBuilder.INITIAL_CAPACITY];
+            verbatim = new ArrayList<>();
+        }
+    }
+
+    Class<?> type() {
+        return type;
+    }
+
+    void addNull() {
+        builder.addNull();
+        if (formats != null) format((byte) 0); // Not read for a null
+    }
+
+    // Appends a non-null cell, widening the column if the cell does not fit its type
+    void add(String raw) {
+        if (type == String.class) {
+            builder.add(raw);
+            return;
+        }
+        Class<?> cellType = scanner.type(raw, 0, raw.length());
+        if (cellType != type) {
+            widenTo(typeInferrer.wider(type, cellType));
+            if (type == String.class) {
+                builder.add(raw);
+                return;
+            }
+        }
+        byte format;
+        if (type == Long.class) {
+            ((LongColumn.Builder) builder).add(scanner.longValue());
+            format = scanner.scale() == 0 ? 0 : VERBATIM;
+        } else if (type == Double.class) {
+            ((DoubleColumn.Builder) builder).add(scanner.doubleValue());
+            int scale = scanner.scale();
+            boolean exact = cellType != Long.class
+                    || (scanner.longValue() <= EXACT_IN_DOUBLE && scanner.longValue() >= -EXACT_IN_DOUBLE);
+            format = scale >= 0 && scale <= Byte.MAX_VALUE && exact ? (byte) scale : VERBATIM;
+        } else {
+            ((BooleanColumn.Builder) builder).add(scanner.booleanValue());
+            format = booleanFormat(raw);
+        }
+        format(format);
+        if (format == VERBATIM) {
+            verbatim.add(raw);
+        }
+    }
+
+    void widenTo(Class<?> wider) {
+        if (wider == type) {
+            return;
+        }
+        if (wider == String.class) {
+            builder = text();
+            formats = null;
+            verbatim = null;
+        } else {
+            if (type == Long.class) {
+                keepInexactLongs();
+            }
+            builder = builder.widenTo(wider);
+        }
+        type = wider;
+    }
+
+    // Appends the rows of a column of the same type, loaded from the records after this one's
+    void addAll(LoadingColumn next) {
+        if (next.type != type) {
+            throw new IllegalArgumentException("Column types differ: " + type + " and " + next.type);
+        }
+        builder.addAll(next.builder.build());
+        if (formats != null) {
+            formats = Arrays.copyOf(formats, Math.max(formats.length, size + next.size));
+            System.arraycopy(next.formats, 0, formats, size, next.size);
+            verbatim.addAll(next.verbatim);
+        }
+        size += next.size;
+    }
+
+    Column build() {
+        return builder.build();
+    }
+
+    Column snapshot() {
+        return builder.snapshot();
+    }
+
+    private void format(byte format) {
+        if (size == formats.length) formats = Arrays.copyOf(formats, ColumnBuilder.grow(size));
+        formats[size++] = format;
+    }
+
+    private static byte booleanFormat(String raw) {
+        if (raw.equals("true") || raw.equals("false")) return LOWER_CASE;
+        if (raw.equals("TRUE") || raw.equals("FALSE")) return UPPER_CASE;
+        if (raw.equals("True") || raw.equals("False")) return CAPITALIZED;
+        return VERBATIM;
+    }
+
+    // The rows so far as their text, in a String builder
+    private ColumnBuilder text() {
+        Column values = builder.build();
+        ColumnBuilder strings = ColumnBuilder.forType(String.class);
+        int next = 0;
+        for (int row = 0; row < values.size(); row++) {
+            if (values.isNull(row)) {
+                strings.addNull();
+            } else if (formats[row] == VERBATIM) {
+                strings.add(verbatim.get(next++));
+            } else {
+                strings.add(text(values, row, formats[row]));
+            }
+        }
+        return strings;
+    }
+
+    private static String text(Column values, int row, byte format) {
+        if (values instanceof LongColumn longs) {
+            return Long.toString(longs.getLong(row));
+        }
+        if (values instanceof DoubleColumn doubles) {
+            return new BigDecimal(doubles.getDouble(row)).setScale(format, RoundingMode.HALF_EVEN).toPlainString();
+        }
+        String text = Boolean.toString(((BooleanColumn) values).getBoolean(row));
+        if (format == UPPER_CASE) return text.toUpperCase(Locale.ROOT);
+        if (format == CAPITALIZED) return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+        return text;
+    }
+
+    // Before a Long column widens to Double: a long the double would round keeps its text
+    private void keepInexactLongs() {
+        LongColumn longs = (LongColumn) builder.build();
+        List<String> texts = new ArrayList<>(verbatim.size());
+        int next = 0;
+        for (int row = 0; row < longs.size(); row++) {
+            if (formats[row] == VERBATIM) {
+                texts.add(verbatim.get(next++));
+            } else if (!longs.isNull(row)) {
+                long value = longs.getLong(row);
+                if (value > EXACT_IN_DOUBLE || value < -EXACT_IN_DOUBLE) {
+                    formats[row] = VERBATIM;
+                    texts.add(Long.toString(value));
+                }
+            }
+        }
+        verbatim = texts;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.csvfilter.csv;
+
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Loads a CSV file on several cores. The upload is spooled to a temp file and memory-mapped, split
+// into chunks at record boundaries, and each chunk is parsed and typed by its own TableLoader; the
+// chunks are then stitched together in file order. The resulting table is the one the sequential
+// OpenCSV path builds, for RFC 4180 input: backslashes are plain characters here, while OpenCSV
+// treats them as escapes.
+//
+// Record boundaries: outside quotes, every quote opens a quoted section and inside one, a quote
+// either closes it or, doubled, stands for itself. Either way every quote flips between inside and
+// outside, so a newline ends a record exactly when an even number of quotes precede it. Quotes
+// are counted per range in parallel, and each range starts at the first such newline.
+//
+// Column types: all chunks start from the types inferred from the first records. A chunk may widen
+// a column; each stitched column takes the widest type any chunk ended with, which is the type the
+// sequential path ends with too, as widening does not depend on the order. Rows a chunk loaded as
+// numbers or booleans keep their text when the column ends up as strings (see LoadingColumn), so
+// chunks that started from narrower types than the sequential path had at that point come out the
+// same without being parsed again.
+@Component
+public class ParallelCsvParser {
+
+    static final int CHUNK_BYTES = 4 << 20;
+
+    private final TypeInferrer typeInferrer;
+    private final Path spoolDirectory;
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+
+    @Autowired
+    public ParallelCsvParser(TypeInferrer typeInferrer,
+                             @Value("${csvfilter.storage.dir:}") String spoolDirectory,
+                             @Value("${csvfilter.parser.parallelism:0}") int parallelism) {
+        this(typeInferrer, spoolDirectory, parallelism, CHUNK_BYTES);
+    }
+
+    ParallelCsvParser(TypeInferrer typeInferrer, String spoolDirectory, int parallelism, int chunkBytes) {
+        this.typeInferrer = typeInferrer;
+        this.spoolDirectory = Path.of(spoolDirectory.isEmpty() ? System.getProperty("java.io.tmpdir") : spoolDirectory);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.chunkBytes = chunkBytes;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public DataTable load(InputStream inputStream) {
+        Path file = null;
+        try {
+            Files.createDirectories(spoolDirectory);
+            file = Files.createTempFile(spoolDirectory, "csvfilter-", ".csv");
+            Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+            return load(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading CSV file: " + e.getMessage(), e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    // Best effort, like the table files
+                }
+            }
+        }
+    }
+
+    public DataTable load(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("CSV file is too large: " + channel.size() + " bytes");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        RecordReader reader = new RecordReader(data, 0, data.limit());
+        String[] headerRecord = reader.next();
+        if (headerRecord == null) {
+            throw new IllegalArgumentException("CSV file is empty or invalid.");
+        }
+        CsvParser.checkDuplicateHeaders(headerRecord);
+        List<String> headers = Arrays.asList(headerRecord);
+        int dataStart = reader.position();
+
+        // Types from the first records, as TableLoader samples them
+        List<String[]> sample = new ArrayList<>();
+        for (String[] record; sample.size() < TypeInferrer.ROWS_TO_SCAN && (record = reader.next()) != null; ) {
+            sample.add(record);
+        }
+        Class<?>[] sampleTypes = typeInferrer.inferSchema(sample, headers.size());
+
+        int[] bounds = chunkBounds(data, dataStart);
+        return stitch(headers, loadChunks(data, bounds, headers, sampleTypes));
+    }
+
+    // Chunk i covers [bounds[i], bounds[i + 1]); every bound is the start of a record
+    private int[] chunkBounds(MappedByteBuffer data, int dataStart) {
+        int size = data.limit();
+        int ranges = Math.max(1, (int) (((long) size - dataStart + chunkBytes - 1) / chunkBytes));
+        List<Callable<Integer>> counts = new ArrayList<>();
+        for (int range = 0; range < ranges; range++) {
+            int from = dataStart + range * chunkBytes;
+            int to = (int) Math.min(size, (long) from + chunkBytes);
+            counts.add(() -> {
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    if (data.get(i) == '"') count++;
+                }
+                return count;
+            });
+        }
+        List<Integer> quotes = invokeAll(counts);
+        int[] bounds = new int[ranges + 1];
+        bounds[0] = dataStart;
+        bounds[ranges] = size;
+        boolean inQuotes = false;
+        for (int range = 1; range < ranges; range++) {
+            inQuotes ^= (quotes.get(range - 1) & 1) == 1;
+            bounds[range] = Math.max(bounds[range - 1], recordStart(data, dataStart + range * chunkBytes, inQuotes));
+        }
+        return bounds;
+    }
+
+    // First record start after `from`, given whether `from` is inside quotes
+    private static int recordStart(MappedByteBuffer data, int from, boolean inQuotes) {
+        int size = data.limit();
+        for (int i = from; i < size; i++) {
+            byte b = data.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (!inQuotes && (b == '\n' || b == '\r')) {
+                return b == '\r' && i + 1 < size && data.get(i + 1) == '\n' ? i + 2 : i + 1;
+            }
+        }
+        return size;
+    }
+
+    private List<TableLoader> loadChunks(MappedByteBuffer data, int[] bounds, List<String> headers, Class<?>[] types) {
+        List<Callable<TableLoader>> tasks = new ArrayList<>();
+        for (int chunk = 0; chunk < bounds.length - 1; chunk++) {
+            int from = bounds[chunk];
+            int to = bounds[chunk + 1];
+            tasks.add(() -> {
+                TableLoader loader = new TableLoader(typeInferrer, headers, types);
+                RecordReader reader = new RecordReader(data, from, to);
+                for (String[] record; (record = reader.next()) != null; ) {
+                    loader.record(record);
+                }
+                return loader;
+            });
+        }
+        return invokeAll(tasks);
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading CSV file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException("Error reading CSV file: " + e.getCause().getMessage(), e.getCause());
+        }
+        return results;
+    }
+
+    // Appends the chunks column by column, each widened to the widest type of that column
+    private DataTable stitch(List<String> headers, List<TableLoader> chunks) {
+        Column[] columns = new Column[headers.size()];
+        int rowCount = 0;
+        for (TableLoader chunk : chunks) {
+            rowCount += chunk.rowCount();
+        }
+        for (int column = 0; column < columns.length; column++) {
+            Class<?> type = null;
+            for (TableLoader chunk : chunks) {
+                type = typeInferrer.wider(type, chunk.column(column).type());
+            }
+            LoadingColumn merged = chunks.get(0).column(column);
+            merged.widenTo(type);
+            for (int i = 1; i < chunks.size(); i++) {
+                LoadingColumn rows = chunks.get(i).column(column);
+                rows.widenTo(type);
+                merged.addAll(rows);
+            }
+            columns[column] = merged.build();
+        }
+        return new DataTable(headers, columns, rowCount);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.csvfilter.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reads the records of a UTF-8 CSV byte range. Line ends are \n, \r\n or \r, and a line break
+// inside quotes reads as \n; an empty line is a record with one empty value. This is what OpenCSV
+// returns for the same input, apart from its backslash escapes.
+final class RecordReader {
+    private final ByteBuffer data;
+    private final int end;
+    private int position;
+    private byte[] field = new byte[64];
+    private int length;
+    private final List<String> values = new ArrayList<>();
+
+    RecordReader(ByteBuffer data, int from, int to) {
+        this.data = data;
+        this.position = from;
+        this.end = to;
+    }
+
+    int position() {
+        return position;
+    }
+
+    // The next record, or null at the end of the range
+    String[] next() {
+        if (position >= end) {
+            return null;
+        }
+        values.clear();
+        length = 0;
+        boolean quoted = false;
+        while (position < end) {
+            if (quoted) {
+                copyQuoted();
+                if (position == end) break;
+                byte b = data.get(position++);
+                if (b == '\r') {
+                    append((byte) '\n');
+                    if (position < end && data.get(position) == '\n') position++;
+                } else if (position < end && data.get(position) == '"') {
+                    append(b);
+                    position++;
+                } else {
+                    quoted = false;
+                }
+                continue;
+            }
+            copyUnquoted();
+            if (position == end) break;
+            byte b = data.get(position++);
+            if (b == ',') {
+                endField();
+            } else if (b == '"') {
+                quoted = true;
+            } else {
+                if (b == '\r' && position < end && data.get(position) == '\n') position++;
+                endField();
+                return values.toArray(new String[0]);
+            }
+        }
+        if (quoted) {
+            throw new RuntimeException("Error reading CSV file: Unterminated quoted field at end of file");
+        }
+        endField();
+        return values.toArray(new String[0]);
+    }
+
+    // Copies plain bytes in one go, up to a separator, quote or line break
+    private void copyUnquoted() {
+        int from = position;
+        while (position < end) {
+            byte b = data.get(position);
+            if (b == ',' || b == '"' || b == '\n' || b == '\r') break;
+            position++;
+        }
+        copy(from);
+    }
+
+    // Inside quotes, only a quote or a \r (which becomes \n) needs attention
+    private void copyQuoted() {
+        int from = position;
+        while (position < end) {
+            byte b = data.get(position);
+            if (b == '"' || b == '\r') break;
+            position++;
+        }
+        copy(from);
+    }
+
+    private void copy(int from) {
+        int count = position - from;
+        if (length + count > field.length) field = Arrays.copyOf(field, Math.max(length + count, field.length * 2));
+        data.get(from, field, length, count);
+        length += count;
+    }
+
+    private void append(byte b) {
+        if (length == field.length) field = Arrays.copyOf(field, length * 2);
+        field[length++] = b;
+    }
+
+    private void endField() {
+        values.add(new String(field, 0, length, StandardCharsets.UTF_8));
+        length = 0;
+    }
+}
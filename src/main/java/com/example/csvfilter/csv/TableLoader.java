@@ -0,0 +1,165 @@
+package com.example.csvfilter.csv;
+
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.ColumnSource;
+import com.example.csvfilter.table.DataTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// Single-pass ingestion: buffers a small sample to infer column types, then coerces
+// every further record straight into the column builders. A value that doesn't fit
+// its column's type widens the column instead of being dropped; cells already loaded keep their
+// text if it widens to String (see LoadingColumn). Each cell is classified and parsed once by a
+// CellScanner, and primitives are appended without boxing.
+// ParallelCsvParser runs one loader per chunk, each starting from the types inferred up front.
+// A loader can be limited to some of the columns; the others are skipped and left to a ColumnSource.
+public class TableLoader implements CsvParser.RecordHandler {
+    private final TypeInferrer typeInferrer;
+    private final int sampleSize;
+    // Columns to build; null for all of them
+    private final BitSet selected;
+    // Holds the parsed value of the cell being appended; a loader runs on one thread
+    private final CellScanner scanner = new CellScanner();
+    private List<String> headers;
+    private List<String[]> sample = new ArrayList<>();
+    // Null for the columns not selected
+    private LoadingColumn[] columns;
+    private int rowCount;
+    // Time spent inferring column types, for the load metrics
+    private long inferenceNanos;
+
+    public TableLoader(TypeInferrer typeInferrer) {
+        this(typeInferrer, TypeInferrer.ROWS_TO_SCAN);
+    }
+
+    public TableLoader(TypeInferrer typeInferrer, int sampleSize) {
+        this(typeInferrer, sampleSize, null);
+    }
+
+    // Builds only the selected columns, for tables whose other columns are loaded later
+    public TableLoader(TypeInferrer typeInferrer, BitSet selected) {
+        this(typeInferrer, TypeInferrer.ROWS_TO_SCAN, selected);
+    }
+
+    private TableLoader(TypeInferrer typeInferrer, int sampleSize, BitSet selected) {
+        this.typeInferrer = typeInferrer;
+        this.sampleSize = sampleSize;
+        this.selected = selected;
+    }
+
+    // A loader that starts from known column types instead of sampling
+    TableLoader(TypeInferrer typeInferrer, List<String> headers, Class<?>[] types) {
+        this(typeInferrer);
+        this.headers = headers;
+        this.sample = List.of();
+        startColumns(types.clone());
+    }
+
+    @Override
+    public void headers(String[] headers) {
+        this.headers = Arrays.asList(headers);
+    }
+
+    @Override
+    public void record(String[] values) {
+        if (columns != null) {
+            append(values);
+            return;
+        }
+        sample.add(values);
+        if (sample.size() >= sampleSize) {
+            startColumns(inferSchema());
+        }
+    }
+
+    public DataTable finish() {
+        return finish(null);
+    }
+
+    // Columns that were not selected are left for the source to load
+    public DataTable finish(ColumnSource source) {
+        return new DataTable(requireHeaders(), buildColumns(), rowCount, source);
+    }
+
+    // The rows loaded so far as a table of their own, or null while the sample is being collected
+    // or when columns are skipped
+    public DataTable snapshot() {
+        if (columns == null || selected != null) {
+            return null;
+        }
+        Column[] snapshot = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            snapshot[i] = columns[i].snapshot();
+        }
+        return new DataTable(headers, snapshot, rowCount);
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public long inferenceNanos() {
+        return inferenceNanos;
+    }
+
+    private Class<?>[] inferSchema() {
+        long start = System.nanoTime();
+        Class<?>[] inferred = typeInferrer.inferSchema(sample, headers.size());
+        inferenceNanos += System.nanoTime() - start;
+        return inferred;
+    }
+
+    List<String> requireHeaders() {
+        if (headers == null) {
+            throw new IllegalArgumentException("CSV file is empty or invalid.");
+        }
+        return headers;
+    }
+
+    // Built columns by position; null for the ones not selected
+    Column[] buildColumns() {
+        if (columns == null) {
+            requireHeaders();
+            startColumns(inferSchema());
+        }
+        Column[] built = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] != null) built[i] = columns[i].build();
+        }
+        return built;
+    }
+
+    private void startColumns(Class<?>[] types) {
+        columns = new LoadingColumn[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (selected == null || selected.get(i)) {
+                columns[i] = new LoadingColumn(types[i], scanner, typeInferrer);
+            }
+        }
+        for (String[] record : sample) {
+            append(record);
+        }
+        sample = null;
+    }
+
+    private void append(String[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            LoadingColumn column = columns[i];
+            if (column == null) {
+                continue; // Not selected
+            }
+            String raw = i < values.length ? values[i] : null;
+            if (CellScanner.isNull(raw)) column.addNull();
+            else column.add(raw);
+        }
+        rowCount++;
+    }
+
+    // A column of a chunk, for ParallelCsvParser to stitch
+    LoadingColumn column(int column) {
+        return columns[column];
+    }
+}
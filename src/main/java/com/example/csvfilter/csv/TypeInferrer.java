@@ -2,96 +2,50 @@ package com.example.csvfilter.csv;
 
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 @Component
 public class TypeInferrer {
 
-    private static final int ROWS_TO_SCAN = 100;
+    public static final int ROWS_TO_SCAN = 100;
 
-    public Map<String, Class<?>> inferSchema(List<Map<String, String>> rawRows, List<String> headers) {
-        Map<String, Class<?>> schema = new HashMap<>();
-        for (String header : headers) {
-            schema.put(header, inferColumnType(rawRows, header));
+    // Infers one type per column from a bounded sample of records; null for columns with only nulls.
+    // Later values that don't fit are handled by widening (see TableLoader).
+    public Class<?>[] inferSchema(List<String[]> sample, int columnCount) {
+        Class<?>[] types = new Class<?>[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            types[i] = inferColumnType(sample, i);
         }
-        return schema;
+        return types;
     }
 
-    private Class<?> inferColumnType(List<Map<String, String>> rows, String header) {
-        // Simple type inference. Scan N rows.
-        // Start with most specific (Long) and widen to Double, then String.
-        Class<?> currentBestType = Long.class;
+    private Class<?> inferColumnType(List<String[]> sample, int column) {
+        CellScanner scanner = new CellScanner();
+        Class<?> currentBestType = null;
 
         int rowsScanned = 0;
-        for (Map<String, String> row : rows) {
-            if (rowsScanned++ > ROWS_TO_SCAN) break;
-            String value = row.get(header);
-            if (value == null || value.isBlank() || value.equalsIgnoreCase("null")) {
-                continue; // Nulls don't tell us anything
-            }
-
-            if (currentBestType == Long.class) {
-                if (!canParseLong(value)) {
-                    currentBestType = Double.class; // Try double
-                }
-            }
-
-            if (currentBestType == Double.class) {
-                if (!canParseDouble(value)) {
-                    currentBestType = Boolean.class; // Try boolean
-                }
-            }
-
-            if (currentBestType == Boolean.class) {
-                if (!canParseBoolean(value)) {
-                    currentBestType = String.class; // Give up, it's a string
-                    break; // No wider type
-                }
-            }
+        for (String[] record : sample) {
+            if (rowsScanned++ >= ROWS_TO_SCAN) break;
+            String value = column < record.length ? record[column] : null;
+            currentBestType = wider(currentBestType, scanner.scan(value));
+            if (currentBestType == String.class) break; // No wider type
         }
-        // If all values were null, default to String
-        if (rowsScanned == 0) return String.class;
-
         return currentBestType;
     }
 
-    public Map<String, Object> coerceRow(Map<String, String> row, Map<String, Class<?>> schema) {
-        Map<String, Object> typedRow = new LinkedHashMap<>();
-        for (String header : schema.keySet()) {
-            String value = row.get(header);
-            Class<?> type = schema.get(header);
-            typedRow.put(header, coerceValue(value, type));
+    // Narrowest type that can hold the values of both types; widening is order-independent
+    public Class<?> wider(Class<?> a, Class<?> b) {
+        if (a == null || a == b) {
+            return b;
         }
-        return typedRow;
-    }
-
-    private Object coerceValue(String value, Class<?> type) {
-        if (value == null || value.isBlank() || value.equalsIgnoreCase("null")) {
-            return null;
+        if (b == null) {
+            return a;
         }
-        try {
-            if (type == Long.class) {
-                return Long.parseLong(value);
-            }
-            if (type == Double.class) {
-                return Double.parseDouble(value);
-            }
-            if (type == Boolean.class) {
-                return parseBoolean(value);
-            }
-        } catch (NumberFormatException e) {
-            // This can happen if inference was wrong (e.g. zip codes)
-            return null; // Treat un-parseable data as null
+        if (isNumeric(a) && isNumeric(b)) {
+            return Double.class;
         }
-        return value; // Default to string
+        return String.class;
     }
 
-    // Helper methods for inference
-    private boolean canParseLong(String s) { try { Long.parseLong(s); return true; } catch (NumberFormatException e) { return false; } }
-    private boolean canParseDouble(String s) { try { Double.parseDouble(s); return true; } catch (NumberFormatException e) { return false; } }
-    private boolean canParseBoolean(String s) { return s.equalsIgnoreCase("true") || s.equalsIgnoreCase("false"); }
-    private boolean parseBoolean(String s) { return s.equalsIgnoreCase("true"); }
-}
\ No newline at end of file
+    private boolean isNumeric(Class<?> type) { return type == Long.class || type == Double.class; }
+}
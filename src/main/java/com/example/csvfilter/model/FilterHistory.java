@@ -0,0 +1,35 @@
+package com.example.csvfilter.model;
+
+import com.example.csvfilter.parser.ast.Expression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// The session's most recently computed filters, as parsed expressions under their result cache
+// keys, newest first. A new filter that narrows one of them is evaluated over its cached rows.
+public class FilterHistory {
+    static final int MAX_ENTRIES = 16;
+
+    public record Entry(String key, Expression filter) {
+    }
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    public synchronized void add(String key, Expression filter) {
+        entries.removeIf(entry -> entry.key().equals(key));
+        entries.addFirst(new Entry(key, filter));
+        if (entries.size() > MAX_ENTRIES) {
+            entries.removeLast();
+        }
+    }
+
+    public synchronized List<Entry> entries() {
+        return new ArrayList<>(entries);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
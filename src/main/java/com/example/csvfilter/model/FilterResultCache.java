@@ -0,0 +1,61 @@
+package com.example.csvfilter.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// LRU cache of filter results (row indexes, possibly in sorted order) for one session.
+// Entries are evicted least-recently-used first once their total size exceeds the budget.
+public class FilterResultCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public FilterResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized int[] get(String key) {
+        return entries.get(key);
+    }
+
+    // Like get, but does not count as a use for eviction
+    public synchronized int[] peek(String key) {
+        for (Map.Entry<String, int[]> entry : entries.entrySet()) {
+            if (entry.getKey().equals(key)) return entry.getValue();
+        }
+        return null;
+    }
+
+    public synchronized void put(String key, int[] rows) {
+        long bytes = sizeOf(key, rows);
+        if (bytes > maxBytes) {
+            return; // Would evict everything else and still not fit
+        }
+        int[] previous = entries.put(key, rows);
+        if (previous != null) {
+            usedBytes -= sizeOf(key, previous);
+        }
+        usedBytes += bytes;
+
+        Iterator<Map.Entry<String, int[]>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, int[]> entry = eldest.next();
+            usedBytes -= sizeOf(entry.getKey(), entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    private static long sizeOf(String key, int[] rows) {
+        return 64 + 2L * key.length() + 4L * rows.length;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.csvfilter.model;
+
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.SortIndex;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sort indexes of the current table, keyed by column index. An index costs a full sort to build,
+// so it is only built once a column has been sorted on more than once.
+public class SortIndexCache {
+    static final int REQUESTS_BEFORE_BUILD = 2;
+
+    private final Map<Integer, SortIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> requests = new ConcurrentHashMap<>();
+
+    public SortIndex get(int column) {
+        return indexes.get(column);
+    }
+
+    // Counts a sort request on the column and returns its index if one exists or is now worth building
+    public SortIndex request(DataTable table, int column, boolean force) {
+        int count = requests.merge(column, 1, Integer::sum);
+        if (!force && count < REQUESTS_BEFORE_BUILD) {
+            return indexes.get(column);
+        }
+        return indexes.computeIfAbsent(column, c -> SortIndex.build(table.column(c)));
+    }
+
+    public long usedBytes() {
+        return indexes.values().stream().mapToLong(SortIndex::estimatedBytes).sum();
+    }
+
+    public void clear() {
+        indexes.clear();
+        requests.clear();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.csvfilter.model;
+
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.StringColumn;
+import com.example.csvfilter.table.StringIndex;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// String column indexes of the current table, keyed by column index. The parts of each index
+// (hash, sorted dictionary, trigrams) are built on the first filter that needs them.
+public class StringIndexCache {
+    private final Map<Integer, StringIndex> indexes = new ConcurrentHashMap<>();
+
+    public StringIndex get(DataTable table, int column) {
+        return indexes.computeIfAbsent(column, c -> new StringIndex((StringColumn) table.column(c)));
+    }
+
+    public long usedBytes() {
+        long bytes = 0;
+        for (StringIndex index : indexes.values()) {
+            for (StringIndex.Kind kind : StringIndex.Kind.values()) bytes += index.estimatedBytes(kind);
+        }
+        return bytes;
+    }
+
+    public void clear() {
+        indexes.clear();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.csvfilter.model;
+
+import com.example.csvfilter.table.DataTable;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+// How a session holds a table that storage may move while the session is idle. Each access
+// touches the lease, so that tables can be evicted least recently used first; when the table is
+// moved, the listener gets the table to use from then on. Closing the lease releases the table.
+public interface TableLease extends Closeable {
+
+    void touch();
+
+    void onMove(Consumer<DataTable> listener);
+}
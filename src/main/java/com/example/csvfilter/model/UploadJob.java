@@ -0,0 +1,92 @@
+package com.example.csvfilter.model;
+
+import com.example.csvfilter.table.DataTable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// An upload loading in the background. The loading thread reports bytes and rows as it goes and
+// publishes the rows loaded so far as snapshot tables, which the session's requests read to serve
+// pages before the whole file is in.
+public class UploadJob {
+
+    public enum State { RUNNING, DONE, FAILED }
+
+    // What the progress endpoint reports; etaSeconds is null until it can be estimated
+    public record Progress(String id, State state, long bytesRead, long totalBytes, long rows,
+                           Long etaSeconds, String error) {
+    }
+
+    private final String id;
+    private final long totalBytes;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile long rows;
+    private volatile DataTable snapshot;
+    private volatile State state = State.RUNNING;
+    private volatile String error;
+
+    public UploadJob(String id, long totalBytes) {
+        this.id = id;
+        this.totalBytes = totalBytes;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    public String error() {
+        return error;
+    }
+
+    // The latest published rows; null until the column types are known
+    public DataTable snapshot() {
+        return snapshot;
+    }
+
+    public void addBytes(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public void publish(DataTable snapshot) {
+        this.snapshot = snapshot;
+        this.rows = snapshot.rowCount();
+    }
+
+    public void finish(long rows) {
+        this.rows = rows;
+        this.snapshot = null;
+        this.state = State.DONE;
+    }
+
+    // Also used to cancel: the loading thread stops at its next record
+    public void fail(String error) {
+        if (state != State.RUNNING) {
+            return;
+        }
+        this.error = error;
+        this.snapshot = null;
+        this.state = State.FAILED;
+    }
+
+    public Progress progress() {
+        long read = bytesRead.get();
+        Long eta = null;
+        if (state == State.RUNNING && read > 0) {
+            long elapsed = System.nanoTime() - startNanos;
+            eta = (long) ((double) elapsed * Math.max(0, totalBytes - read) / read / 1e9);
+        }
+        return new Progress(id, state, read, totalBytes, rows, eta, error);
+    }
+}
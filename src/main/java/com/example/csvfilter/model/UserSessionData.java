@@ -1,48 +1,203 @@
 package com.example.csvfilter.model;
 
+import com.example.csvfilter.table.DataTable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.annotation.SessionScope;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @SessionScope
 public class UserSessionData implements Serializable {
-    private List<Map<String, Object>> allRows;
-    private List<String> headers;
-    private Map<String, Class<?>> schema;
+    private static final AtomicLong GENERATIONS = new AtomicLong();
 
-    public void setData(List<Map<String, Object>> allRows, List<String> headers, Map<String, Class<?>> schema) {
-        this.allRows = allRows;
-        this.headers = headers;
-        this.schema = schema;
+    // Volatile, as storage may swap it from another thread; see TableLease
+    private volatile DataTable table;
+    // Changes whenever the table is set or cleared, but not when storage moves it; written after
+    // the table, so a reader that reads it first never pairs a new generation with an old table
+    private volatile long generation;
+    // Gives back the table's heap reservation or deletes its mapped file; null when there is none
+    private transient Closeable storage;
+    // The storage as a lease, when storage may move the table; see TableLease
+    private transient volatile TableLease lease;
+
+    @Value("${csvfilter.cache.max-bytes-per-session:67108864}")
+    private long resultCacheBytes = 64L * 1024 * 1024;
+    private transient FilterResultCache resultCache;
+    private transient SortIndexCache sortIndexes;
+    private transient StringIndexCache stringIndexes;
+    private transient FilterHistory filterHistory;
+    // The latest upload loading in the background, kept once done so its progress can be read
+    private transient volatile UploadJob upload;
+
+    public void setData(DataTable table) {
+        setData(table, null);
+    }
+
+    // Under the lock moved() takes, so a move is applied to the table and lease it belongs to. The
+    // listener comes last: storage may deliver a move at once, on this thread or another.
+    public synchronized void setData(DataTable table, Closeable storage) {
+        releaseStorage();
+        this.table = table;
+        this.generation = GENERATIONS.incrementAndGet();
+        this.storage = storage;
+        this.lease = storage instanceof TableLease held ? held : null;
+        getResultCache().clear();
+        getSortIndexes().clear();
+        getStringIndexes().clear();
+        getFilterHistory().clear();
+        TableLease held = lease;
+        if (held != null) {
+            held.onMove(moved -> moved(held, moved));
+        }
+    }
+
+    public DataTable getTable() {
+        TableLease held = lease;
+        if (held != null) {
+            held.touch();
+        }
+        return table;
+    }
+
+    // Identifies the table getTable() returns, as long as it is the session's; read it first
+    public long getGeneration() {
+        return generation;
     }
 
-    public List<Map<String, Object>> getAllRows() {
-        return allRows;
+    // Storage moved the table, e.g. out of the heap of an idle session. Results and indexes are
+    // dropped with the old table, which they would otherwise keep reachable.
+    private synchronized void moved(TableLease from, DataTable to) {
+        if (lease != from) {
+            return; // The session has dropped that table meanwhile
+        }
+        table = to;
+        getResultCache().clear();
+        getSortIndexes().clear();
+        getStringIndexes().clear();
+        getFilterHistory().clear();
     }
 
+    // Headers, schema and column names are those of the rows loaded so far while an upload runs
     public List<String> getHeaders() {
-        return headers;
+        DataTable visible = visibleTable();
+        return visible != null ? visible.headers() : null;
     }
 
     public Map<String, Class<?>> getSchema() {
-        return schema;
+        DataTable visible = visibleTable();
+        return visible != null ? visible.schema() : null;
     }
 
     public Set<String> getColumnNames() {
-        return schema != null ? schema.keySet() : Set.of();
+        DataTable visible = visibleTable();
+        return visible != null ? visible.schema().keySet() : Set.of();
+    }
+
+    private DataTable visibleTable() {
+        UploadJob current = upload;
+        return current != null && current.isRunning() ? current.snapshot() : table;
+    }
+
+    public UploadJob getUpload() {
+        return upload;
+    }
+
+    public boolean isLoading() {
+        UploadJob current = upload;
+        return current != null && current.isRunning();
+    }
+
+    // Drops the current table (and cancels a running upload) for a new upload
+    public synchronized void startUpload(UploadJob job) {
+        clearData();
+        upload = job;
+    }
+
+    // Installs the table of a finished upload, unless the session has moved on since it started
+    public synchronized boolean completeUpload(UploadJob job, DataTable table, Closeable storage) {
+        if (upload != job || !job.isRunning()) {
+            return false;
+        }
+        setData(table, storage);
+        job.finish(table.rowCount()); // After the table is set, so readers that see DONE see the table
+        return true;
+    }
+
+    // Results computed from the current table; emptied whenever the table changes
+    public synchronized FilterResultCache getResultCache() {
+        if (resultCache == null) {
+            resultCache = new FilterResultCache(resultCacheBytes);
+        }
+        return resultCache;
+    }
+
+    // Per-column sort permutations of the current table, built on demand
+    public synchronized SortIndexCache getSortIndexes() {
+        if (sortIndexes == null) {
+            sortIndexes = new SortIndexCache();
+        }
+        return sortIndexes;
+    }
+
+    // Per-column string indexes of the current table, built on demand
+    public synchronized StringIndexCache getStringIndexes() {
+        if (stringIndexes == null) {
+            stringIndexes = new StringIndexCache();
+        }
+        return stringIndexes;
+    }
+
+    // Filters recently computed on the current table, for refining them
+    public synchronized FilterHistory getFilterHistory() {
+        if (filterHistory == null) {
+            filterHistory = new FilterHistory();
+        }
+        return filterHistory;
     }
 
     public boolean hasData() {
-        return allRows != null && !allRows.isEmpty();
+        return table != null && table.rowCount() > 0;
+    }
+
+    public synchronized void clearData() {
+        UploadJob current = upload;
+        if (current != null) {
+            current.fail("Upload cancelled");
+            upload = null;
+        }
+        releaseStorage();
+        this.table = null;
+        this.generation = GENERATIONS.incrementAndGet();
+        getResultCache().clear();
+        getSortIndexes().clear();
+        getStringIndexes().clear();
+        getFilterHistory().clear();
+    }
+
+    // Runs when the session expires or is invalidated
+    @PreDestroy
+    public void destroy() {
+        clearData();
     }
 
-    public void clearData() {
-        this.allRows = null;
-        this.headers = null;
-        this.schema = null;
+    private void releaseStorage() {
+        lease = null;
+        if (storage == null) {
+            return;
+        }
+        try {
+            storage.close();
+        } catch (IOException e) {
+            // Best effort: a leftover temp file does not affect the application
+        }
+        storage = null;
     }
-}
\ No newline at end of file
+}
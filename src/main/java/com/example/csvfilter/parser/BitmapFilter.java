@@ -0,0 +1,19 @@
+package com.example.csvfilter.parser;
+
+// A compiled filter that tests a run of rows at once: bit i of words[i >> 6] is set when row
+// from + i matches. Runs start at a multiple of 64 and hold at most ZoneMap.BLOCK_SIZE rows.
+// Implementations hold no per-run state, so one instance can be shared across threads.
+public interface BitmapFilter {
+
+    // Writes a bit for every row in [from, to); bits past `to` in the last word are cleared
+    void select(int from, int to, long[] words);
+
+    // Clears the bits of the rows in [from, to) that are set in `words` but do not match
+    default void refine(int from, int to, long[] words) {
+        long[] matches = new long[words.length];
+        select(from, to, matches);
+        for (int w = 0; w < words.length; w++) {
+            words[w] &= matches[w];
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.csvfilter.parser;
+
+// A compiled filter at block granularity: classifies block `block` (rows
+// block * ZoneMap.BLOCK_SIZE onwards) without looking at its rows. SOME means the rows must be tested.
+@FunctionalInterface
+public interface BlockFilter {
+    BlockMatch match(int block);
+
+    static BlockFilter constant(BlockMatch match) {
+        return block -> match;
+    }
+}
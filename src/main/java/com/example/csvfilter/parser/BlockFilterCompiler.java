@@ -0,0 +1,164 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.*;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.DoubleColumn;
+import com.example.csvfilter.table.LongColumn;
+import com.example.csvfilter.table.ZoneMap;
+
+import static com.example.csvfilter.parser.Values.*;
+
+// Turns a parsed filter into a BlockFilter over the zone maps of the table's numeric columns.
+// Mirrors FilterCompiler: a block is NONE or ALL only if the row predicate FilterCompiler builds
+// would return false or true for every row in it. Anything else is SOME.
+public class BlockFilterCompiler {
+
+    private final DataTable table;
+
+    public BlockFilterCompiler(DataTable table) {
+        this.table = table;
+    }
+
+    public BlockFilter compile(Expression expr) {
+        return truthy(expr.accept(new OperandBuilder()));
+    }
+
+    private sealed interface Operand permits Constant, ColumnRef, Computed {}
+
+    private record Constant(Object value) implements Operand {}
+
+    // A numeric column with its zone map, or any other column with a null one
+    private record ColumnRef(Column column, ZoneMap zoneMap) implements Operand {}
+
+    private record Computed(BlockFilter filter) implements Operand {}
+
+    private class OperandBuilder implements Expression.Visitor<Operand> {
+        @Override
+        public Operand visitBinaryExpr(BinaryExpression expr) {
+            Operand left = expr.left().accept(this);
+            Operand right = expr.right().accept(this);
+            return new Computed(compileBinary(left, expr.operator().type(), right));
+        }
+
+        @Override
+        public Operand visitGroupingExpr(GroupingExpression expr) {
+            return expr.expression().accept(this);
+        }
+
+        @Override
+        public Operand visitLiteralExpr(LiteralExpression expr) {
+            return new Constant(expr.value());
+        }
+
+        @Override
+        public Operand visitVariableExpr(VariableExpression expr) {
+            Column column = table.column(table.columnIndex(expr.name().lexeme()));
+            if (column instanceof LongColumn c) return new ColumnRef(c, c.zoneMap());
+            if (column instanceof DoubleColumn c) return new ColumnRef(c, c.zoneMap());
+            return new ColumnRef(column, null);
+        }
+    }
+
+    private BlockFilter compileBinary(Operand left, TokenType operator, Operand right) {
+        switch (operator) {
+            case AND: {
+                BlockFilter l = truthy(left), r = truthy(right);
+                return block -> {
+                    BlockMatch match = l.match(block);
+                    return match == BlockMatch.NONE ? match : match.and(r.match(block));
+                };
+            }
+            case OR: {
+                BlockFilter l = truthy(left), r = truthy(right);
+                return block -> {
+                    BlockMatch match = l.match(block);
+                    return match == BlockMatch.ALL ? match : match.or(r.match(block));
+                };
+            }
+            case EQUAL_EQUAL: return equality(left, right);
+            case BANG_EQUAL: {
+                BlockFilter equal = equality(left, right);
+                return block -> equal.match(block).not();
+            }
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL: return comparison(left, operator, right);
+            default: return BlockFilter.constant(BlockMatch.SOME);
+        }
+    }
+
+    private BlockFilter truthy(Operand operand) {
+        if (operand instanceof Constant c) {
+            return constant(isTruthy(c.value()));
+        }
+        if (operand instanceof ColumnRef ref && ref.zoneMap() != null) {
+            BlockFilter nulls = nulls(ref.zoneMap());
+            return block -> nulls.match(block).not(); // A number is truthy unless it is null
+        }
+        if (operand instanceof Computed computed) {
+            return computed.filter();
+        }
+        return BlockFilter.constant(BlockMatch.SOME);
+    }
+
+    private BlockFilter equality(Operand left, Operand right) {
+        if (left instanceof Constant && !(right instanceof Constant)) {
+            return equality(right, left);
+        }
+        if (left instanceof Constant l && right instanceof Constant r) {
+            return constant(isEqual(l.value(), r.value()));
+        }
+        if (left instanceof ColumnRef ref && ref.zoneMap() != null && right instanceof Constant c) {
+            ZoneMap zones = ref.zoneMap();
+            if (c.value() == null) {
+                return nulls(zones);
+            }
+            if (c.value() instanceof Number n) {
+                double literal = n.doubleValue();
+                // Rows compare with ==, so NaN equals nothing and -0.0 equals 0.0
+                return block -> {
+                    int nulls = zones.nullCount(block);
+                    if (nulls == zones.rows(block)) return BlockMatch.NONE;
+                    double min = zones.min(block), max = zones.max(block);
+                    if (literal < min || literal > max || literal != literal) return BlockMatch.NONE;
+                    return nulls == 0 && min == literal && max == literal ? BlockMatch.ALL : BlockMatch.SOME;
+                };
+            }
+        }
+        return BlockFilter.constant(BlockMatch.SOME);
+    }
+
+    private BlockFilter comparison(Operand left, TokenType operator, Operand right) {
+        if (left instanceof Constant && !(right instanceof Constant)) {
+            return comparison(right, FilterCompiler.flip(operator), left);
+        }
+        if (left instanceof ColumnRef ref && ref.zoneMap() != null
+                && right instanceof Constant c && c.value() instanceof Number n) {
+            ZoneMap zones = ref.zoneMap();
+            double literal = n.doubleValue();
+            BlockMatch whenNull = FilterCompiler.matches(operator, -1) ? BlockMatch.ALL : BlockMatch.NONE;
+            return block -> {
+                int nulls = zones.nullCount(block);
+                if (nulls == zones.rows(block)) return whenNull;
+                // Rows compare with Double.compare, a total order, so min and max bound every row
+                boolean minMatches = FilterCompiler.matches(operator, Double.compare(zones.min(block), literal));
+                boolean maxMatches = FilterCompiler.matches(operator, Double.compare(zones.max(block), literal));
+                BlockMatch values = minMatches && maxMatches ? BlockMatch.ALL
+                        : !minMatches && !maxMatches ? BlockMatch.NONE : BlockMatch.SOME;
+                return nulls == 0 || values == whenNull ? values : BlockMatch.SOME;
+            };
+        }
+        return BlockFilter.constant(BlockMatch.SOME);
+    }
+
+    // ALL where every row is null, NONE where none is
+    private static BlockFilter nulls(ZoneMap zones) {
+        return block -> {
+            int nulls = zones.nullCount(block);
+            return nulls == 0 ? BlockMatch.NONE : nulls == zones.rows(block) ? BlockMatch.ALL : BlockMatch.SOME;
+        };
+    }
+
+    private static BlockFilter constant(boolean value) {
+        return BlockFilter.constant(value ? BlockMatch.ALL : BlockMatch.NONE);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.csvfilter.parser;
+
+// What block statistics prove about a filter for every row of a block. Ordered so that
+// AND is the minimum and OR the maximum of two results.
+public enum BlockMatch {
+    NONE, SOME, ALL;
+
+    public BlockMatch and(BlockMatch other) {
+        return compareTo(other) <= 0 ? this : other;
+    }
+
+    public BlockMatch or(BlockMatch other) {
+        return compareTo(other) >= 0 ? this : other;
+    }
+
+    public BlockMatch not() {
+        return this == NONE ? ALL : this == ALL ? NONE : SOME;
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.*;
+import com.example.csvfilter.parser.exception.EvaluationException;
+import com.example.csvfilter.table.BooleanColumn;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.DoubleColumn;
+import com.example.csvfilter.table.LongColumn;
+import com.example.csvfilter.table.StringColumn;
+
+import java.util.function.BiPredicate;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import static com.example.csvfilter.parser.Values.*;
+
+// Turns a parsed filter into a tree of RowPredicate closures, specialized for the column types
+// of one table. Column lookups, literal lowering and type checks happen once here instead of per row.
+// Semantics match the Evaluator, except that type errors are reported at compile time.
+// Tests against a literal on a low-cardinality string column are evaluated per dictionary entry.
+public class FilterCompiler {
+
+    private final DataTable table;
+
+    public FilterCompiler(DataTable table) {
+        this.table = table;
+    }
+
+    public RowPredicate compile(Expression expr) {
+        return truthy(expr.accept(new OperandBuilder()));
+    }
+
+    // A sub-expression, as far as it is known at compile time
+    private sealed interface Operand permits Constant, ColumnRef, Computed {}
+
+    private record Constant(Object value) implements Operand {}
+
+    private record ColumnRef(Column column) implements Operand {}
+
+    // The result of a nested operator, which is always a non-null Boolean
+    private record Computed(RowPredicate predicate) implements Operand {}
+
+    private class OperandBuilder implements Expression.Visitor<Operand> {
+        @Override
+        public Operand visitBinaryExpr(BinaryExpression expr) {
+            Operand left = expr.left().accept(this);
+            Operand right = expr.right().accept(this);
+            return new Computed(compileBinary(left, expr.operator().type(), right));
+        }
+
+        @Override
+        public Operand visitGroupingExpr(GroupingExpression expr) {
+            return expr.expression().accept(this);
+        }
+
+        @Override
+        public Operand visitLiteralExpr(LiteralExpression expr) {
+            return new Constant(expr.value());
+        }
+
+        @Override
+        public Operand visitVariableExpr(VariableExpression expr) {
+            int index = table.columnIndex(expr.name().lexeme());
+            if (index < 0) {
+                throw new EvaluationException("Unknown column '" + expr.name().lexeme() + "'");
+            }
+            return new ColumnRef(table.column(index));
+        }
+    }
+
+    private RowPredicate compileBinary(Operand left, TokenType operator, Operand right) {
+        switch (operator) {
+            case AND: {
+                RowPredicate l = truthy(left), r = truthy(right);
+                return row -> l.test(row) && r.test(row);
+            }
+            case OR: {
+                RowPredicate l = truthy(left), r = truthy(right);
+                return row -> l.test(row) || r.test(row);
+            }
+            case EQUAL_EQUAL: return equality(left, right);
+            case BANG_EQUAL: {
+                RowPredicate equal = equality(left, right);
+                return row -> !equal.test(row);
+            }
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL: return comparison(left, operator, right);
+            case CONTAINS, STARTS_WITH, ENDS_WITH: return stringOp(left, operator, right);
+            default:
+                throw new EvaluationException("Unexpected operator: " + operator);
+        }
+    }
+
+    private RowPredicate truthy(Operand operand) {
+        if (operand instanceof Constant c) {
+            return RowPredicate.constant(isTruthy(c.value()));
+        }
+        if (operand instanceof ColumnRef ref) {
+            Column column = ref.column();
+            if (column instanceof BooleanColumn b) {
+                return row -> !b.isNull(row) && b.getBoolean(row);
+            }
+            return row -> !column.isNull(row);
+        }
+        return ((Computed) operand).predicate();
+    }
+
+    // --- Equality ---
+
+    private RowPredicate equality(Operand left, Operand right) {
+        if (left instanceof Constant && !(right instanceof Constant)) {
+            return equality(right, left); // isEqual is symmetric
+        }
+        if (left instanceof Constant l && right instanceof Constant r) {
+            return RowPredicate.constant(isEqual(l.value(), r.value()));
+        }
+        if (left instanceof ColumnRef ref && right instanceof Constant c) {
+            Column column = ref.column();
+            Object value = c.value();
+            if (value == null) {
+                return column::isNull;
+            }
+            if (column instanceof LongColumn col && value instanceof Number n) {
+                double literal = n.doubleValue();
+                return row -> !col.isNull(row) && col.getLong(row) == literal;
+            }
+            if (column instanceof DoubleColumn col && value instanceof Number n) {
+                double literal = n.doubleValue();
+                return row -> !col.isNull(row) && col.getDouble(row) == literal;
+            }
+            if (column instanceof StringColumn col && value instanceof String literal) {
+                if (col.isLowCardinality()) {
+                    return byCode(col, false, v -> v.equalsIgnoreCase(literal));
+                }
+                return row -> {
+                    String v = col.getString(row);
+                    return v != null && v.equalsIgnoreCase(literal);
+                };
+            }
+            if (column instanceof BooleanColumn col && value instanceof Boolean b) {
+                boolean literal = b;
+                return row -> !col.isNull(row) && col.getBoolean(row) == literal;
+            }
+            if (!(Number.class.isAssignableFrom(column.type()) && value instanceof Number)) {
+                return RowPredicate.constant(false); // Values of different types are never equal
+            }
+        }
+        return generic(left, right, Values::isEqual);
+    }
+
+    // --- Ordering ---
+
+    private RowPredicate comparison(Operand left, TokenType operator, Operand right) {
+        checkComparable(typeOf(left), typeOf(right));
+        if (left instanceof Constant && !(right instanceof Constant)) {
+            return comparison(right, flip(operator), left);
+        }
+        if (left instanceof Constant l && right instanceof Constant r) {
+            return RowPredicate.constant(matches(operator, compare(l.value(), r.value())));
+        }
+        if (left instanceof ColumnRef ref && right instanceof Constant c && c.value() != null) {
+            Column column = ref.column();
+            boolean whenNull = matches(operator, -1); // Nulls are always "less"
+            if (column instanceof LongColumn col) {
+                double literal = ((Number) c.value()).doubleValue();
+                return switch (operator) {
+                    case GREATER -> row -> col.isNull(row) ? whenNull : Double.compare(col.getLong(row), literal) > 0;
+                    case GREATER_EQUAL -> row -> col.isNull(row) ? whenNull : Double.compare(col.getLong(row), literal) >= 0;
+                    case LESS -> row -> col.isNull(row) ? whenNull : Double.compare(col.getLong(row), literal) < 0;
+                    default -> row -> col.isNull(row) ? whenNull : Double.compare(col.getLong(row), literal) <= 0;
+                };
+            }
+            if (column instanceof DoubleColumn col) {
+                double literal = ((Number) c.value()).doubleValue();
+                return switch (operator) {
+                    case GREATER -> row -> col.isNull(row) ? whenNull : Double.compare(col.getDouble(row), literal) > 0;
+                    case GREATER_EQUAL -> row -> col.isNull(row) ? whenNull : Double.compare(col.getDouble(row), literal) >= 0;
+                    case LESS -> row -> col.isNull(row) ? whenNull : Double.compare(col.getDouble(row), literal) < 0;
+                    default -> row -> col.isNull(row) ? whenNull : Double.compare(col.getDouble(row), literal) <= 0;
+                };
+            }
+            if (column instanceof StringColumn col) {
+                String literal = (String) c.value();
+                if (col.isLowCardinality()) {
+                    return byCode(col, whenNull, v -> matches(operator, v.compareToIgnoreCase(literal)));
+                }
+                return row -> {
+                    String v = col.getString(row);
+                    return v == null ? whenNull : matches(operator, v.compareToIgnoreCase(literal));
+                };
+            }
+        }
+        return generic(left, right, (a, b) -> matches(operator, compare(a, b)));
+    }
+
+    private static void checkComparable(Class<?> left, Class<?> right) {
+        if (left == null || right == null) return; // null literals compare with anything
+        boolean numbers = Number.class.isAssignableFrom(left) && Number.class.isAssignableFrom(right);
+        boolean strings = left == String.class && right == String.class;
+        if (!numbers && !strings) {
+            throw new EvaluationException("Cannot compare " + left.getSimpleName() + " with " + right.getSimpleName());
+        }
+    }
+
+    static boolean matches(TokenType operator, int cmp) {
+        return switch (operator) {
+            case GREATER -> cmp > 0;
+            case GREATER_EQUAL -> cmp >= 0;
+            case LESS -> cmp < 0;
+            case LESS_EQUAL -> cmp <= 0;
+            default -> throw new EvaluationException("Unexpected operator: " + operator);
+        };
+    }
+
+    static TokenType flip(TokenType operator) {
+        return switch (operator) {
+            case GREATER -> TokenType.LESS;
+            case GREATER_EQUAL -> TokenType.LESS_EQUAL;
+            case LESS -> TokenType.GREATER;
+            case LESS_EQUAL -> TokenType.GREATER_EQUAL;
+            default -> operator;
+        };
+    }
+
+    // --- contains, startsWith, endsWith ---
+
+    private RowPredicate stringOp(Operand left, TokenType operator, Operand right) {
+        if (left instanceof Constant c && c.value() == null) {
+            return RowPredicate.constant(false); // "null" cannot contain anything
+        }
+        if (typeOf(left) != String.class || typeOf(right) != String.class) {
+            throw new EvaluationException(STRING_OP_ERROR);
+        }
+        if (left instanceof ColumnRef ref && right instanceof Constant c) {
+            StringColumn col = (StringColumn) ref.column();
+            String lower = ((String) c.value()).toLowerCase(); // Lowered once, not per row
+            if (col.isLowCardinality()) {
+                return byCode(col, false, switch (operator) {
+                    case CONTAINS -> v -> containsIgnoreCase(v, lower);
+                    case STARTS_WITH -> v -> startsWithIgnoreCase(v, lower);
+                    default -> v -> endsWithIgnoreCase(v, lower);
+                });
+            }
+            return switch (operator) {
+                case CONTAINS -> row -> {
+                    String v = col.getString(row);
+                    return v != null && containsIgnoreCase(v, lower);
+                };
+                case STARTS_WITH -> row -> {
+                    String v = col.getString(row);
+                    return v != null && startsWithIgnoreCase(v, lower);
+                };
+                default -> row -> {
+                    String v = col.getString(row);
+                    return v != null && endsWithIgnoreCase(v, lower);
+                };
+            };
+        }
+        BiPredicate<String, String> op = switch (operator) {
+            case CONTAINS -> String::contains;
+            case STARTS_WITH -> String::startsWith;
+            default -> String::endsWith;
+        };
+        return generic(left, right, (a, b) -> checkStringOp(a, b, op));
+    }
+
+    // Runs `test` once per dictionary entry; rows then only look up their code
+    private static RowPredicate byCode(StringColumn col, boolean whenNull, Predicate<String> test) {
+        String[] dictionary = col.dictionary();
+        boolean[] matching = new boolean[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            matching[code] = test.test(dictionary[code]);
+        }
+        return row -> {
+            int code = col.code(row);
+            return code < 0 ? whenNull : matching[code];
+        };
+    }
+
+    // --- Fallback for anything without a specialized form, e.g. comparing two columns ---
+
+    private RowPredicate generic(Operand left, Operand right, BiPredicate<Object, Object> test) {
+        IntFunction<Object> l = accessor(left);
+        IntFunction<Object> r = accessor(right);
+        return row -> {
+            try {
+                return test.test(l.apply(row), r.apply(row));
+            } catch (EvaluationException e) {
+                return false;
+            }
+        };
+    }
+
+    private static IntFunction<Object> accessor(Operand operand) {
+        if (operand instanceof Constant c) {
+            Object value = c.value();
+            return row -> value;
+        }
+        if (operand instanceof ColumnRef ref) {
+            return ref.column()::get;
+        }
+        RowPredicate predicate = ((Computed) operand).predicate();
+        return predicate::test;
+    }
+
+    // Static type of an operand; null for the null literal
+    private static Class<?> typeOf(Operand operand) {
+        if (operand instanceof Constant c) {
+            return c.value() == null ? null : c.value().getClass();
+        }
+        if (operand instanceof ColumnRef ref) {
+            return ref.column().type();
+        }
+        return Boolean.class;
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.*;
+import com.example.csvfilter.parser.exception.EvaluationException;
+import com.example.csvfilter.table.BooleanColumn;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.ColumnStats;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.StringColumn;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.csvfilter.parser.Values.isTruthy;
+
+// Rewrites a parsed filter into the form it is evaluated in, between the Parser and the
+// FilterCompiler. Parentheses are dropped, AND and OR chains flattened, and operators on literals
+// only folded to their value. A chain that a literal decides (`false AND x`) becomes that literal;
+// literals that change nothing (`true AND x`) are dropped where only the truth of the chain counts.
+// The terms of a chain are then ordered by estimated cost per row and selectivity, so that cheap,
+// selective terms cut AND chains short before expensive ones run: by cost / (1 - selectivity) for
+// AND, by cost / selectivity for OR. Estimates come from ColumnStats and are only used for ordering;
+// the result is still a plain Expression, which selects the same rows as the original.
+public final class FilterPlanner {
+
+    private static final double DEFAULT_SELECTIVITY = 0.5;
+    private static final double EQUALITY_SELECTIVITY = 0.1;
+    private static final double RANGE_SELECTIVITY = 1.0 / 3;
+    private static final double MATCH_SELECTIVITY = 0.25;
+
+    // Rough cost per row, relative to reading one primitive value. Low-cardinality string columns
+    // test each dictionary entry once at compile time, so rows only look up a code.
+    private static final double COLUMN_COST = 1;
+    private static final double STRING_EQUALITY_COST = 2;
+    private static final double STRING_MATCH_COST = 3;
+    private static final double CONTAINS_COST = 8;
+    private static final double GENERIC_COST = 5;
+
+    public record Estimate(double cost, double selectivity) {
+    }
+
+    // The rewritten filter, its estimate, and a description of it
+    public record Plan(Expression expression, Estimate estimate, String explain) {
+    }
+
+    private final DataTable table;
+    private final FilterCompiler compiler;
+    private final Map<Expression, Estimate> estimates = new IdentityHashMap<>();
+
+    private FilterPlanner(DataTable table) {
+        this.table = table;
+        this.compiler = new FilterCompiler(table);
+    }
+
+    public static Plan plan(DataTable table, Expression filter) {
+        FilterPlanner planner = new FilterPlanner(table);
+        Expression planned = planner.plan(filter, true);
+        StringBuilder explain = new StringBuilder();
+        planner.explain(planned, 0, explain);
+        return new Plan(planned, planner.estimates.get(planned), explain.toString());
+    }
+
+    // `truthy` is set where only the truth of the result counts: the whole filter and the terms of
+    // AND and OR, but not the operands of other operators
+    private Expression plan(Expression expr, boolean truthy) {
+        if (expr instanceof GroupingExpression g) {
+            return plan(g.expression(), truthy);
+        }
+        if (expr instanceof LiteralExpression l) {
+            return estimated(l, new Estimate(0, isTruthy(l.value()) ? 1 : 0));
+        }
+        if (expr instanceof VariableExpression v) {
+            return estimated(v, variable(v));
+        }
+        BinaryExpression binary = (BinaryExpression) expr;
+        TokenType operator = binary.operator().type();
+        if (operator == TokenType.AND || operator == TokenType.OR) {
+            return chain(binary, truthy);
+        }
+        BinaryExpression term = new BinaryExpression(plan(binary.left(), false), binary.operator(), plan(binary.right(), false));
+        if (term.left() instanceof LiteralExpression && term.right() instanceof LiteralExpression) {
+            Boolean value = fold(term);
+            if (value != null) {
+                return estimated(new LiteralExpression(value), new Estimate(0, value ? 1 : 0));
+            }
+        }
+        return estimated(term, term(term));
+    }
+
+    private Expression chain(BinaryExpression expr, boolean truthy) {
+        boolean and = expr.operator().type() == TokenType.AND;
+        List<Expression> terms = new ArrayList<>();
+        for (Expression operand : operands(expr, expr.operator().type())) {
+            Expression term = plan(operand, true);
+            if (term instanceof LiteralExpression l) {
+                if (isTruthy(l.value()) != and) {
+                    compiler.compile(expr); // The other terms never run, but are still type-checked
+                    return estimated(new LiteralExpression(!and), new Estimate(0, and ? 0 : 1));
+                }
+                if (truthy) {
+                    continue;
+                }
+            }
+            terms.add(term);
+        }
+        if (terms.isEmpty()) {
+            return estimated(new LiteralExpression(and), new Estimate(0, and ? 1 : 0));
+        }
+        terms.sort(Comparator.comparingDouble(term -> rank(estimates.get(term), and)));
+
+        Expression result = terms.get(0);
+        Estimate estimate = estimates.get(result);
+        for (int i = 1; i < terms.size(); i++) {
+            Estimate next = estimates.get(terms.get(i));
+            // The next term only runs for rows the chain has not decided yet
+            double undecided = and ? estimate.selectivity() : 1 - estimate.selectivity();
+            double selectivity = and ? estimate.selectivity() * next.selectivity()
+                    : 1 - (1 - estimate.selectivity()) * (1 - next.selectivity());
+            estimate = new Estimate(estimate.cost() + undecided * next.cost(), selectivity);
+            result = estimated(new BinaryExpression(result, expr.operator(), terms.get(i)), estimate);
+        }
+        return result;
+    }
+
+    // Expected cost of running a term until it decides its chain
+    private static double rank(Estimate estimate, boolean and) {
+        double deciding = and ? 1 - estimate.selectivity() : estimate.selectivity();
+        return deciding <= 0 ? Double.POSITIVE_INFINITY : estimate.cost() / deciding;
+    }
+
+    // The operands of a chain of `operator`, through parentheses and nested chains of the same operator
+    private static List<Expression> operands(Expression expr, TokenType operator) {
+        List<Expression> operands = new ArrayList<>();
+        collect(expr, operator, operands);
+        return operands;
+    }
+
+    private static void collect(Expression expr, TokenType operator, List<Expression> operands) {
+        while (expr instanceof GroupingExpression g) {
+            expr = g.expression();
+        }
+        if (expr instanceof BinaryExpression b && b.operator().type() == operator) {
+            collect(b.left(), operator, operands);
+            collect(b.right(), operator, operands);
+        } else {
+            operands.add(expr);
+        }
+    }
+
+    // The value of an operator on two literals, or null when it is a type error, which is then
+    // left for the FilterCompiler to report
+    private Boolean fold(BinaryExpression term) {
+        try {
+            return compiler.compile(term).test(0);
+        } catch (EvaluationException e) {
+            return null;
+        }
+    }
+
+    private Expression estimated(Expression expr, Estimate estimate) {
+        estimates.put(expr, estimate);
+        return expr;
+    }
+
+    // --- Estimates ---
+
+    private Estimate variable(VariableExpression expr) {
+        Column column = column(expr);
+        if (column == null) {
+            return new Estimate(COLUMN_COST, DEFAULT_SELECTIVITY);
+        }
+        double nonNull = 1 - knownNullFraction(ColumnStats.of(column));
+        return new Estimate(COLUMN_COST, column instanceof BooleanColumn ? nonNull / 2 : nonNull);
+    }
+
+    private Estimate term(BinaryExpression expr) {
+        Expression left = expr.left();
+        Expression right = expr.right();
+        TokenType operator = expr.operator().type();
+        double nested = nestedCost(left) + nestedCost(right);
+        if (left instanceof LiteralExpression && right instanceof VariableExpression && !isStringMatch(operator)) {
+            Expression swap = left;
+            left = right;
+            right = swap;
+            operator = FilterCompiler.flip(operator);
+        }
+        Column column = left instanceof VariableExpression v ? column(v) : null;
+        if (column == null || !(right instanceof LiteralExpression literal)) {
+            return new Estimate(GENERIC_COST + nested, DEFAULT_SELECTIVITY);
+        }
+        ColumnStats stats = ColumnStats.of(column);
+        boolean coded = !(column instanceof StringColumn s) || s.isLowCardinality();
+        return switch (operator) {
+            case EQUAL_EQUAL, BANG_EQUAL -> {
+                double equal = equalSelectivity(stats, literal.value());
+                yield new Estimate(coded ? COLUMN_COST : STRING_EQUALITY_COST,
+                        operator == TokenType.EQUAL_EQUAL ? equal : 1 - equal);
+            }
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL ->
+                    new Estimate(coded ? COLUMN_COST : STRING_MATCH_COST, rangeSelectivity(stats, operator, literal.value()));
+            case CONTAINS -> new Estimate(coded ? COLUMN_COST : CONTAINS_COST, MATCH_SELECTIVITY);
+            case STARTS_WITH, ENDS_WITH -> new Estimate(coded ? COLUMN_COST : STRING_MATCH_COST, MATCH_SELECTIVITY);
+            default -> new Estimate(GENERIC_COST, DEFAULT_SELECTIVITY);
+        };
+    }
+
+    private double nestedCost(Expression operand) {
+        return operand instanceof BinaryExpression ? estimates.get(operand).cost() : 0;
+    }
+
+    private static boolean isStringMatch(TokenType operator) {
+        return operator == TokenType.CONTAINS || operator == TokenType.STARTS_WITH || operator == TokenType.ENDS_WITH;
+    }
+
+    private static double equalSelectivity(ColumnStats stats, Object value) {
+        double nulls = stats.nullFraction();
+        if (value == null) {
+            return nulls < 0 ? EQUALITY_SELECTIVITY : nulls;
+        }
+        if (value instanceof Number n && !Double.isNaN(stats.min())) {
+            double x = n.doubleValue();
+            if (x < stats.min() || x > stats.max()) {
+                return 0;
+            }
+        }
+        if (stats.distinct() > 0) {
+            return (1 - knownNullFraction(stats)) / stats.distinct();
+        }
+        return EQUALITY_SELECTIVITY;
+    }
+
+    // Numeric values are taken as spread evenly between min and max. Nulls are less than
+    // everything, so `<` and `<=` select them too.
+    private static double rangeSelectivity(ColumnStats stats, TokenType operator, Object value) {
+        if (!(value instanceof Number n) || Double.isNaN(stats.min()) || Double.isNaN(stats.max())) {
+            return RANGE_SELECTIVITY;
+        }
+        double x = n.doubleValue();
+        double selected;
+        if (stats.max() > stats.min()) {
+            double below = Math.min(1, Math.max(0, (x - stats.min()) / (stats.max() - stats.min())));
+            boolean lower = operator == TokenType.GREATER || operator == TokenType.GREATER_EQUAL;
+            selected = lower ? 1 - below : below;
+        } else {
+            selected = FilterCompiler.matches(operator, Double.compare(stats.min(), x)) ? 1 : 0;
+        }
+        double nulls = knownNullFraction(stats);
+        return (1 - nulls) * selected + (FilterCompiler.matches(operator, -1) ? nulls : 0);
+    }
+
+    private static double knownNullFraction(ColumnStats stats) {
+        return Math.max(0, stats.nullFraction());
+    }
+
+    private Column column(VariableExpression expr) {
+        int index = table.columnIndex(expr.name().lexeme());
+        return index < 0 ? null : table.column(index);
+    }
+
+    // --- EXPLAIN ---
+
+    // One line per chain and per term, chains above their terms in evaluation order
+    private void explain(Expression expr, int depth, StringBuilder out) {
+        boolean chain = expr instanceof BinaryExpression b
+                && (b.operator().type() == TokenType.AND || b.operator().type() == TokenType.OR);
+        Estimate estimate = estimates.get(expr);
+        out.append("  ".repeat(depth))
+                .append(chain ? ((BinaryExpression) expr).operator().type().name() : text(expr))
+                .append(String.format("  (rows: %.1f%%, cost: %.2f)%n", 100 * estimate.selectivity(), estimate.cost()));
+        if (chain) {
+            for (Expression term : operands(expr, ((BinaryExpression) expr).operator().type())) {
+                explain(term, depth + 1, out);
+            }
+        }
+    }
+
+    // A term in filter syntax, with parentheses around nested operators
+    static String text(Expression expr) {
+        return expr.accept(new Expression.Visitor<String>() {
+            @Override
+            public String visitBinaryExpr(BinaryExpression e) {
+                return operand(e.left()) + " " + symbol(e.operator().type()) + " " + operand(e.right());
+            }
+
+            private String operand(Expression e) {
+                String text = e.accept(this);
+                return e instanceof BinaryExpression ? "(" + text + ")" : text;
+            }
+
+            @Override
+            public String visitGroupingExpr(GroupingExpression e) {
+                return "(" + e.expression().accept(this) + ")";
+            }
+
+            @Override
+            public String visitLiteralExpr(LiteralExpression e) {
+                Object value = e.value();
+                if (value instanceof String s) {
+                    return '"' + s + '"';
+                }
+                if (value instanceof Double d && d == Math.rint(d) && Math.abs(d) < 1e15) {
+                    return String.valueOf(d.longValue());
+                }
+                return String.valueOf(value);
+            }
+
+            @Override
+            public String visitVariableExpr(VariableExpression e) {
+                return e.name().lexeme();
+            }
+        });
+    }
+
+    private static String symbol(TokenType operator) {
+        return switch (operator) {
+            case EQUAL_EQUAL -> "==";
+            case BANG_EQUAL -> "!=";
+            case GREATER -> ">";
+            case GREATER_EQUAL -> ">=";
+            case LESS -> "<";
+            case LESS_EQUAL -> "<=";
+            case CONTAINS -> "contains";
+            case STARTS_WITH -> "startsWith";
+            case ENDS_WITH -> "endsWith";
+            default -> operator.name();
+        };
+    }
+}
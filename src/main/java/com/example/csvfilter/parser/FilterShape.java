@@ -0,0 +1,95 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.*;
+import com.example.csvfilter.table.BooleanColumn;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.DoubleColumn;
+import com.example.csvfilter.table.LongColumn;
+import com.example.csvfilter.table.StringColumn;
+
+// A coarse description of a filter for tagging its metrics: few enough distinct values that every
+// filter a session runs falls into one of a small, fixed set of series.
+// connective: "term" for a single term, "and" or "or" for one kind of chain, "mixed" for both.
+// terms: the number of terms, bucketed as "1", "2", "3-4" and "5+".
+// columns: the type of the columns the filter reads, "numeric", "string" or "boolean"; "mixed"
+// when it reads more than one of these and "none" when it reads no column.
+public record FilterShape(String connective, String terms, String columns) {
+
+    public static FilterShape of(DataTable table, Expression expr) {
+        Counter counter = new Counter(table);
+        expr.accept(counter);
+        String connective = counter.and ? (counter.or ? "mixed" : "and") : (counter.or ? "or" : "term");
+        String terms = counter.terms <= 2 ? Integer.toString(Math.max(counter.terms, 1))
+                : counter.terms <= 4 ? "3-4" : "5+";
+        String columns = switch (counter.types) {
+            case 0 -> "none";
+            case NUMERIC -> "numeric";
+            case STRING -> "string";
+            case BOOLEAN -> "boolean";
+            default -> "mixed";
+        };
+        return new FilterShape(connective, terms, columns);
+    }
+
+    private static final int NUMERIC = 1;
+    private static final int STRING = 2;
+    private static final int BOOLEAN = 4;
+
+    private static final class Counter implements Expression.Visitor<Void> {
+        private final DataTable table;
+        private boolean and;
+        private boolean or;
+        private int terms;
+        // NUMERIC, STRING and BOOLEAN bits of the columns seen
+        private int types;
+
+        Counter(DataTable table) {
+            this.table = table;
+        }
+
+        @Override
+        public Void visitBinaryExpr(BinaryExpression expr) {
+            TokenType operator = expr.operator().type();
+            if (operator == TokenType.AND || operator == TokenType.OR) {
+                and |= operator == TokenType.AND;
+                or |= operator == TokenType.OR;
+                expr.left().accept(this);
+                expr.right().accept(this);
+                return null;
+            }
+            terms++;
+            columns(expr);
+            return null;
+        }
+
+        @Override
+        public Void visitGroupingExpr(GroupingExpression expr) {
+            return expr.expression().accept(this);
+        }
+
+        @Override
+        public Void visitLiteralExpr(LiteralExpression expr) {
+            terms++;
+            return null;
+        }
+
+        @Override
+        public Void visitVariableExpr(VariableExpression expr) {
+            terms++;
+            columns(expr);
+            return null;
+        }
+
+        private void columns(Expression term) {
+            for (String name : ReferencedColumns.of(term)) {
+                int index = table.columnIndex(name);
+                if (index < 0) continue;
+                Column column = table.loadedColumn(index);
+                if (column instanceof LongColumn || column instanceof DoubleColumn) types |= NUMERIC;
+                else if (column instanceof StringColumn) types |= STRING;
+                else if (column instanceof BooleanColumn) types |= BOOLEAN;
+            }
+        }
+    }
+}
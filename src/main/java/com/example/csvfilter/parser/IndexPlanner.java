@@ -0,0 +1,156 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.*;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.StringColumn;
+import com.example.csvfilter.table.StringIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static com.example.csvfilter.parser.Values.containsIgnoreCase;
+import static com.example.csvfilter.parser.Values.endsWithIgnoreCase;
+import static com.example.csvfilter.parser.Values.startsWithIgnoreCase;
+
+// Answers filter terms on string columns from StringIndexes instead of testing every row:
+// == / != / null checks through the hash index, startsWith through the sorted dictionary, and
+// contains / endsWith through trigrams. Candidate values are checked with the same tests as
+// FilterCompiler, so a bitmap from here is exact. AND and OR of answerable terms combine bitmaps.
+public class IndexPlanner {
+
+    // Supplies the index of a string column with the given part built
+    @FunctionalInterface
+    public interface IndexSource {
+        StringIndex index(int column, StringIndex.Kind kind);
+    }
+
+    private final DataTable table;
+    private final IndexSource indexes;
+
+    public IndexPlanner(DataTable table, IndexSource indexes) {
+        this.table = table;
+        this.indexes = indexes;
+    }
+
+    // A filter as the AND of its terms
+    public static List<Expression> conjuncts(Expression expr) {
+        List<Expression> terms = new ArrayList<>();
+        addConjuncts(expr, terms);
+        return terms;
+    }
+
+    private static void addConjuncts(Expression expr, List<Expression> terms) {
+        if (expr instanceof GroupingExpression g) {
+            addConjuncts(g.expression(), terms);
+        } else if (expr instanceof BinaryExpression b && b.operator().type() == TokenType.AND) {
+            addConjuncts(b.left(), terms);
+            addConjuncts(b.right(), terms);
+        } else {
+            terms.add(expr);
+        }
+    }
+
+    // Rows matching `expr`, or null if any part of it needs a scan
+    public BitSet lookup(Expression expr) {
+        if (expr instanceof GroupingExpression g) {
+            return lookup(g.expression());
+        }
+        if (!(expr instanceof BinaryExpression b)) {
+            return null;
+        }
+        TokenType operator = b.operator().type();
+        if (operator == TokenType.AND || operator == TokenType.OR) {
+            BitSet left = lookup(b.left());
+            BitSet right = left == null ? null : lookup(b.right());
+            if (right == null) return null;
+            if (operator == TokenType.AND) left.and(right);
+            else left.or(right);
+            return left;
+        }
+
+        Expression columnSide = b.left();
+        Expression literalSide = b.right();
+        if ((operator == TokenType.EQUAL_EQUAL || operator == TokenType.BANG_EQUAL)
+                && b.left() instanceof LiteralExpression) {
+            columnSide = b.right(); // Equality is symmetric
+            literalSide = b.left();
+        }
+        if (!(columnSide instanceof VariableExpression v) || !(literalSide instanceof LiteralExpression l)) {
+            return null;
+        }
+        int column = table.columnIndex(v.name().lexeme());
+        if (column < 0 || !(table.column(column) instanceof StringColumn strings)) {
+            return null;
+        }
+        Object value = l.value();
+        return switch (operator) {
+            case EQUAL_EQUAL -> equal(column, strings, value);
+            case BANG_EQUAL -> {
+                BitSet equal = equal(column, strings, value);
+                if (equal != null) equal.flip(0, table.rowCount());
+                yield equal;
+            }
+            case STARTS_WITH, CONTAINS, ENDS_WITH ->
+                    value instanceof String s ? stringOp(column, strings, operator, s.toLowerCase()) : null;
+            default -> null;
+        };
+    }
+
+    private BitSet equal(int column, StringColumn strings, Object value) {
+        if (value == null) {
+            return indexes.index(column, StringIndex.Kind.POSTINGS).nullRows();
+        }
+        if (!(value instanceof String literal)) {
+            return null;
+        }
+        StringIndex index = indexes.index(column, StringIndex.Kind.HASH);
+        return index.rows(check(strings, index.equalCandidates(literal), v -> v.equalsIgnoreCase(literal)));
+    }
+
+    // Lowering the value is how the filter decides these tests, and a literal that is not ASCII
+    // can match where its folded form does not (lowering U+0130 appends a combining dot), so such
+    // literals are checked against every dictionary value instead of index candidates
+    private BitSet stringOp(int column, StringColumn strings, TokenType operator, String lower) {
+        boolean ascii = lower.chars().allMatch(c -> c < 0x80);
+        StringIndex.Kind substrings = ascii && StringIndex.hasTrigrams(lower) ? StringIndex.Kind.TRIGRAM : StringIndex.Kind.POSTINGS;
+        StringIndex index;
+        int[] candidates;
+        Predicate<String> test;
+        switch (operator) {
+            case STARTS_WITH -> {
+                index = indexes.index(column, ascii ? StringIndex.Kind.SORTED : StringIndex.Kind.POSTINGS);
+                candidates = ascii ? index.prefixCandidates(lower) : null;
+                test = v -> startsWithIgnoreCase(v, lower);
+            }
+            case CONTAINS -> {
+                index = indexes.index(column, substrings);
+                candidates = ascii ? index.substringCandidates(lower) : null;
+                test = v -> containsIgnoreCase(v, lower);
+            }
+            default -> {
+                index = indexes.index(column, substrings);
+                candidates = ascii ? index.substringCandidates(lower) : null;
+                test = v -> endsWithIgnoreCase(v, lower);
+            }
+        }
+        return index.rows(check(strings, candidates, test));
+    }
+
+    // Dictionary codes among `candidates` (all codes when null) whose value passes `test`
+    private static BitSet check(StringColumn strings, int[] candidates, Predicate<String> test) {
+        String[] dictionary = strings.dictionary();
+        BitSet codes = new BitSet(dictionary.length);
+        if (candidates == null) {
+            for (int code = 0; code < dictionary.length; code++) {
+                if (test.test(dictionary[code])) codes.set(code);
+            }
+        } else {
+            for (int code : candidates) {
+                if (test.test(dictionary[code])) codes.set(code);
+            }
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.*;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// The columns a filter reads, in order of first use. Compiling a filter touches only these, so a
+// table with columns still to load needs only these loaded before it is filtered.
+public final class ReferencedColumns implements Expression.Visitor<Void> {
+
+    private final Set<String> names = new LinkedHashSet<>();
+
+    private ReferencedColumns() {
+    }
+
+    public static Set<String> of(Expression expr) {
+        ReferencedColumns visitor = new ReferencedColumns();
+        expr.accept(visitor);
+        return visitor.names;
+    }
+
+    @Override
+    public Void visitBinaryExpr(BinaryExpression expr) {
+        expr.left().accept(this);
+        expr.right().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(GroupingExpression expr) {
+        return expr.expression().accept(this);
+    }
+
+    @Override
+    public Void visitLiteralExpr(LiteralExpression expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(VariableExpression expr) {
+        names.add(expr.name().lexeme());
+        return null;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Recognizes a filter that narrows an earlier one, so that it can be evaluated over the earlier
+// result instead of the whole table. A filter narrows another when every AND term of the other is
+// either among its own terms or implied by one of them: a tighter bound on the same column
+// (`a > 7` narrows `a > 5`), or an equality within the bound (`a == 7` narrows `a > 5`).
+// Terms are compared by structure, ignoring positions and redundant parentheses. Bounds follow
+// FilterCompiler: numbers compare as doubles, strings ignoring case, and nulls are less than
+// everything, which keeps `a < 3` within `a < 5` even for rows where a is null.
+public final class Refinement {
+
+    private Refinement() {
+    }
+
+    // The terms of `narrow` that `broad` does not already hold, in order, or null if `narrow` is
+    // not known to narrow `broad`. An empty list means the two select the same rows.
+    public static List<Expression> residual(Expression narrow, Expression broad) {
+        List<Expression> narrowTerms = IndexPlanner.conjuncts(narrow);
+        Set<String> narrowKeys = new HashSet<>();
+        for (Expression term : narrowTerms) {
+            narrowKeys.add(key(term));
+        }
+        Set<String> broadKeys = new HashSet<>();
+        for (Expression term : IndexPlanner.conjuncts(broad)) {
+            String key = key(term);
+            broadKeys.add(key);
+            if (!narrowKeys.contains(key) && narrowTerms.stream().noneMatch(n -> implies(n, term))) {
+                return null;
+            }
+        }
+        List<Expression> residual = new ArrayList<>();
+        for (Expression term : narrowTerms) {
+            if (!broadKeys.contains(key(term))) {
+                residual.add(term);
+            }
+        }
+        return residual;
+    }
+
+    // `column operator literal`, with the literal moved to the right
+    private record Bound(String column, TokenType operator, Object value) {
+
+        static Bound of(Expression term) {
+            while (term instanceof GroupingExpression g) {
+                term = g.expression();
+            }
+            if (!(term instanceof BinaryExpression b)) {
+                return null;
+            }
+            Expression left = unwrap(b.left());
+            Expression right = unwrap(b.right());
+            TokenType operator = b.operator().type();
+            if (left instanceof LiteralExpression && right instanceof VariableExpression) {
+                Expression swap = left;
+                left = right;
+                right = swap;
+                operator = FilterCompiler.flip(operator);
+            }
+            if (left instanceof VariableExpression v && right instanceof LiteralExpression l
+                    && (l.value() instanceof Number || l.value() instanceof String)) {
+                return new Bound(v.name().lexeme(), operator, l.value());
+            }
+            return null;
+        }
+
+        boolean isLower() {
+            return operator == TokenType.GREATER || operator == TokenType.GREATER_EQUAL;
+        }
+
+        boolean isUpper() {
+            return operator == TokenType.LESS || operator == TokenType.LESS_EQUAL;
+        }
+
+        boolean isStrict() {
+            return operator == TokenType.GREATER || operator == TokenType.LESS;
+        }
+
+        // Null when the values are not comparable the way FilterCompiler compares them. Numbers
+        // compare with Double.compare, the order FilterCompiler gives rows against a bound
+        Integer compareTo(Bound other) {
+            if (value instanceof Number a && other.value instanceof Number b) {
+                return Double.compare(a.doubleValue(), b.doubleValue());
+            }
+            if (value instanceof String a && other.value instanceof String b) {
+                return a.compareToIgnoreCase(b);
+            }
+            return null;
+        }
+    }
+
+    // Whether every row matching `narrow` matches `broad`, as far as bounds tell
+    private static boolean implies(Expression narrow, Expression broad) {
+        Bound n = Bound.of(narrow);
+        Bound b = Bound.of(broad);
+        if (n == null || b == null || !n.column().equals(b.column()) || !(b.isLower() || b.isUpper())) {
+            return false;
+        }
+        if (n.operator() == TokenType.EQUAL_EQUAL && n.value() instanceof Number x) {
+            // Every value the equality selects must be within the bound. Like FilterCompiler, equality
+            // is primitive ==, so `a == 0` also selects -0.0, while bounds order -0.0 below 0.0
+            if (!(b.value() instanceof Number y)) {
+                return false;
+            }
+            double value = x.doubleValue();
+            double bound = y.doubleValue();
+            return FilterCompiler.matches(b.operator(), Double.compare(value, bound))
+                    && (value != 0 || FilterCompiler.matches(b.operator(), Double.compare(-value, bound)));
+        }
+        if (n.isLower() != b.isLower() || !(n.isLower() || n.isUpper())) {
+            return false; // Also rules out other operators on the narrow side
+        }
+        Integer cmp = n.compareTo(b);
+        if (cmp == null) {
+            return false;
+        }
+        int tighter = b.isLower() ? cmp : -cmp; // > 0 when n's value is further inside b's range
+        if (tighter != 0) {
+            return tighter > 0;
+        }
+        // Same value: `a > 5` holds `a >= 5`, but `a >= 5` does not hold `a > 5`
+        return n.isStrict() || !b.isStrict();
+    }
+
+    private static Expression unwrap(Expression expr) {
+        while (expr instanceof GroupingExpression g) {
+            expr = g.expression();
+        }
+        return expr;
+    }
+
+    // Structural key of a term: equal for terms that differ only in positions or parentheses
+    static String key(Expression expr) {
+        return expr.accept(new Expression.Visitor<String>() {
+            @Override
+            public String visitBinaryExpr(BinaryExpression e) {
+                return "(" + e.left().accept(this) + " " + e.operator().type() + " " + e.right().accept(this) + ")";
+            }
+
+            @Override
+            public String visitGroupingExpr(GroupingExpression e) {
+                return e.expression().accept(this);
+            }
+
+            @Override
+            public String visitLiteralExpr(LiteralExpression e) {
+                Object value = e.value();
+                return value instanceof String s ? '"' + s.replace("\"", "\"\"") + '"' : String.valueOf(value);
+            }
+
+            @Override
+            public String visitVariableExpr(VariableExpression e) {
+                return "`" + e.name().lexeme() + "`";
+            }
+        });
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.csvfilter.parser;
+
+// A compiled filter: tests a single row of the table it was compiled against.
+// Implementations hold no per-row state, so one instance can be shared across threads.
+@FunctionalInterface
+public interface RowPredicate {
+    boolean test(int row);
+
+    static RowPredicate constant(boolean value) {
+        return value ? row -> true : row -> false;
+    }
+}
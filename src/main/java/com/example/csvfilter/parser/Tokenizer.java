@@ -12,6 +12,7 @@ public class Tokenizer {
     private int start = 0;
     private int current = 0;
 
+    // Lower case, as identifiers are looked up lower-cased
     private static final Map<String, TokenType> keywords;
     static {
         keywords = new HashMap<>();
@@ -21,8 +22,8 @@ public class Tokenizer {
         keywords.put("false", TokenType.FALSE);
         keywords.put("null", TokenType.NULL);
         keywords.put("contains", TokenType.CONTAINS);
-        keywords.put("startsWith", TokenType.STARTS_WITH);
-        keywords.put("endsWith", TokenType.ENDS_WITH);
+        keywords.put("startswith", TokenType.STARTS_WITH);
+        keywords.put("endswith", TokenType.ENDS_WITH);
     }
 
     public Tokenizer(String source) {
@@ -0,0 +1,114 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.exception.EvaluationException;
+
+import java.util.function.BiPredicate;
+
+// Value semantics of the filter language, shared by the Evaluator and the FilterCompiler
+final class Values {
+
+    private Values() {
+    }
+
+    static boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean) object;
+        return true;
+    }
+
+    static boolean isEqual(Object a, Object b) {
+        if (a == null && b == null) return true;
+        if (a == null || b == null) return false;
+
+        // Coerce types for comparison
+        if (a instanceof Number && b instanceof Number) {
+            return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+        }
+
+        // Strings compare case-insensitively
+        if (a instanceof String && b instanceof String) {
+            return ((String) a).equalsIgnoreCase((String) b);
+        }
+
+        return a.equals(b);
+    }
+
+    static int compare(Object left, Object right) {
+        // Handle nulls: nulls are always "less"
+        if (left == null && right == null) return 0;
+        if (left == null) return -1;
+        if (right == null) return 1;
+
+        if (left instanceof Number && right instanceof Number) {
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+
+        // Strings compare case-insensitively
+        if (left instanceof String && right instanceof String) {
+            return ((String) left).compareToIgnoreCase((String) right);
+        }
+
+        throw new EvaluationException("Cannot compare " + left.getClass().getSimpleName() + " with " + right.getClass().getSimpleName());
+    }
+
+    static boolean checkStringOp(Object left, Object right, BiPredicate<String, String> op) {
+        if (left == null) return false; // "null" cannot contain anything
+        if (!(left instanceof String) || !(right instanceof String)) {
+            throw new EvaluationException(STRING_OP_ERROR);
+        }
+
+        // Case-insensitive, like equality
+        String leftStr = ((String) left).toLowerCase();
+        String rightStr = ((String) right).toLowerCase();
+
+        return op.test(leftStr, rightStr);
+    }
+
+    static final String STRING_OP_ERROR = "String operation (contains, startsWith, endsWith) can only be used on strings.";
+
+    // contains, startsWith and endsWith as checkStringOp decides them, for a literal lowered once
+    // up front. Matching regions ignoring case agrees with lowering both sides only on ASCII text
+    // ("\u0130".toLowerCase() is two chars, and regionMatches takes "\u0131" for "i"), so other
+    // text is lowered as checkStringOp does.
+    static boolean containsIgnoreCase(String haystack, String lowerNeedle) {
+        if (!isAscii(lowerNeedle, 0, lowerNeedle.length()) || !isAscii(haystack, 0, haystack.length())) {
+            return haystack.toLowerCase().contains(lowerNeedle);
+        }
+        int length = lowerNeedle.length();
+        if (length == 0) return true;
+        char first = lowerNeedle.charAt(0);
+        char firstUpper = Character.toUpperCase(first);
+        int last = haystack.length() - length;
+        for (int i = 0; i <= last; i++) {
+            char c = haystack.charAt(i);
+            if ((c == first || c == firstUpper)
+                    && haystack.regionMatches(true, i, lowerNeedle, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean startsWithIgnoreCase(String value, String lowerPrefix) {
+        int length = lowerPrefix.length();
+        if (!isAscii(lowerPrefix, 0, length) || !isAscii(value, 0, Math.min(length, value.length()))) {
+            return value.toLowerCase().startsWith(lowerPrefix);
+        }
+        return value.regionMatches(true, 0, lowerPrefix, 0, length);
+    }
+
+    static boolean endsWithIgnoreCase(String value, String lowerSuffix) {
+        int length = lowerSuffix.length();
+        if (!isAscii(lowerSuffix, 0, length) || !isAscii(value, Math.max(0, value.length() - length), value.length())) {
+            return value.toLowerCase().endsWith(lowerSuffix);
+        }
+        return value.regionMatches(true, value.length() - length, lowerSuffix, 0, length);
+    }
+
+    private static boolean isAscii(String value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (value.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
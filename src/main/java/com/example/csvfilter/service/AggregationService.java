@@ -0,0 +1,71 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.GroupAggregator;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Group-by aggregates of the filtered rows of the session's table
+@Service
+public class AggregationService {
+
+    private final UserSessionData userSessionData;
+    private final FilterService filterService;
+    private final FilterExecutor filterExecutor;
+
+    public AggregationService(UserSessionData userSessionData, FilterService filterService, FilterExecutor filterExecutor) {
+        this.userSessionData = userSessionData;
+        this.filterService = filterService;
+        this.filterExecutor = filterExecutor;
+    }
+
+    // Aggregates of the filtered rows per group, for the summary panel and the data API. Group
+    // values and aggregates share one row, in the order of `columns`; rows holds at most `limit`
+    // groups, groupCount all of them. Non-finite doubles are reported as null.
+    public record Summary(List<String> columns, int groupCount, List<List<Object>> rows) {
+    }
+
+    // The filtered rows come from the same cache as the view; aggregation runs over them in chunks,
+    // in parallel on the filter pool for large selections. With no aggregates, rows are counted.
+    public Summary aggregate(String filter, List<String> groupBy, List<String> aggregates, int limit) {
+        DataTable table = userSessionData.getTable();
+        int[] groupColumns = new int[groupBy == null ? 0 : groupBy.size()];
+        for (int i = 0; i < groupColumns.length; i++) {
+            groupColumns[i] = table.columnIndex(groupBy.get(i));
+            if (groupColumns[i] < 0) {
+                throw new IllegalArgumentException("Unknown column '" + groupBy.get(i) + "'");
+            }
+        }
+        List<GroupAggregator.Aggregate> specs = new ArrayList<>();
+        for (String spec : aggregates == null || aggregates.isEmpty() ? List.of("count(*)") : aggregates) {
+            specs.add(GroupAggregator.Aggregate.parse(spec, table));
+        }
+        int[] used = IntStream.concat(IntStream.of(groupColumns),
+                specs.stream().mapToInt(GroupAggregator.Aggregate::column).filter(column -> column >= 0)).toArray();
+        filterService.loadColumns(table, filter, Sort.unsorted(), used);
+
+        int[] rows = filterService.filteredRows(table, filter, FilterService.filterKey(filter));
+        GroupAggregator aggregator = new GroupAggregator(table, groupColumns, specs);
+        GroupAggregator.Partial partial = filterExecutor.reduce(rows.length,
+                (from, to) -> aggregator.aggregate(rows, from, to), aggregator::merge);
+        GroupAggregator.Result result = aggregator.result(partial, limit);
+
+        List<String> columns = new ArrayList<>();
+        for (int column : groupColumns) columns.add(table.headers().get(column));
+        for (GroupAggregator.Aggregate spec : specs) columns.add(spec.label(table));
+        List<List<Object>> values = new ArrayList<>(result.rows().size());
+        for (Object[] row : result.rows()) {
+            List<Object> list = new ArrayList<>(row.length);
+            for (Object value : row) {
+                list.add(value instanceof Double d && !Double.isFinite(d) ? null : value);
+            }
+            values.add(list);
+        }
+        return new Summary(columns, result.groupCount(), values);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.parser.FilterShape;
+import com.example.csvfilter.table.StringIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Meters of the load, view, filter and export paths, registered once so that recording is a few
+// additions. Timings are taken with System.nanoTime around whole stages, never per row.
+@Component
+public class DataMetrics {
+
+    final Timer parse;
+    final Timer infer;
+    final Timer build;
+    final Counter ingestRows;
+    final Counter ingestBytes;
+    final DistributionSummary ingestRowRate;
+    final DistributionSummary ingestByteRate;
+    final Timer pageColumns;
+    final Timer pageFilter;
+    final Timer pageSort;
+    final Timer pageRows;
+    final Counter filterHits;
+    final Counter filterMisses;
+    final Counter sortHits;
+    final Counter sortMisses;
+    final Counter refinements;
+    final Counter termsIndexed;
+    final Counter termsScanned;
+    final Counter exportRows;
+    final Counter exportChars;
+    final DistributionSummary exportRowRate;
+    final DistributionSummary exportCharRate;
+
+    private final MeterRegistry registry;
+    private final Map<StringIndex.Kind, Timer> indexBuilds = new EnumMap<>(StringIndex.Kind.class);
+    private final Map<StringIndex.Kind, DistributionSummary> indexMemory = new EnumMap<>(StringIndex.Kind.class);
+    // Built on first use: FilterShape has a fixed set of values, but most are never seen
+    private final Map<FilterTimerKey, Timer> filterTimers = new ConcurrentHashMap<>();
+
+    private record FilterTimerKey(FilterShape shape, String access) {
+    }
+
+    public DataMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        parse = registry.timer("csvfilter.load", "stage", "parse");
+        infer = registry.timer("csvfilter.load", "stage", "infer");
+        build = registry.timer("csvfilter.load", "stage", "build");
+        ingestRows = registry.counter("csvfilter.ingest.rows");
+        ingestBytes = Counter.builder("csvfilter.ingest.bytes").baseUnit("bytes").register(registry);
+        ingestRowRate = rate(registry, "csvfilter.ingest.throughput", "rows");
+        ingestByteRate = rate(registry, "csvfilter.ingest.throughput", "bytes");
+        pageColumns = registry.timer("csvfilter.page", "stage", "columns");
+        pageFilter = registry.timer("csvfilter.page", "stage", "filter");
+        pageSort = registry.timer("csvfilter.page", "stage", "sort");
+        pageRows = registry.timer("csvfilter.page", "stage", "rows");
+        filterHits = registry.counter("csvfilter.cache.requests", "cache", "filter", "result", "hit");
+        filterMisses = registry.counter("csvfilter.cache.requests", "cache", "filter", "result", "miss");
+        sortHits = registry.counter("csvfilter.cache.requests", "cache", "sort", "result", "hit");
+        sortMisses = registry.counter("csvfilter.cache.requests", "cache", "sort", "result", "miss");
+        refinements = registry.counter("csvfilter.filter.refinements");
+        termsIndexed = registry.counter("csvfilter.filter.terms", "access", "index");
+        termsScanned = registry.counter("csvfilter.filter.terms", "access", "scan");
+        exportRows = registry.counter("csvfilter.export.rows");
+        exportChars = registry.counter("csvfilter.export.chars");
+        exportRowRate = rate(registry, "csvfilter.export.throughput", "rows");
+        exportCharRate = rate(registry, "csvfilter.export.throughput", "chars");
+        for (StringIndex.Kind kind : StringIndex.Kind.values()) {
+            String tag = kind.name().toLowerCase();
+            indexBuilds.put(kind, registry.timer("csvfilter.index.build", "kind", tag));
+            indexMemory.put(kind, DistributionSummary.builder("csvfilter.index.memory")
+                    .baseUnit("bytes")
+                    .tag("kind", tag)
+                    .register(registry));
+        }
+    }
+
+    // Latency of filters that were not cached, from parsing to the matching rows, by the shape of
+    // their plan and how the rows were found. Published as a histogram, so that percentiles can be
+    // aggregated across instances.
+    Timer filter(FilterShape shape, String access) {
+        return filterTimers.computeIfAbsent(new FilterTimerKey(shape, access), key -> Timer.builder("csvfilter.filter")
+                .tag("connective", shape.connective())
+                .tag("terms", shape.terms())
+                .tag("columns", shape.columns())
+                .tag("access", access)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry));
+    }
+
+    Timer indexBuild(StringIndex.Kind kind) {
+        return indexBuilds.get(kind);
+    }
+
+    DistributionSummary indexMemory(StringIndex.Kind kind) {
+        return indexMemory.get(kind);
+    }
+
+    // Per load or export, the amount of `unit` it went through per second
+    private static DistributionSummary rate(MeterRegistry registry, String name, String unit) {
+        return DistributionSummary.builder(name).tag("unit", unit).baseUnit(unit + "/s").register(registry);
+    }
+
+    static long since(long start) {
+        return System.nanoTime() - start;
+    }
+
+    static void record(DistributionSummary rate, long amount, long nanos) {
+        if (nanos > 0) {
+            rate.record(amount * 1e9 / nanos);
+        }
+    }
+}
@@ -1,165 +1,182 @@
 package com.example.csvfilter.service;
 
-import com.example.csvfilter.csv.CsvExporter;
-import com.example.csvfilter.csv.CsvParser;
-import com.example.csvfilter.csv.TypeInferrer;
+import com.example.csvfilter.model.UploadJob;
 import com.example.csvfilter.model.UserSessionData;
-import com.example.csvfilter.parser.Evaluator;
-import com.example.csvfilter.parser.Parser;
-import com.example.csvfilter.parser.Token;
-import com.example.csvfilter.parser.Tokenizer;
-import com.example.csvfilter.parser.ast.Expression;
-import com.example.csvfilter.parser.exception.FilterException;
+import com.example.csvfilter.table.DataTable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort; // <-- IMPORT
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
-import java.io.InputStream;
-import java.io.Writer;
-import java.util.Collections;
-import java.util.Comparator; // <-- IMPORT
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
+// Pages of the filtered, sorted rows of the session's table: by offset for the view, by cursor for
+// the data API. Filtering and sorting are FilterService's and SortService's.
 @Service
 public class DataService {
 
     private final UserSessionData userSessionData;
-    private final CsvParser csvParser;
-    private final TypeInferrer typeInferrer;
-    private final CsvExporter csvExporter;
+    private final FilterService filterService;
+    private final SortService sortService;
+    private final DataMetrics metrics;
 
-    public DataService(UserSessionData userSessionData, CsvParser csvParser, TypeInferrer typeInferrer, CsvExporter csvExporter) {
+    public DataService(UserSessionData userSessionData, FilterService filterService, SortService sortService,
+                       DataMetrics metrics) {
         this.userSessionData = userSessionData;
-        this.csvParser = csvParser;
-        this.typeInferrer = typeInferrer;
-        this.csvExporter = csvExporter;
+        this.filterService = filterService;
+        this.sortService = sortService;
+        this.metrics = metrics;
     }
 
-    public void loadAndStoreCsv(InputStream inputStream) {
-        List<Map<String, String>> rawRows = csvParser.parse(inputStream);
-        if (rawRows.isEmpty()) {
-            throw new IllegalArgumentException("CSV file is empty or invalid.");
-        }
-        List<String> headers = List.copyOf(rawRows.get(0).keySet());
-        Map<String, Class<?>> schema = typeInferrer.inferSchema(rawRows, headers);
-
-        // Coerce all string values to their inferred types
-        List<Map<String, Object>> typedRows = rawRows.stream()
-                .map(row -> typeInferrer.coerceRow(row, schema))
-                .collect(Collectors.toList());
-
-        userSessionData.setData(typedRows, headers, schema);
-    }
-
-    // --- METHOD MODIFIED to handle Pageable (which includes Sort) ---
     public Page<Map<String, Object>> getFilteredPaginatedData(String filter, Pageable pageable) {
-        // 1. Get filtered data
-        List<Map<String, Object>> filteredRows = getFilteredData(filter);
-
-        // 2. Apply sorting (NEW)
-        List<Map<String, Object>> sortedRows = sortData(filteredRows, pageable.getSort());
+        return getFilteredPaginatedData(filter, pageable, null);
+    }
 
-        // 3. Manual pagination (applied to sorted rows)
+    // Rows hold only the given columns (all of them when null or empty); unknown names are skipped
+    public Page<Map<String, Object>> getFilteredPaginatedData(String filter, Pageable pageable, List<String> columns) {
+        UploadJob upload = userSessionData.getUpload();
+        if (upload != null && upload.isRunning()) {
+            return getPartialPage(upload.snapshot(), filter, pageable, columns);
+        }
+        DataTable table = userSessionData.getTable();
+        long stageStart = System.nanoTime();
+        int[] projection = FilterService.projection(table, columns);
+        filterService.loadColumns(table, filter, pageable.getSort(), projection);
+        long stageEnd = System.nanoTime();
+        metrics.pageColumns.record(stageEnd - stageStart, TimeUnit.NANOSECONDS);
+
+        // 1. Get filtered row indexes
+        stageStart = stageEnd;
+        String filterKey = FilterService.filterKey(filter);
+        int[] filteredRows = filterService.filteredRows(table, filter, filterKey);
+        stageEnd = System.nanoTime();
+        metrics.pageFilter.record(stageEnd - stageStart, TimeUnit.NANOSECONDS);
+
+        // 2. Apply sorting, but only as far as this page needs
         int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), sortedRows.size());
+        int end = Math.min((start + pageable.getPageSize()), filteredRows.length);
+        int[] sortedRows = filteredRows;
+        if (pageable.getSort().isSorted()) {
+            stageStart = stageEnd;
+            sortedRows = sortService.sortedRows(table, filterKey, filteredRows, pageable.getSort(), end);
+            stageEnd = System.nanoTime();
+            metrics.pageSort.record(stageEnd - stageStart, TimeUnit.NANOSECONDS);
+        }
 
-        List<Map<String, Object>> pageContent = (start <= end) ? sortedRows.subList(start, end) : Collections.emptyList();
+        // 3. Manual pagination (applied to sorted rows); only the page itself is materialized
+        stageStart = stageEnd;
+        List<Map<String, Object>> pageContent = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            pageContent.add(table.rowAsMap(sortedRows[i], projection));
+        }
+        metrics.pageRows.record(DataMetrics.since(stageStart), TimeUnit.NANOSECONDS);
 
-        return new PageImpl<>(pageContent, pageable, sortedRows.size());
+        return new PageImpl<>(pageContent, pageable, filteredRows.length);
     }
 
-    // --- NEW METHOD for Sorting ---
-    private List<Map<String, Object>> sortData(List<Map<String, Object>> data, Sort sort) {
-        if (sort.isUnsorted()) {
-            return data;
+    // A page of the rows an upload has loaded so far. The snapshot is replaced as loading goes on,
+    // so nothing is cached and no indexes are built for it.
+    private Page<Map<String, Object>> getPartialPage(DataTable table, String filter, Pageable pageable,
+                                                     List<String> columns) {
+        if (table == null) {
+            return Page.empty(pageable);
         }
+        int[] rows = filterService.uncachedRows(table, filter);
+        int start = (int) pageable.getOffset();
+        int end = Math.min(start + pageable.getPageSize(), rows.length);
+        int[] sorted = SortService.uncachedTopRows(table, rows, pageable.getSort(), end);
 
-        // We only support sorting by one column for this MVP
-        Sort.Order order = sort.iterator().next();
-        String property = order.getProperty();
-        Comparator<Map<String, Object>> comparator = new RowComparator(property, order.getDirection());
-
-        // We need to stream and collect to a new list to perform the sort
-        return data.stream().sorted(comparator).collect(Collectors.toList());
+        int[] projection = FilterService.projection(table, columns);
+        List<Map<String, Object>> pageContent = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            pageContent.add(table.rowAsMap(sorted[i], projection));
+        }
+        return new PageImpl<>(pageContent, pageable, rows.length);
     }
 
-    // --- NEW Inner Class for Comparison ---
-    private static class RowComparator implements Comparator<Map<String, Object>> {
-        private final String sortKey;
-        private final Sort.Direction direction;
+    // Up to `limit` rows for the data API, plus the cursor to resume from (null after the last row),
+    // and the indexes of the columns asked for
+    public record RowSlice(DataTable table, int[] columns, int[] rows, int total, String nextCursor) {
+    }
 
-        public RowComparator(String sortKey, Sort.Direction direction) {
-            this.sortKey = sortKey;
-            this.direction = direction;
+    // Resumes after the row a cursor names instead of re-scanning an offset. Filter results and sort
+    // orders come from the same caches as the view. Without a sort, rows are in table order and the
+    // cursor's last row is looked up by binary search, which also works when the cached result has
+    // been evicted and recomputed; it must still be one of the rows. With a sort, the cursor's
+    // position must still hold its last row.
+    // A cursor is bound to the session's table generation and a digest of the filter and sort it
+    // was issued for.
+    public RowSlice rowSlice(String filter, Sort sort, String cursor, int limit, List<String> columns) {
+        long generation = userSessionData.getGeneration(); // Before the table; see UserSessionData
+        DataTable table = userSessionData.getTable();
+        int[] projection = FilterService.projection(table, columns);
+        filterService.loadColumns(table, filter, sort, projection);
+        String filterKey = FilterService.filterKey(filter);
+        int[] filteredRows = filterService.filteredRows(table, filter, filterKey);
+        long query = digest(filterKey + " ORDER BY " + sort);
+
+        int from = 0;
+        int[] ordered = filteredRows;
+        Cursor resume = cursor == null || cursor.isEmpty() ? null : Cursor.decode(cursor);
+        if (resume != null && (resume.generation() != generation || resume.query() != query)) {
+            throw new IllegalArgumentException("Cursor belongs to a different table, filter or sort");
         }
-
-        @Override
-        public int compare(Map<String, Object> row1, Map<String, Object> row2) {
-            Object val1 = row1.get(sortKey);
-            Object val2 = row2.get(sortKey);
-
-            // Treat nulls as "less" than non-nulls
-            if (val1 == null && val2 == null) return 0;
-            if (val1 == null) return (direction == Sort.Direction.ASC) ? -1 : 1;
-            if (val2 == null) return (direction == Sort.Direction.ASC) ? 1 : -1;
-
-            int cmp;
-            if (val1 instanceof Comparable && val2 instanceof Comparable) {
-                // This works for String, Long, Double
-                // We rely on our TypeInferrer to have made them comparable
-                try {
-                    @SuppressWarnings({"unchecked", "rawtypes"})
-                    Comparable c1 = (Comparable) val1;
-                    @SuppressWarnings({"unchecked", "rawtypes"})
-                    Comparable c2 = (Comparable) val2;
-                    cmp = c1.compareTo(c2);
-                } catch (ClassCastException e) {
-                    // Fallback to string comparison if types are mixed (e.g., Long vs Double)
-                    cmp = val1.toString().compareTo(val2.toString());
-                }
-            } else {
-                // Fallback for non-comparable types
-                cmp = val1.toString().compareTo(val2.toString());
+        if (sort.isSorted()) {
+            int position = resume != null ? resume.position() : 0;
+            int needed = (int) Math.min((long) position + limit, filteredRows.length);
+            ordered = sortService.sortedRows(table, filterKey, filteredRows, sort, needed);
+            if (resume != null && (position < 1 || position > ordered.length || ordered[position - 1] != resume.lastRow())) {
+                throw new IllegalArgumentException("Cursor is no longer valid");
             }
-
-            return (direction == Sort.Direction.ASC) ? cmp : -cmp;
+            from = position;
+        } else if (resume != null) {
+            int found = Arrays.binarySearch(filteredRows, resume.lastRow());
+            if (found < 0) {
+                throw new IllegalArgumentException("Cursor is no longer valid");
+            }
+            from = found + 1;
         }
+        int end = (int) Math.min((long) from + limit, filteredRows.length);
+        int[] rows = Arrays.copyOfRange(ordered, from, Math.max(from, end));
+        String next = end < filteredRows.length ? new Cursor(generation, query, end, ordered[end - 1]).encode() : null;
+        return new RowSlice(table, projection, rows, filteredRows.length, next);
     }
 
-
-    public void exportFilteredData(String filter, Writer writer) {
-        // Note: Export does NOT use sorting from the UI. This is usually desired.
-        List<Map<String, Object>> filteredRows = getFilteredData(filter);
-        csvExporter.export(userSessionData.getHeaders(), filteredRows, writer);
+    // The first 64 bits of the key's SHA-256
+    private static long digest(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(hash).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JDK has SHA-256
+        }
     }
 
-    private List<Map<String, Object>> getFilteredData(String filter) {
-        if (filter == null || filter.isBlank()) {
-            return userSessionData.getAllRows();
+    // Opaque to clients: base64url of "generation:query:position:lastRow"
+    private record Cursor(long generation, long query, int position, int lastRow) {
+        String encode() {
+            String plain = generation + ":" + query + ":" + position + ":" + lastRow;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.US_ASCII));
         }
 
-        // 1. Tokenize
-        Tokenizer tokenizer = new Tokenizer(filter);
-        List<Token> tokens = tokenizer.tokenize();
-
-        // 2. Parse (Build AST)
-        Parser parser = new Parser(tokens, userSessionData.getColumnNames());
-        Expression ast = parser.parse();
-
-        // 3. Evaluate
-        Evaluator evaluator = new Evaluator(userSessionData.getSchema());
-        return userSessionData.getAllRows().stream()
-                .filter(row -> {
-                    try {
-                        return evaluator.evaluate(ast, row);
-                    } catch (FilterException e) {
-                        return false;
-                    }
-                })
-                .collect(Collectors.toList());
+        static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+                return new Cursor(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]),
+                        Integer.parseInt(parts[3]));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
     }
 }
@@ -0,0 +1,100 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.csv.CsvExporter;
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.table.DataTable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Writes the filtered, sorted rows of the session's table as CSV
+@Service
+public class ExportService {
+
+    private final UserSessionData userSessionData;
+    private final FilterService filterService;
+    private final SortService sortService;
+    private final CsvExporter csvExporter;
+    private final DataMetrics metrics;
+
+    public ExportService(UserSessionData userSessionData, FilterService filterService, SortService sortService,
+                         CsvExporter csvExporter, DataMetrics metrics) {
+        this.userSessionData = userSessionData;
+        this.filterService = filterService;
+        this.sortService = sortService;
+        this.csvExporter = csvExporter;
+        this.metrics = metrics;
+    }
+
+    // Rows ready to be written out. Preparing one reads the session, so it must happen on a request
+    // thread; writing it only reads the table and may happen on any thread.
+    @FunctionalInterface
+    public interface Export {
+        void writeTo(Writer writer);
+    }
+
+    public void exportFilteredData(String filter, Sort sort, Writer writer) {
+        prepareExport(filter, sort, null).writeTo(writer);
+    }
+
+    // Writes the filtered rows as they are found, without collecting them first, unless they are
+    // cached already. A sorted export needs the full sort order, computed and cached as for the view.
+    // The filter is parsed and checked here, so errors surface before anything is written.
+    // Only the given columns are written (all of them when null or empty).
+    public Export prepareExport(String filter, Sort sort, List<String> columns) {
+        DataTable table = userSessionData.getTable();
+        int[] projection = FilterService.projection(table, columns);
+        filterService.loadColumns(table, filter, sort, projection);
+        String filterKey = FilterService.filterKey(filter);
+        IntStream rows;
+        if (sort.isSorted()) {
+            int[] filteredRows = filterService.filteredRows(table, filter, filterKey);
+            rows = IntStream.of(sortService.sortedRows(table, filterKey, filteredRows, sort, filteredRows.length));
+        } else {
+            rows = filterService.streamFilteredRows(table, filter, filterKey);
+        }
+        return writer -> {
+            long start = System.nanoTime();
+            CharCounter counted = new CharCounter(writer);
+            long written = csvExporter.export(table, projection, rows, counted);
+            long nanos = DataMetrics.since(start);
+            metrics.exportRows.increment(written);
+            metrics.exportChars.increment(counted.count);
+            DataMetrics.record(metrics.exportRowRate, written, nanos);
+            DataMetrics.record(metrics.exportCharRate, counted.count, nanos);
+        };
+    }
+
+    // Counts the characters an export writes. The exporter hands over whole buffers, so this adds
+    // one addition per 64K characters.
+    private static final class CharCounter extends FilterWriter {
+        long count;
+
+        CharCounter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            super.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            super.write(cbuf, off, len);
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            super.write(str, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.parser.BitmapFilter;
+import com.example.csvfilter.parser.BlockFilter;
+import com.example.csvfilter.parser.BlockMatch;
+import com.example.csvfilter.parser.RowPredicate;
+import com.example.csvfilter.table.ZoneMap;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.stream.IntStream;
+
+// Runs a compiled filter over a row range and returns the matching rows in order.
+// Large tables are split into chunks that are filtered on a dedicated, fixed-size
+// fork/join pool, so a big filter never borrows Tomcat's request threads.
+// Within a chunk, blocks that the block filter rules out or in are not tested row by row; the
+// others are tested a row at a time, or a block at a time with a BitmapFilter.
+// The same pool runs other per-chunk work over a selection, such as aggregation, through reduce.
+@Component
+public class FilterExecutor {
+
+    static final int CHUNK_SIZE = 16 * ZoneMap.BLOCK_SIZE;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public FilterExecutor(@Value("${csvfilter.filter.parallel-threshold:200000}") int parallelThreshold,
+                          @Value("${csvfilter.filter.parallelism:0}") int parallelism) {
+        this.parallelThreshold = parallelThreshold;
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = threads > 1 ? new ForkJoinPool(threads, FilterExecutor::newWorker, null, false) : null;
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("filter-worker-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    // Row indexes in [0, rowCount) that match, in ascending order
+    public int[] select(int rowCount, RowPredicate predicate) {
+        return select(rowCount, predicate, BlockFilter.constant(BlockMatch.SOME));
+    }
+
+    public int[] select(int rowCount, RowPredicate predicate, BlockFilter blocks) {
+        return select(rowCount, rows(predicate), blocks);
+    }
+
+    // The same with a filter that tests a block's rows at once
+    public int[] select(int rowCount, BitmapFilter filter, BlockFilter blocks) {
+        return select(rowCount, bitmap(filter), blocks);
+    }
+
+    private int[] select(int rowCount, BlockSelector selector, BlockFilter blocks) {
+        if (pool == null || rowCount < parallelThreshold) {
+            return selectRange(selector, blocks, 0, rowCount);
+        }
+        int chunks = (rowCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int[][] selections = new int[chunks][];
+        pool.invoke(new SelectChunks(selector, blocks, rowCount, selections, 0, chunks));
+        return concat(selections);
+    }
+
+    // The rows of an earlier selection that also match, in order
+    public int[] refine(int[] rows, RowPredicate predicate) {
+        return reduce(rows.length, (from, to) -> {
+            int[] selection = new int[to - from];
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(rows[i])) selection[count++] = rows[i];
+            }
+            return count == selection.length ? selection : Arrays.copyOf(selection, count);
+        }, (left, right) -> concat(new int[][]{left, right}));
+    }
+
+    // Work on the positions [from, to) of a selection
+    @FunctionalInterface
+    public interface ChunkTask<T> {
+        T run(int from, int to);
+    }
+
+    // Runs a task over positions [0, size) and merges the results of adjacent chunks, the earlier
+    // one on the left. Large inputs are split into chunks that run, and merge, on the pool.
+    public <T> T reduce(int size, ChunkTask<T> task, BinaryOperator<T> merge) {
+        if (pool == null || size < parallelThreshold) {
+            return task.run(0, size);
+        }
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return pool.invoke(new ReduceChunks<>(task, merge, size, 0, chunks));
+    }
+
+    // Sequential and lazy version of select, for consumers that handle one row at a time and
+    // should not hold the whole selection, such as an export
+    public static IntStream stream(int rowCount, RowPredicate predicate, BlockFilter blocks) {
+        return IntStream.range(0, ZoneMap.blockCount(rowCount)).flatMap(block -> {
+            int start = block * ZoneMap.BLOCK_SIZE;
+            int end = Math.min(start + ZoneMap.BLOCK_SIZE, rowCount);
+            return switch (blocks.match(block)) {
+                case NONE -> IntStream.empty();
+                case ALL -> IntStream.range(start, end);
+                case SOME -> IntStream.range(start, end).filter(predicate::test);
+            };
+        });
+    }
+
+    // Appends the matching rows of [start, end), a block or the end of one, to the selection from
+    // position `count`, which has room for all of them; returns the new count
+    @FunctionalInterface
+    private interface BlockSelector {
+        int select(int start, int end, int[] selection, int count);
+    }
+
+    private static BlockSelector rows(RowPredicate predicate) {
+        return (start, end, selection, count) -> {
+            for (int row = start; row < end; row++) {
+                if (predicate.test(row)) selection[count++] = row;
+            }
+            return count;
+        };
+    }
+
+    private static BlockSelector bitmap(BitmapFilter filter) {
+        return (start, end, selection, count) -> {
+            long[] words = new long[ZoneMap.BLOCK_SIZE / 64];
+            filter.select(start, end, words);
+            for (int w = 0; w < words.length; w++) {
+                int base = start + (w << 6);
+                for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                    selection[count++] = base + Long.numberOfTrailingZeros(bits);
+                }
+            }
+            return count;
+        };
+    }
+
+    // `from` must be at a block boundary
+    private static int[] selectRange(BlockSelector selector, BlockFilter blocks, int from, int to) {
+        int[] selection = new int[Math.min(to - from, 1024)];
+        int count = 0;
+        for (int start = from; start < to; start += ZoneMap.BLOCK_SIZE) {
+            int end = Math.min(start + ZoneMap.BLOCK_SIZE, to);
+            BlockMatch match = blocks.match(start / ZoneMap.BLOCK_SIZE);
+            if (match == BlockMatch.NONE) {
+                continue;
+            }
+            if (selection.length - count < end - start) {
+                selection = Arrays.copyOf(selection, Math.min(to - from, Math.max(count * 2, count + end - start)));
+            }
+            if (match == BlockMatch.ALL) {
+                for (int row = start; row < end; row++) selection[count++] = row;
+            } else {
+                count = selector.select(start, end, selection, count);
+            }
+        }
+        return count == selection.length ? selection : Arrays.copyOf(selection, count);
+    }
+
+    // Chunk selection vectors are already ordered, so merging is a concatenation
+    private static int[] concat(int[][] selections) {
+        int total = 0;
+        for (int[] selection : selections) total += selection.length;
+        int[] result = new int[total];
+        int offset = 0;
+        for (int[] selection : selections) {
+            System.arraycopy(selection, 0, result, offset, selection.length);
+            offset += selection.length;
+        }
+        return result;
+    }
+
+    private static class SelectChunks extends RecursiveAction {
+        private final BlockSelector selector;
+        private final BlockFilter blocks;
+        private final int rowCount;
+        private final int[][] selections;
+        private final int fromChunk;
+        private final int toChunk;
+
+        SelectChunks(BlockSelector selector, BlockFilter blocks, int rowCount, int[][] selections, int fromChunk, int toChunk) {
+            this.selector = selector;
+            this.blocks = blocks;
+            this.rowCount = rowCount;
+            this.selections = selections;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk == 1) {
+                int from = fromChunk * CHUNK_SIZE;
+                selections[fromChunk] = selectRange(selector, blocks, from, Math.min(from + CHUNK_SIZE, rowCount));
+                return;
+            }
+            int middle = (fromChunk + toChunk) >>> 1;
+            invokeAll(new SelectChunks(selector, blocks, rowCount, selections, fromChunk, middle),
+                    new SelectChunks(selector, blocks, rowCount, selections, middle, toChunk));
+        }
+    }
+
+    private static class ReduceChunks<T> extends RecursiveTask<T> {
+        private final ChunkTask<T> task;
+        private final BinaryOperator<T> merge;
+        private final int size;
+        private final int fromChunk;
+        private final int toChunk;
+
+        ReduceChunks(ChunkTask<T> task, BinaryOperator<T> merge, int size, int fromChunk, int toChunk) {
+            this.task = task;
+            this.merge = merge;
+            this.size = size;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected T compute() {
+            if (toChunk - fromChunk == 1) {
+                int from = fromChunk * CHUNK_SIZE;
+                return task.run(from, Math.min(from + CHUNK_SIZE, size));
+            }
+            int middle = (fromChunk + toChunk) >>> 1;
+            ReduceChunks<T> right = new ReduceChunks<>(task, merge, size, middle, toChunk);
+            right.fork();
+            T left = new ReduceChunks<>(task, merge, size, fromChunk, middle).compute();
+            return merge.apply(left, right.join());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
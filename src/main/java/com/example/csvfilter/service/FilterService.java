@@ -0,0 +1,292 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.model.FilterHistory;
+import com.example.csvfilter.model.FilterResultCache;
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.parser.BitmapFilter;
+import com.example.csvfilter.parser.BitmapFilterCompiler;
+import com.example.csvfilter.parser.BlockFilter;
+import com.example.csvfilter.parser.BlockFilterCompiler;
+import com.example.csvfilter.parser.FilterCompiler;
+import com.example.csvfilter.parser.FilterPlanner;
+import com.example.csvfilter.parser.FilterShape;
+import com.example.csvfilter.parser.IndexPlanner;
+import com.example.csvfilter.parser.Parser;
+import com.example.csvfilter.parser.ReferencedColumns;
+import com.example.csvfilter.parser.Refinement;
+import com.example.csvfilter.parser.RowPredicate;
+import com.example.csvfilter.parser.Token;
+import com.example.csvfilter.parser.Tokenizer;
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.NumericKernels;
+import com.example.csvfilter.table.StringIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// The rows a filter selects in the session's table. Results are cached per session under a key
+// that ignores formatting; a filter that narrows a cached one only tests its extra terms on the
+// cached rows, string terms are answered from indexes where possible, and everything else is a
+// scan that skips blocks its zone maps decide.
+// Also loads, ahead of a request, the columns of a lazily loaded table that the request reads.
+@Service
+public class FilterService {
+
+    private final UserSessionData userSessionData;
+    private final FilterExecutor filterExecutor;
+    private final DataMetrics metrics;
+    private final boolean indexesEnabled;
+    private final NumericKernels kernels;
+
+    public FilterService(UserSessionData userSessionData, FilterExecutor filterExecutor, DataMetrics metrics,
+                         @Value("${csvfilter.index.enabled:true}") boolean indexesEnabled,
+                         @Value("${csvfilter.filter.kernels:auto}") String kernels) {
+        this.userSessionData = userSessionData;
+        this.filterExecutor = filterExecutor;
+        this.metrics = metrics;
+        this.indexesEnabled = indexesEnabled;
+        this.kernels = NumericKernels.named(kernels);
+    }
+
+    int[] filteredRows(DataTable table, String filter, String filterKey) {
+        FilterResultCache cache = userSessionData.getResultCache();
+        int[] rows = cache.get(filterKey);
+        if (rows != null) {
+            metrics.filterHits.increment();
+            return rows;
+        }
+        metrics.filterMisses.increment();
+
+        if (filterKey.isEmpty()) {
+            rows = IntStream.range(0, table.rowCount()).toArray();
+        } else {
+            long start = System.nanoTime();
+            // 1. Tokenize, parse and plan: constants folded, cheap and selective AND terms first
+            Expression ast = plan(table, filter);
+
+            // 2. Compile against this table's column types (which also type-checks the whole filter)
+            RowPredicate predicate = new FilterCompiler(table).compile(ast);
+
+            // 3. A filter that narrows a cached one only tests its extra terms, on the cached rows.
+            //    Otherwise answer string terms from indexes where possible, else scan (in parallel
+            //    for large tables), skipping blocks whose min/max statistics decide the filter
+            Refined refined = refinement(table, ast);
+            IntStream indexed = refined == null && indexesEnabled ? streamWithIndexes(table, ast) : null;
+            String access;
+            if (refined != null) {
+                rows = refined.residual() == null ? refined.base() : filterExecutor.refine(refined.base(), refined.residual());
+                access = "refine";
+            } else if (indexed != null) {
+                rows = indexed.toArray();
+                access = "index";
+            } else {
+                BlockFilter blocks = new BlockFilterCompiler(table).compile(ast);
+                rows = scan(table, ast, predicate, blocks);
+                access = "scan";
+            }
+            metrics.filter(FilterShape.of(table, ast), access).record(DataMetrics.since(start), TimeUnit.NANOSECONDS);
+            userSessionData.getFilterHistory().add(filterKey, ast);
+        }
+        cache.put(filterKey, rows);
+        return rows;
+    }
+
+    // The rows of a cached result, or else the matching rows as they are found, without
+    // collecting them first
+    IntStream streamFilteredRows(DataTable table, String filter, String filterKey) {
+        int[] cached = userSessionData.getResultCache().get(filterKey);
+        (cached != null ? metrics.filterHits : metrics.filterMisses).increment();
+        if (cached != null) {
+            return IntStream.of(cached);
+        }
+        if (filterKey.isEmpty()) {
+            return IntStream.range(0, table.rowCount());
+        }
+        Expression ast = plan(table, filter);
+        RowPredicate predicate = new FilterCompiler(table).compile(ast);
+        Refined refined = refinement(table, ast);
+        if (refined != null) {
+            return refined.residual() == null ? IntStream.of(refined.base())
+                    : IntStream.of(refined.base()).filter(refined.residual()::test);
+        }
+        IntStream rows = indexesEnabled ? streamWithIndexes(table, ast) : null;
+        if (rows == null) {
+            rows = FilterExecutor.stream(table.rowCount(), predicate, new BlockFilterCompiler(table).compile(ast));
+        }
+        return rows;
+    }
+
+    // The matching rows of a table that is not the session's own, such as the snapshot of an
+    // upload still loading: nothing is cached and no indexes are built for it
+    int[] uncachedRows(DataTable table, String filter) {
+        if (filterKey(filter).isEmpty()) {
+            return IntStream.range(0, table.rowCount()).toArray();
+        }
+        Expression ast = plan(table, filter);
+        RowPredicate predicate = new FilterCompiler(table).compile(ast);
+        return scan(table, ast, predicate, new BlockFilterCompiler(table).compile(ast));
+    }
+
+    // The plan a filter runs with, one line per AND/OR chain and term in evaluation order, with
+    // the estimated fraction of rows selected and cost per row
+    public String explain(String filter) {
+        DataTable table = userSessionData.getTable();
+        if (filterKey(filter).isEmpty()) {
+            return "all rows\n";
+        }
+        loadColumns(table, filter, Sort.unsorted(), new int[0]);
+        FilterPlanner.Plan plan = FilterPlanner.plan(table, parse(filter));
+        new FilterCompiler(table).compile(plan.expression()); // Reports type errors as filtering would
+        return plan.explain();
+    }
+
+    // Loads the columns a request will read, of a table that has columns still to load, in one
+    // read of its source rather than one per column as each is first touched: those the filter
+    // references, the sort columns and the projected ones
+    void loadColumns(DataTable table, String filter, Sort sort, int[] projection) {
+        if (table.source() == null) {
+            return;
+        }
+        Set<Integer> needed = new LinkedHashSet<>();
+        if (!filterKey(filter).isEmpty()) {
+            for (String name : ReferencedColumns.of(parse(filter))) {
+                needed.add(table.columnIndex(name));
+            }
+        }
+        for (Sort.Order order : sort) {
+            needed.add(table.columnIndex(order.getProperty()));
+        }
+        for (int column : projection) {
+            needed.add(column);
+        }
+        needed.remove(-1);
+        table.materialize(needed.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    // Indexes of the named columns in the given order, skipping unknown names; every column when
+    // none are named
+    static int[] projection(DataTable table, List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            return IntStream.range(0, table.columnCount()).toArray();
+        }
+        return columns.stream().mapToInt(table::columnIndex).filter(column -> column >= 0).toArray();
+    }
+
+    // Filters that differ only in whitespace, keyword case or "=" vs "==" share a cache key
+    static String filterKey(String filter) {
+        if (filter == null || filter.isBlank()) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        for (Token token : new Tokenizer(filter).tokenize()) {
+            switch (token.type()) {
+                case EOF -> { }
+                case IDENTIFIER -> key.append('`').append(token.lexeme()).append("` ");
+                case STRING -> key.append('"').append(token.literal()).append("\" ");
+                case NUMBER -> key.append(token.literal()).append(' ');
+                default -> key.append(token.type()).append(' ');
+            }
+        }
+        return key.toString().trim();
+    }
+
+    // Every row that matches, block by block. Filters with numeric comparisons run them through
+    // the filter kernels, over all rows of a block at once; the others test one row at a time.
+    private int[] scan(DataTable table, Expression ast, RowPredicate predicate, BlockFilter blocks) {
+        BitmapFilter bitmap = new BitmapFilterCompiler(table, kernels).compile(ast);
+        return bitmap != null ? filterExecutor.select(table.rowCount(), bitmap, blocks)
+                : filterExecutor.select(table.rowCount(), predicate, blocks);
+    }
+
+    // Cached rows of an earlier filter, and the terms still to test on them (null when none are)
+    private record Refined(int[] base, RowPredicate residual) {
+    }
+
+    // The smallest cached result of a recent filter that `ast` narrows, or null if there is none
+    private Refined refinement(DataTable table, Expression ast) {
+        FilterResultCache cache = userSessionData.getResultCache();
+        int[] base = null;
+        List<Expression> residual = null;
+        for (FilterHistory.Entry entry : userSessionData.getFilterHistory().entries()) {
+            int[] rows = cache.peek(entry.key());
+            if (rows == null || (base != null && rows.length >= base.length)) {
+                continue;
+            }
+            List<Expression> terms = Refinement.residual(ast, entry.filter());
+            if (terms != null) {
+                base = rows;
+                residual = terms;
+            }
+        }
+        if (base == null) {
+            return null;
+        }
+        metrics.refinements.increment();
+        return new Refined(base, residual.isEmpty() ? null : conjunction(new FilterCompiler(table), residual));
+    }
+
+    private static RowPredicate conjunction(FilterCompiler compiler, List<Expression> terms) {
+        RowPredicate all = RowPredicate.constant(true);
+        for (Expression term : terms) {
+            RowPredicate previous = all;
+            RowPredicate next = compiler.compile(term);
+            all = row -> previous.test(row) && next.test(row);
+        }
+        return all;
+    }
+
+    private Expression parse(String filter) {
+        List<Token> tokens = new Tokenizer(filter).tokenize();
+        return new Parser(tokens, userSessionData.getColumnNames()).parse();
+    }
+
+    private Expression plan(DataTable table, String filter) {
+        return FilterPlanner.plan(table, parse(filter)).expression();
+    }
+
+    // AND terms that string indexes can answer narrow the candidate rows; the other terms are
+    // tested on those rows only. Null when no term can be answered from an index.
+    private IntStream streamWithIndexes(DataTable table, Expression ast) {
+        IndexPlanner planner = new IndexPlanner(table, (column, kind) -> stringIndex(table, column, kind));
+        BitSet candidates = null;
+        List<Expression> residual = new ArrayList<>();
+        for (Expression term : IndexPlanner.conjuncts(ast)) {
+            BitSet matches = planner.lookup(term);
+            (matches != null ? metrics.termsIndexed : metrics.termsScanned).increment();
+            if (matches == null) {
+                residual.add(term);
+            } else if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.and(matches);
+            }
+        }
+        if (candidates == null) {
+            return null;
+        }
+
+        RowPredicate rest = conjunction(new FilterCompiler(table), residual);
+        return residual.isEmpty() ? candidates.stream() : candidates.stream().filter(rest::test);
+    }
+
+    // The session's index for a string column, with `kind` built; build time and size go to metrics
+    private StringIndex stringIndex(DataTable table, int column, StringIndex.Kind kind) {
+        StringIndex index = userSessionData.getStringIndexes().get(table, column);
+        for (StringIndex.Kind part : List.of(StringIndex.Kind.POSTINGS, kind)) {
+            if (!index.isBuilt(part)) {
+                metrics.indexBuild(part).record(() -> index.build(part));
+                metrics.indexMemory(part).record(index.estimatedBytes(part));
+            }
+        }
+        return index;
+    }
+}
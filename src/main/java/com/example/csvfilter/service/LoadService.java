@@ -0,0 +1,179 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.csv.CsvParser;
+import com.example.csvfilter.csv.LazyCsvLoader;
+import com.example.csvfilter.csv.ParallelCsvParser;
+import com.example.csvfilter.csv.TableLoader;
+import com.example.csvfilter.csv.TypeInferrer;
+import com.example.csvfilter.model.UploadJob;
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.table.DataTable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+// Turns uploaded CSV into the session's table: parsed sequentially, in parallel chunks or column
+// by column on demand, admitted by the memory governor and placed by TableStorage
+@Service
+public class LoadService {
+
+    private final UserSessionData userSessionData;
+    private final CsvParser csvParser;
+    private final ParallelCsvParser parallelCsvParser;
+    private final LazyCsvLoader lazyCsvLoader;
+    private final TypeInferrer typeInferrer;
+    private final TableStorage tableStorage;
+    private final MemoryGovernor memoryGovernor;
+    private final DataMetrics metrics;
+    private final boolean parallelParsing;
+    private final boolean lazyColumns;
+
+    public LoadService(UserSessionData userSessionData, CsvParser csvParser, ParallelCsvParser parallelCsvParser,
+                       LazyCsvLoader lazyCsvLoader, TypeInferrer typeInferrer, TableStorage tableStorage,
+                       MemoryGovernor memoryGovernor, DataMetrics metrics,
+                       @Value("${csvfilter.parser.parallel:false}") boolean parallelParsing,
+                       @Value("${csvfilter.load.lazy-columns:false}") boolean lazyColumns) {
+        this.userSessionData = userSessionData;
+        this.csvParser = csvParser;
+        this.parallelCsvParser = parallelCsvParser;
+        this.lazyCsvLoader = lazyCsvLoader;
+        this.typeInferrer = typeInferrer;
+        this.tableStorage = tableStorage;
+        this.memoryGovernor = memoryGovernor;
+        this.metrics = metrics;
+        this.parallelParsing = parallelParsing;
+        this.lazyColumns = lazyColumns;
+    }
+
+    public void loadAndStoreCsv(InputStream inputStream) {
+        loadAndStoreCsv(inputStream, -1);
+    }
+
+    // `size` is the length of the file when known, for the memory governor to admit the load
+    public void loadAndStoreCsv(InputStream inputStream, long size) {
+        try (MemoryGovernor.Admission admission = memoryGovernor.admit(size)) {
+            DataTable table = loadTable(inputStream, null);
+
+            // The previous table stays until the new one is stored, so a failed load leaves it in
+            // place; setData then releases it
+            TableStorage.Stored stored;
+            try {
+                stored = tableStorage.store(table);
+            } catch (IOException e) {
+                throw new RuntimeException("Error storing CSV data: " + e.getMessage(), e);
+            }
+            userSessionData.setData(stored.table(), stored.release());
+        }
+    }
+
+    // Parses and types a whole upload. With a job, the sequential path reports rows and publishes
+    // snapshots to it as it goes; the parallel and lazy paths only have rows to report at the end.
+    // With lazy columns, no column is built until a request reads it.
+    // Only the sequential path can tell type inference and column building from parsing; the
+    // parse stage of the others covers all three.
+    DataTable loadTable(InputStream inputStream, UploadJob job) {
+        long start = System.nanoTime();
+        ByteCounter counted = new ByteCounter(inputStream);
+        DataTable table;
+        if (lazyColumns) {
+            table = lazyCsvLoader.load(counted);
+            metrics.parse.record(DataMetrics.since(start), TimeUnit.NANOSECONDS);
+        } else if (parallelParsing) {
+            table = parallelCsvParser.load(counted);
+            metrics.parse.record(DataMetrics.since(start), TimeUnit.NANOSECONDS);
+        } else {
+            // Single pass: records are typed and stored as they are read
+            TableLoader loader = new TableLoader(typeInferrer);
+            csvParser.parse(counted, job != null ? new ProgressHandler(loader, job) : loader);
+            long parsed = System.nanoTime();
+            long inferredWhileParsing = loader.inferenceNanos();
+            table = loader.finish();
+            long inferredAtFinish = loader.inferenceNanos() - inferredWhileParsing;
+            metrics.parse.record(parsed - start - inferredWhileParsing, TimeUnit.NANOSECONDS);
+            metrics.infer.record(loader.inferenceNanos(), TimeUnit.NANOSECONDS);
+            metrics.build.record(DataMetrics.since(parsed) - inferredAtFinish, TimeUnit.NANOSECONDS);
+        }
+        if (table.rowCount() == 0) {
+            throw new IllegalArgumentException("CSV file is empty or invalid.");
+        }
+        long nanos = DataMetrics.since(start);
+        metrics.ingestRows.increment(table.rowCount());
+        metrics.ingestBytes.increment(counted.count);
+        DataMetrics.record(metrics.ingestRowRate, table.rowCount(), nanos);
+        DataMetrics.record(metrics.ingestByteRate, counted.count, nanos);
+        return table;
+    }
+
+    // Counts the bytes a load reads, which all happens on the loading thread
+    private static final class ByteCounter extends FilterInputStream {
+        long count;
+
+        ByteCounter(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    // Passes records on to a loader and keeps a job up to date. Snapshots are taken each time the
+    // row count doubles, from FIRST_SNAPSHOT_ROWS on, so copying them costs at most about one
+    // extra pass over the table.
+    private static final class ProgressHandler implements CsvParser.RecordHandler {
+        private static final int FIRST_SNAPSHOT_ROWS = 1000;
+
+        private final TableLoader loader;
+        private final UploadJob job;
+        private int nextSnapshot = FIRST_SNAPSHOT_ROWS;
+
+        ProgressHandler(TableLoader loader, UploadJob job) {
+            this.loader = loader;
+            this.job = job;
+        }
+
+        @Override
+        public void headers(String[] headers) {
+            loader.headers(headers);
+        }
+
+        @Override
+        public void record(String[] values) {
+            if (!job.isRunning()) {
+                throw new IllegalStateException(job.error()); // Cancelled
+            }
+            loader.record(values);
+            int rows = loader.rowCount();
+            if (rows >= nextSnapshot) {
+                DataTable snapshot = loader.snapshot();
+                if (snapshot != null) {
+                    job.publish(snapshot);
+                    nextSnapshot = rows * 2;
+                }
+            } else if ((rows & 1023) == 0) {
+                job.setRows(rows);
+            }
+        }
+    }
+}
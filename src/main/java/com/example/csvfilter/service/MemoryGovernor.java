@@ -0,0 +1,210 @@
+package com.example.csvfilter.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Keeps the heap that all sessions' tables take, together with the uploads being loaded, within
+// one budget for the process. An upload is admitted with an estimate of the heap loading it takes,
+// LOAD_FACTOR times its size, which it holds until its table is stored; from then on the table's
+// own heap counts, as TableStorage reserved it. An upload that does not fit first makes room by
+// spilling the tables of sessions idle for at least min-idle into mapped files, least recently
+// used first; failing that it waits for up to queue-timeout for uploads and sessions to finish,
+// and is refused after that, as is an upload larger than the whole budget.
+// Apart from uploads, tables idle for idle-timeout are spilled by a periodic sweep. A spilled
+// table is read from its file on the session's next request, without a reload.
+@Component
+public class MemoryGovernor {
+
+    // Heap per byte of CSV while loading: the typed columns, with the slack of their growing
+    // arrays, next to the records being parsed
+    static final int LOAD_FACTOR = 3;
+    // How often a queued upload checks again for tables released without notice
+    private static final long RECHECK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Held by an admitted upload until its table is stored, or it fails
+    @FunctionalInterface
+    public interface Admission extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final TableStorage tableStorage;
+    private final long budget;
+    private final long queueTimeoutNanos;
+    private final long minIdleNanos;
+    private final long idleTimeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    // Estimates of the uploads being loaded; guarded by lock
+    private long loading;
+    private int queued;
+    private final Counter admitted;
+    private final Counter admittedAfterWait;
+    private final Counter refused;
+    private final Counter idleEvictions;
+    private final Counter pressureEvictions;
+    private final Counter evictedBytes;
+    private final ScheduledExecutorService sweeper;
+
+    public MemoryGovernor(TableStorage tableStorage, MeterRegistry meterRegistry,
+                          @Value("${csvfilter.governor.budget-bytes:536870912}") long budget,
+                          @Value("${csvfilter.governor.queue-timeout-ms:30000}") long queueTimeout,
+                          @Value("${csvfilter.governor.min-idle-ms:30000}") long minIdle,
+                          @Value("${csvfilter.governor.idle-timeout-ms:600000}") long idleTimeout,
+                          @Value("${csvfilter.governor.sweep-interval-ms:60000}") long sweepInterval) {
+        this.tableStorage = tableStorage;
+        this.budget = budget;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+        this.minIdleNanos = TimeUnit.MILLISECONDS.toNanos(minIdle);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+
+        Gauge.builder("csvfilter.governor.budget", () -> budget).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("csvfilter.governor.used", this, MemoryGovernor::used).baseUnit("bytes")
+                .description("Heap of the tables held plus the estimates of the uploads being loaded")
+                .register(meterRegistry);
+        Gauge.builder("csvfilter.governor.loading", this, governor -> governor.locked(() -> governor.loading))
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("csvfilter.governor.queued", this, governor -> governor.locked(() -> (long) governor.queued))
+                .register(meterRegistry);
+        admitted = meterRegistry.counter("csvfilter.governor.admissions", "result", "admitted");
+        admittedAfterWait = meterRegistry.counter("csvfilter.governor.admissions", "result", "queued");
+        refused = meterRegistry.counter("csvfilter.governor.admissions", "result", "refused");
+        idleEvictions = meterRegistry.counter("csvfilter.governor.evictions", "reason", "idle");
+        pressureEvictions = meterRegistry.counter("csvfilter.governor.evictions", "reason", "pressure");
+        evictedBytes = Counter.builder("csvfilter.governor.evicted").baseUnit("bytes").register(meterRegistry);
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("memory-governor").daemon().factory());
+        if (sweepInterval > 0) {
+            sweeper.scheduleWithFixedDelay(this::sweep, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    // Admits an upload of `size` bytes of CSV (negative when unknown, which reserves nothing),
+    // waiting for room if need be. Throws IllegalStateException when it is refused.
+    public Admission admit(long size) {
+        long estimate = Math.max(0, size) * LOAD_FACTOR;
+        if (estimate > budget) {
+            refused.increment();
+            throw new IllegalStateException("The file needs about " + megabytes(estimate)
+                    + " MB of memory to load, more than the server allows (" + megabytes(budget) + " MB)");
+        }
+        long deadline = System.nanoTime() + queueTimeoutNanos;
+        boolean waited = false;
+        while (true) {
+            lock.lock();
+            try {
+                if (used() + estimate <= budget) {
+                    loading += estimate;
+                    (waited ? admittedAfterWait : admitted).increment();
+                    return () -> release(estimate);
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Spilling writes files, so it runs outside the lock
+            if (evict(used() + estimate - budget, minIdleNanos, pressureEvictions) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                refused.increment();
+                throw new IllegalStateException("The server is short of memory for this file; try again later");
+            }
+            waited = true;
+            lock.lock();
+            try {
+                queued++;
+                released.awaitNanos(Math.min(remaining, RECHECK_NANOS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for memory", e);
+            } finally {
+                queued--;
+                lock.unlock();
+            }
+        }
+    }
+
+    // Gives back an upload's estimate, or with 0 only wakes the queued uploads
+    private void release(long estimate) {
+        lock.lock();
+        try {
+            loading -= estimate;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Spills the tables idle for idle-timeout
+    void sweep() {
+        evict(Long.MAX_VALUE, idleTimeoutNanos, idleEvictions);
+    }
+
+    // Spills tables held on heap that have been idle for at least `minIdle`, least recently used
+    // first, until `needed` bytes are given back. Returns the bytes given back.
+    private long evict(long needed, long minIdle, Counter evictions) {
+        long now = System.nanoTime();
+        List<TableStorage.Dataset> candidates = tableStorage.datasets().stream()
+                .filter(dataset -> dataset.onHeap() && now - dataset.lastAccess() >= minIdle)
+                .sorted(Comparator.comparingLong(TableStorage.Dataset::lastAccess))
+                .toList();
+        long freed = 0;
+        for (TableStorage.Dataset dataset : candidates) {
+            if (freed >= needed) {
+                break;
+            }
+            try {
+                long bytes = tableStorage.spill(dataset);
+                if (bytes > 0) {
+                    freed += bytes;
+                    evictions.increment();
+                    evictedBytes.increment(bytes);
+                }
+            } catch (IOException | RuntimeException e) {
+                // The table stays on heap; the next candidate may still make room
+            }
+        }
+        if (freed > 0) {
+            release(0);
+        }
+        return freed;
+    }
+
+    // Heap of the tables held plus the estimates of the uploads being loaded
+    private long used() {
+        return tableStorage.heapBytes() + locked(() -> loading);
+    }
+
+    private long locked(LongSupplier read) {
+        lock.lock();
+        try {
+            return read.getAsLong();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long megabytes(long bytes) {
+        return (bytes + (1 << 20) - 1) >> 20;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.model.FilterResultCache;
+import com.example.csvfilter.model.SortIndexCache;
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.RowOrder;
+import com.example.csvfilter.table.RowSorter;
+import com.example.csvfilter.table.SortIndex;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.List;
+
+// Orders filtered rows for views, exports and the data API, caching the orders per session next to
+// the filter results they sort
+@Service
+public class SortService {
+
+    // Deepest position served by a top-K selection instead of a full sort
+    private static final int TOP_K_LIMIT = 10_000;
+    // Sort indexes are used when the filtered rows are at least this fraction (1/n) of the table
+    private static final int INDEX_MIN_FRACTION = 16;
+
+    private final UserSessionData userSessionData;
+    private final DataMetrics metrics;
+
+    public SortService(UserSessionData userSessionData, DataMetrics metrics) {
+        this.userSessionData = userSessionData;
+        this.metrics = metrics;
+    }
+
+    // Returns at least the first `needed` rows in sorted order. When the first sort column has a sort
+    // index the result is read off it; otherwise shallow pages are served by a top-K selection and
+    // deep pages by a full sort. Results are cached.
+    int[] sortedRows(DataTable table, String filterKey, int[] rows, Sort sort, int needed) {
+        FilterResultCache cache = userSessionData.getResultCache();
+        String sortKey = filterKey + " ORDER BY " + sort;
+        String topKey = sortKey + " TOP";
+        int[] sorted = cache.get(sortKey);
+        if (sorted != null) {
+            metrics.sortHits.increment();
+            return sorted;
+        }
+        boolean shallow = needed <= TOP_K_LIMIT;
+        if (shallow) {
+            int[] top = cache.get(topKey);
+            if (top != null && top.length >= needed) {
+                metrics.sortHits.increment();
+                return top;
+            }
+        }
+        metrics.sortMisses.increment();
+
+        List<Sort.Order> orders = sort.stream()
+                .filter(order -> table.columnIndex(order.getProperty()) >= 0)
+                .toList();
+        if (orders.isEmpty()) {
+            return rows;
+        }
+        // Fetch a few pages ahead so paging forward stays cached
+        int limit = shallow ? Math.min(needed * 4, TOP_K_LIMIT) : Integer.MAX_VALUE;
+
+        SortIndexCache sortIndexes = userSessionData.getSortIndexes();
+        Sort.Order first = orders.get(0);
+        int firstColumn = table.columnIndex(first.getProperty());
+        // Walking an index visits every row of the table, so selective filters sort their own rows
+        SortIndex index = null;
+        if (rows.length >= table.rowCount() / INDEX_MIN_FRACTION) {
+            index = sortIndexes.request(table, firstColumn, !shallow);
+        }
+
+        // Later orders only break ties of the first one; existing indexes compare by rank
+        RowOrder refine = null;
+        boolean allIndexed = true;
+        for (Sort.Order order : orders.subList(1, orders.size())) {
+            int column = table.columnIndex(order.getProperty());
+            SortIndex secondary = sortIndexes.get(column);
+            allIndexed &= secondary != null;
+            RowOrder next = secondary != null
+                    ? secondary.order(order.isAscending())
+                    : RowOrder.of(table.column(column), order.isAscending());
+            refine = refine == null ? next : refine.then(next);
+        }
+
+        if (index != null && allIndexed && refine != null && !shallow) {
+            sorted = sortByIndexes(table, orders, rows);
+        } else if (index != null) {
+            BitSet members = rows.length == table.rowCount() ? null : toBitSet(rows);
+            sorted = RowSorter.walk(index, first.isAscending(), members, refine, limit);
+        } else {
+            RowOrder rowOrder = RowOrder.of(table.column(firstColumn), first.isAscending());
+            if (refine != null) {
+                rowOrder = rowOrder.then(refine);
+            }
+            sorted = shallow ? RowSorter.topK(rows, limit, rowOrder) : RowSorter.sort(rows, rowOrder);
+        }
+        cache.put(sorted.length == rows.length ? sortKey : topKey, sorted);
+        return sorted;
+    }
+
+    // The first `needed` rows of a table that is not the session's own, such as the snapshot of an
+    // upload still loading, by a top-K selection that is not cached
+    static int[] uncachedTopRows(DataTable table, int[] rows, Sort sort, int needed) {
+        RowOrder order = null;
+        for (Sort.Order sortOrder : sort) {
+            int column = table.columnIndex(sortOrder.getProperty());
+            if (column < 0) continue;
+            RowOrder next = RowOrder.of(table.column(column), sortOrder.isAscending());
+            order = order == null ? next : order.then(next);
+        }
+        return order == null ? rows : RowSorter.topK(rows, needed, order);
+    }
+
+    // Full multi-column order when every sort column has an index: order by the last column,
+    // then regroup stably by each earlier one
+    private int[] sortByIndexes(DataTable table, List<Sort.Order> orders, int[] rows) {
+        SortIndexCache sortIndexes = userSessionData.getSortIndexes();
+        Sort.Order last = orders.get(orders.size() - 1);
+        BitSet members = rows.length == table.rowCount() ? null : toBitSet(rows);
+        int[] sorted = RowSorter.walk(sortIndexes.get(table.columnIndex(last.getProperty())), last.isAscending(),
+                members, null, Integer.MAX_VALUE);
+        for (int i = orders.size() - 2; i >= 0; i--) {
+            Sort.Order order = orders.get(i);
+            sorted = RowSorter.sortByRank(sorted, sortIndexes.get(table.columnIndex(order.getProperty())), order.isAscending());
+        }
+        return sorted;
+    }
+
+    private static BitSet toBitSet(int[] rows) {
+        BitSet bits = new BitSet(rows.length == 0 ? 0 : rows[rows.length - 1] + 1);
+        for (int row : rows) {
+            bits.set(row);
+        }
+        return bits;
+    }
+}
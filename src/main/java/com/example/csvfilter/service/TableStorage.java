@@ -0,0 +1,246 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.model.TableLease;
+import com.example.csvfilter.table.ColumnFile;
+import com.example.csvfilter.table.DataTable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Decides where uploaded tables live. A table stays on heap while the tables of all sessions fit
+// the heap budget; past it, its columns move into a memory-mapped temp file. Either way the caller
+// gets a handle that gives the heap back or deletes the file once the table is dropped. A table
+// with columns still to load is sized by the columns it has, and charged for the others as they
+// load while it is on heap; the handle also closes its source.
+// A table in a file keeps its dictionaries, null bitmaps and zone maps on heap, which count as its
+// heap from then on. The budget is the MemoryGovernor's, which also holds the uploads being loaded
+// within it.
+// Each session holds at most one table, so the tables held are also the sessions' datasets: their
+// count and the heap of the largest are gauges, next to the totals per location.
+// A table held on heap can be spilled into a file later, e.g. when its session has gone idle;
+// the handle is a TableLease, which tells the session to read the mapped table from then on.
+@Component
+public class TableStorage {
+
+    public record Stored(DataTable table, Closeable release) {
+    }
+
+    private final long heapBudget;
+    private final Path directory;
+    private final AtomicLong heapBytes = new AtomicLong();
+    private final AtomicLong mappedBytes = new AtomicLong();
+    // The tables held, until their handles release them
+    private final Set<Dataset> datasets = ConcurrentHashMap.newKeySet();
+    private final Timer stores;
+
+    // A table held by a session, on heap or in a mapped file. Compared by identity: tables of the
+    // same size are still different tables.
+    final class Dataset implements TableLease {
+        private final Closeable source;
+        private DataTable table;
+        // Charged to heapBytes: the whole table while on heap, what stays on heap once in a file
+        private long reserved;
+        // Charged to mappedBytes once in a file
+        private long mapped;
+        private ColumnFile file;
+        private boolean released;
+        // Whether the table was spilled after it was stored
+        private boolean moved;
+        private Consumer<DataTable> listener;
+        // Heap the table takes, its dictionaries and bitmaps only once it is in a file
+        private volatile long footprint;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Dataset(DataTable table, Closeable source, long reserved, ColumnFile file) {
+            this.table = table;
+            this.source = source;
+            this.reserved = reserved;
+            this.file = file;
+            this.mapped = file != null ? table.offHeapBytes() : 0;
+            this.footprint = table.estimatedBytes();
+        }
+
+        // Charges columns the table held on heap has loaded since it was last sized. Those spill
+        // loads to write the file count too, until the move gives them back with the rest.
+        private synchronized void loaded(DataTable from) {
+            if (released || file != null || table != from) {
+                return;
+            }
+            long bytes = from.estimatedBytes() - reserved;
+            if (bytes > 0) {
+                heapBytes.addAndGet(bytes); // Read by a query already, so taken even over the budget
+                reserved += bytes;
+                footprint = reserved;
+            }
+        }
+
+        @Override
+        public void touch() {
+            lastAccess = System.nanoTime();
+        }
+
+        // A table spilled before the listener came is delivered at once
+        @Override
+        public void onMove(Consumer<DataTable> listener) {
+            DataTable current;
+            synchronized (this) {
+                this.listener = listener;
+                current = moved ? table : null;
+            }
+            if (current != null) {
+                listener.accept(current);
+            }
+        }
+
+        // System.nanoTime() of the last access
+        long lastAccess() {
+            return lastAccess;
+        }
+
+        synchronized boolean onHeap() {
+            return file == null && !released;
+        }
+
+        @Override
+        public void close() throws IOException {
+            ColumnFile held;
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                datasets.remove(this);
+                heapBytes.addAndGet(-reserved);
+                mappedBytes.addAndGet(-mapped);
+                held = file;
+            }
+            try {
+                if (held != null) held.close();
+            } finally {
+                source.close();
+            }
+        }
+    }
+
+    public TableStorage(@Value("${csvfilter.governor.budget-bytes:536870912}") long heapBudget,
+                        @Value("${csvfilter.storage.dir:}") String directory,
+                        MeterRegistry meterRegistry) {
+        this.heapBudget = heapBudget;
+        this.directory = Path.of(directory.isEmpty() ? System.getProperty("java.io.tmpdir") : directory);
+        Gauge.builder("csvfilter.storage.bytes", heapBytes, AtomicLong::get).tag("location", "heap")
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("csvfilter.storage.bytes", mappedBytes, AtomicLong::get).tag("location", "mapped")
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("csvfilter.storage.datasets", datasets, Set::size).register(meterRegistry);
+        Gauge.builder("csvfilter.storage.dataset.largest", datasets,
+                        held -> held.stream().mapToLong(dataset -> dataset.footprint).max().orElse(0))
+                .description("Heap bytes of the largest table a session holds")
+                .baseUnit("bytes").register(meterRegistry);
+        stores = meterRegistry.timer("csvfilter.load", "stage", "store");
+    }
+
+    public Stored store(DataTable table) throws IOException {
+        long start = System.nanoTime();
+        Closeable source = table.source() != null ? table.source() : () -> { };
+        long bytes = table.estimatedBytes();
+        Dataset dataset;
+        if (reserve(bytes)) {
+            dataset = new Dataset(table, source, bytes, null);
+        } else {
+            ColumnFile file;
+            try {
+                file = write(table);
+            } catch (IOException | RuntimeException e) {
+                source.close();
+                throw e;
+            }
+            long heap = file.table().estimatedBytes();
+            heapBytes.addAndGet(heap); // Over the budget already, but taken all the same
+            dataset = new Dataset(file.table(), source, heap, file);
+            mappedBytes.addAndGet(dataset.mapped);
+        }
+        datasets.add(dataset);
+        if (dataset.file == null && table.source() != null) {
+            Dataset held = dataset;
+            table.onLoad(() -> held.loaded(table));
+            held.loaded(table); // Columns loaded before the listener was in place
+        }
+        stores.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Stored(dataset.table, dataset);
+    }
+
+    // Heap taken by the tables held, whether on heap or in a file
+    long heapBytes() {
+        return heapBytes.get();
+    }
+
+    List<Dataset> datasets() {
+        return List.copyOf(datasets);
+    }
+
+    // Moves a table held on heap into a mapped file and gives back the heap of its values. The
+    // session holding it reads the mapped table from then on; a request still reading the heap
+    // table finishes on it. Returns the heap bytes given back, 0 when the table was no longer on heap.
+    long spill(Dataset dataset) throws IOException {
+        DataTable table;
+        synchronized (dataset) {
+            if (!dataset.onHeap()) {
+                return 0;
+            }
+            table = dataset.table;
+        }
+        ColumnFile file = write(table); // Outside the lock, which closing the lease takes
+        long freed;
+        Consumer<DataTable> listener;
+        synchronized (dataset) {
+            if (!dataset.onHeap()) { // Released, or spilled by another caller
+                file.close();
+                return 0;
+            }
+            long heap = file.table().estimatedBytes(); // Only what the mapped columns keep on heap
+            heapBytes.addAndGet(heap - dataset.reserved);
+            freed = Math.max(0, dataset.reserved - heap);
+            dataset.reserved = heap;
+            dataset.file = file;
+            dataset.table = file.table();
+            dataset.moved = true;
+            dataset.mapped = file.table().offHeapBytes();
+            mappedBytes.addAndGet(dataset.mapped);
+            dataset.footprint = heap;
+            listener = dataset.listener;
+        }
+        if (listener != null) {
+            listener.accept(file.table());
+        }
+        return freed;
+    }
+
+    private ColumnFile write(DataTable table) throws IOException {
+        Files.createDirectories(directory);
+        return ColumnFile.write(table, directory);
+    }
+
+    private boolean reserve(long bytes) {
+        long used;
+        do {
+            used = heapBytes.get();
+            if (used + bytes > heapBudget) {
+                return false;
+            }
+        } while (!heapBytes.compareAndSet(used, used + bytes));
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.model.UploadJob;
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.table.DataTable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.aop.scope.ScopedObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Loads uploads in the background, so the request that carries the file returns right away.
+// The file is moved out of the multipart request into a spool file before the request ends, then
+// parsed on a virtual thread. At most `max-concurrent` uploads are parsed at once; later ones wait
+// for a permit without holding a platform thread.
+@Service
+public class UploadService {
+
+    private final LoadService loadService;
+    private final TableStorage tableStorage;
+    private final MemoryGovernor memoryGovernor;
+    private final Path spoolDirectory;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("upload-", 0).factory());
+
+    public UploadService(LoadService loadService, TableStorage tableStorage, MemoryGovernor memoryGovernor,
+                         @Value("${csvfilter.storage.dir:}") String spoolDirectory,
+                         @Value("${csvfilter.upload.max-concurrent:2}") int maxConcurrent) {
+        this.loadService = loadService;
+        this.tableStorage = tableStorage;
+        this.memoryGovernor = memoryGovernor;
+        this.spoolDirectory = Path.of(spoolDirectory.isEmpty() ? System.getProperty("java.io.tmpdir") : spoolDirectory);
+        this.permits = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Replaces the session's table with the upload once it is loaded; until then the session
+    // serves pages from the job's snapshots
+    public UploadJob submit(MultipartFile file, UserSessionData session) throws IOException {
+        // The scoped proxy only resolves on request threads; the job needs the session's own object
+        UserSessionData target = session instanceof ScopedObject scoped
+                ? (UserSessionData) scoped.getTargetObject() : session;
+        Files.createDirectories(spoolDirectory);
+        Path spool = Files.createTempFile(spoolDirectory, "csvfilter-upload-", ".csv");
+        try {
+            file.transferTo(spool);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), Files.size(spool));
+        target.startUpload(job);
+        executor.execute(() -> load(job, spool, target));
+        return job;
+    }
+
+    private void load(UploadJob job, Path spool, UserSessionData session) {
+        try {
+            permits.acquire();
+            // Waits, like the permit, while the server is short of memory, and fails the job if it stays so
+            try (MemoryGovernor.Admission admission = memoryGovernor.admit(Files.size(spool));
+                 InputStream in = new CountingInputStream(Files.newInputStream(spool), job)) {
+                if (!job.isRunning()) {
+                    return; // Cancelled while waiting
+                }
+                DataTable table = loadService.loadTable(in, job);
+                TableStorage.Stored stored = tableStorage.store(table);
+                if (!session.completeUpload(job, stored.table(), stored.release())) {
+                    stored.release().close(); // The session dropped this upload meanwhile
+                }
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Upload interrupted");
+        } catch (Exception e) {
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                // Best effort, like the table files
+            }
+        }
+    }
+
+    // Reports the bytes read to the job
+    private static final class CountingInputStream extends FilterInputStream {
+        private final UploadJob job;
+
+        CountingInputStream(InputStream in, UploadJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) job.addBytes(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) job.addBytes(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            job.addBytes(skipped);
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.csvfilter.table;
+
+import java.util.BitSet;
+
+// Booleans need no array at all: one bit for the value, one for null.
+public final class BooleanColumn implements Column {
+    private final BitSet values;
+    private final BitSet nulls;
+    private final int size;
+
+    public BooleanColumn(BitSet values, BitSet nulls, int size) {
+        this.values = values;
+        this.nulls = nulls;
+        this.size = size;
+    }
+
+    public boolean getBoolean(int row) {
+        return values.get(row);
+    }
+
+    @Override
+    public Class<?> type() {
+        return Boolean.class;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public Object get(int row) {
+        return isNull(row) ? null : values.get(row);
+    }
+
+    @Override
+    public int compareRows(int row1, int row2) {
+        boolean null1 = nulls.get(row1);
+        boolean null2 = nulls.get(row2);
+        if (null1 || null2) return Boolean.compare(null2, null1);
+        return Boolean.compare(values.get(row1), values.get(row2));
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return (values.size() + nulls.size()) / 8;
+    }
+
+    public static final class Builder implements ColumnBuilder {
+        private final BitSet values = new BitSet();
+        private final BitSet nulls = new BitSet();
+        private int size;
+
+        public void add(boolean value) {
+            if (value) values.set(size);
+            size++;
+        }
+
+        @Override
+        public void addNull() {
+            nulls.set(size++);
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value == null) addNull();
+            else add((boolean) (Boolean) value);
+        }
+
+        @Override
+        public void addAll(Column column) {
+            BooleanColumn other = (BooleanColumn) column;
+            for (int row = other.values.nextSetBit(0); row >= 0; row = other.values.nextSetBit(row + 1)) {
+                values.set(size + row);
+            }
+            for (int row = other.nulls.nextSetBit(0); row >= 0; row = other.nulls.nextSetBit(row + 1)) {
+                nulls.set(size + row);
+            }
+            size += other.size;
+        }
+
+        @Override
+        public BooleanColumn build() {
+            return new BooleanColumn(values, nulls, size);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.csvfilter.table;
+
+import java.io.Serializable;
+
+// A single typed column of a DataTable. Rows are addressed by their index.
+public interface Column extends Serializable {
+
+    Class<?> type();
+
+    int size();
+
+    boolean isNull(int row);
+
+    // Boxed value, only meant for rendering a handful of rows
+    Object get(int row);
+
+    // Natural order of two rows of this column. Nulls sort first.
+    int compareRows(int row1, int row2);
+
+    // Heap used by this column
+    long estimatedBytes();
+
+    // Memory-mapped bytes outside the heap
+    default long offHeapBytes() {
+        return 0;
+    }
+}
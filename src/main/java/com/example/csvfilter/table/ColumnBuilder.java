@@ -0,0 +1,58 @@
+package com.example.csvfilter.table;
+
+// Append-only builder for a single column
+public interface ColumnBuilder {
+    int INITIAL_CAPACITY = 1024;
+
+    void addNull();
+
+    // Boxed append; the value must already match the column type
+    void add(Object value);
+
+    Column build();
+
+    // Appends every row of a column of the same type
+    default void addAll(Column column) {
+        for (int row = 0; row < column.size(); row++) {
+            add(column.get(row));
+        }
+    }
+
+    // The rows appended so far, in a column that shares no state with this builder, so it can be
+    // read by other threads while appending continues
+    default Column snapshot() {
+        Column current = build();
+        ColumnBuilder copy = forType(current.type());
+        copy.addAll(current);
+        return copy.build();
+    }
+
+    // Copies everything appended so far into a builder of a wider type: Long to Double, or a column
+    // of nulls to any type. Values are converted through their boxed form. Not for typed values to
+    // String, as their toString() is not the text they were parsed from ("1.50" became 1.5); the
+    // loader keeps that text instead.
+    default ColumnBuilder widenTo(Class<?> type) {
+        Column current = build();
+        if (type == String.class && current.type() != String.class) {
+            throw new IllegalArgumentException("Cannot widen " + current.type().getSimpleName() + " values to String");
+        }
+        ColumnBuilder wider = forType(type);
+        for (int row = 0; row < current.size(); row++) {
+            Object value = current.get(row);
+            if (value == null) wider.addNull();
+            else wider.add(type == String.class ? value.toString() : value);
+        }
+        return wider;
+    }
+
+    static ColumnBuilder forType(Class<?> type) {
+        if (type == Long.class) return new LongColumn.Builder();
+        if (type == Double.class) return new DoubleColumn.Builder();
+        if (type == Boolean.class) return new BooleanColumn.Builder();
+        return new StringColumn.Builder();
+    }
+
+    static int grow(int size) {
+        return size + (size >> 1) + 1;
+    }
+}
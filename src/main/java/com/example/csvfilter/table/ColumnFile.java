@@ -0,0 +1,76 @@
+package com.example.csvfilter.table;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A table whose long, double and string-code arrays live in a memory-mapped temp file instead of
+// the heap. Columns read the mapping directly, so filtering, sorting and export work unchanged and
+// pages come from the OS cache. Null bitmaps, booleans, zone maps and string dictionaries stay on
+// heap: they are small next to the values, or needed as Strings. Columns a table has not loaded
+// yet are not written; they are loaded later from the table's source, onto the heap.
+public final class ColumnFile implements Closeable {
+    private final Path path;
+    private final DataTable table;
+
+    private ColumnFile(Path path, DataTable table) {
+        this.path = path;
+        this.table = table;
+    }
+
+    public static ColumnFile write(DataTable table, Path directory) throws IOException {
+        Path path = Files.createTempFile(directory, "csvfilter-", ".columns");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Column[] columns = new Column[table.columnCount()];
+            long offset = 0;
+            for (int i = 0; i < columns.length; i++) {
+                Column column = table.loadedColumn(i);
+                if (column == null) {
+                    continue;
+                }
+                long bytes = switch (column) {
+                    case LongColumn c -> 8L * c.size();
+                    case DoubleColumn c -> 8L * c.size();
+                    case StringColumn c -> 4L * c.size();
+                    default -> 0;
+                };
+                if (bytes == 0) {
+                    columns[i] = column;
+                    continue;
+                }
+                // Mappings stay valid after the channel is closed
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, offset, bytes);
+                columns[i] = switch (column) {
+                    case LongColumn c -> c.moveTo(region);
+                    case DoubleColumn c -> c.moveTo(region);
+                    case StringColumn c -> c.moveTo(region);
+                    default -> column;
+                };
+                offset += bytes;
+            }
+            return new ColumnFile(path, new DataTable(table.headers(), columns, table.rowCount(), table.source()));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    public DataTable table() {
+        return table;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    // Deletes the file. The mappings are released when the table is garbage collected; until then
+    // the pages remain readable, so a request still using the table is not affected.
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.csvfilter.table;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Loads the columns a DataTable was built without, the first time they are needed. Closed when the
+// table is dropped.
+public interface ColumnSource extends Closeable {
+
+    // The given columns, in the same order, each with every row of the table
+    Column[] load(int[] columns) throws IOException;
+}
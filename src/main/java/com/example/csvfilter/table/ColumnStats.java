@@ -0,0 +1,47 @@
+package com.example.csvfilter.table;
+
+// Whole-column statistics for estimating how many rows a filter term selects. Numeric columns
+// take them from the zone maps built at load time, string columns from their dictionary, so
+// nothing here reads the rows. Counts not known without a scan are -1; min and max are NaN when
+// not known or when there are no values.
+public record ColumnStats(int rows, long nulls, long distinct, double min, double max) {
+
+    public static ColumnStats of(Column column) {
+        int rows = column.size();
+        if (column instanceof LongColumn col) {
+            return fromZoneMap(rows, col.zoneMap(), true);
+        }
+        if (column instanceof DoubleColumn col) {
+            return fromZoneMap(rows, col.zoneMap(), false);
+        }
+        if (column instanceof StringColumn col) {
+            return new ColumnStats(rows, -1, col.dictionary().length, Double.NaN, Double.NaN);
+        }
+        if (column instanceof BooleanColumn) {
+            return new ColumnStats(rows, -1, 2, Double.NaN, Double.NaN);
+        }
+        return new ColumnStats(rows, -1, -1, Double.NaN, Double.NaN);
+    }
+
+    private static ColumnStats fromZoneMap(int rows, ZoneMap zoneMap, boolean integral) {
+        long nulls = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (int block = 0; block < ZoneMap.blockCount(rows); block++) {
+            nulls += zoneMap.nullCount(block);
+            double lo = zoneMap.min(block);
+            double hi = zoneMap.max(block);
+            if (Double.isNaN(lo)) continue; // Only nulls
+            if (Double.isNaN(min) || Double.compare(lo, min) < 0) min = lo;
+            if (Double.isNaN(max) || Double.compare(hi, max) > 0) max = hi;
+        }
+        // Whole numbers have at most one distinct value per step of the range
+        long distinct = integral && !Double.isNaN(min) ? (long) Math.min(rows - nulls, max - min + 1) : -1;
+        return new ColumnStats(rows, nulls, distinct, min, max);
+    }
+
+    // Fraction of rows that are null, or -1 when not known
+    public double nullFraction() {
+        return nulls < 0 || rows == 0 ? -1 : (double) nulls / rows;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.csvfilter.table;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Column-oriented, primitive-typed storage for an uploaded CSV file.
+// Everything reads values by (row, column index); column names are only resolved once.
+// A table may be built with some columns missing and a ColumnSource to load them from; such a
+// column is loaded the first time it is read, or together with others through materialize().
+// Whoever accounts for the table's heap can listen for those loads through onLoad().
+public final class DataTable implements Serializable {
+    private final List<String> headers;
+    // Replaced, never written to, when columns are loaded, so readers need no lock
+    private volatile Column[] columns;
+    private final int rowCount;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private volatile Map<String, Class<?>> schema;
+    private final transient ColumnSource source;
+    private transient volatile Runnable loadListener;
+
+    public DataTable(List<String> headers, Column[] columns, int rowCount) {
+        this(headers, columns, rowCount, null);
+    }
+
+    // Null columns are loaded from the source when first needed
+    public DataTable(List<String> headers, Column[] columns, int rowCount, ColumnSource source) {
+        if (headers.size() != columns.length) {
+            throw new IllegalArgumentException("Expected " + headers.size() + " columns but got " + columns.length);
+        }
+        this.headers = List.copyOf(headers);
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.source = source;
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == null && source == null) {
+                throw new IllegalArgumentException("Column '" + headers.get(i) + "' has no values and no source");
+            }
+            columnIndexes.put(headers.get(i), i);
+        }
+        this.schema = schemaOf(columns);
+    }
+
+    public List<String> headers() {
+        return headers;
+    }
+
+    // Column types by name; null for columns that have not been loaded yet
+    public Map<String, Class<?>> schema() {
+        return schema;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return columns.length;
+    }
+
+    // Returns -1 for unknown columns
+    public int columnIndex(String name) {
+        Integer index = columnIndexes.get(name);
+        return index != null ? index : -1;
+    }
+
+    public Column column(int index) {
+        Column column = columns[index];
+        return column != null ? column : materialize(index)[index];
+    }
+
+    // The column if it is loaded, else null; never loads it
+    public Column loadedColumn(int index) {
+        return columns[index];
+    }
+
+    // Where missing columns come from; null when the table was built with all of them
+    public ColumnSource source() {
+        return source;
+    }
+
+    // Runs after columns are loaded, outside the table's lock; estimatedBytes() includes them by then
+    public void onLoad(Runnable listener) {
+        this.loadListener = listener;
+    }
+
+    // Loads the given columns that are still missing, in one read of the source
+    public Column[] materialize(int... indexes) {
+        Column[] current = columns;
+        if (source == null || allLoaded(current, indexes)) {
+            return current;
+        }
+        Column[] next;
+        synchronized (this) {
+            Column[] latest = columns;
+            int[] missing = Arrays.stream(indexes).filter(i -> latest[i] == null).distinct().toArray();
+            if (missing.length == 0) {
+                return latest;
+            }
+            Column[] loaded;
+            try {
+                loaded = source.load(missing);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error loading columns: " + e.getMessage(), e);
+            }
+            next = latest.clone();
+            for (int i = 0; i < missing.length; i++) {
+                next[missing[i]] = loaded[i];
+            }
+            schema = schemaOf(next);
+            columns = next;
+        }
+        Runnable listener = loadListener;
+        if (listener != null) {
+            listener.run();
+        }
+        return next;
+    }
+
+    public Object getValue(int row, int column) {
+        return column(column).get(row);
+    }
+
+    // Materializes a single row for rendering
+    public Map<String, Object> rowAsMap(int row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < headers.size(); i++) {
+            values.put(headers.get(i), column(i).get(row));
+        }
+        return values;
+    }
+
+    // Only the given columns of a row, in the given order
+    public Map<String, Object> rowAsMap(int row, int[] columns) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int column : columns) {
+            values.put(headers.get(column), column(column).get(row));
+        }
+        return values;
+    }
+
+    // Loaded columns only
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Column column : columns) {
+            if (column != null) bytes += column.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (Column column : columns) {
+            if (column != null) bytes += column.offHeapBytes();
+        }
+        return bytes;
+    }
+
+    private static boolean allLoaded(Column[] columns, int[] indexes) {
+        for (int index : indexes) {
+            if (columns[index] == null) return false;
+        }
+        return true;
+    }
+
+    private Map<String, Class<?>> schemaOf(Column[] columns) {
+        Map<String, Class<?>> types = new LinkedHashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            types.put(headers.get(i), columns[i] != null ? columns[i].type() : null);
+        }
+        return types;
+    }
+
+    // The source does not travel with the table, so every column is loaded before it is written
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        int[] all = new int[headers.size()];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        materialize(all);
+        out.defaultWriteObject();
+    }
+}
@@ -0,0 +1,497 @@
+package com.example.csvfilter.table;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+// Hash aggregation over a selection of rows: count, sum, min, max, avg and distinct count, per
+// group of rows with equal values in the group-by columns, or over all rows when there are none.
+// Keys are read as primitives (longs, double bit patterns, booleans as 0/1, string dictionary
+// codes) into a GroupTable, and each aggregate keeps one primitive array slot per group, so rows
+// are aggregated without boxing. Ranges of a selection are aggregated into partials, which merge;
+// FilterExecutor.reduce runs the ranges of large selections in parallel.
+public final class GroupAggregator {
+
+    public enum Function { COUNT, SUM, MIN, MAX, AVG, COUNT_DISTINCT }
+
+    // One output column; column is -1 for count(*)
+    public record Aggregate(Function function, int column) {
+
+        // "count", "count(*)" or "function(column)", with the functions named as in Function,
+        // in any case
+        public static Aggregate parse(String spec, DataTable table) {
+            String trimmed = spec.trim();
+            int open = trimmed.indexOf('(');
+            String name = (open < 0 ? trimmed : trimmed.substring(0, open)).trim().toUpperCase(Locale.ROOT);
+            Function function;
+            try {
+                function = Function.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown aggregate '" + spec + "'");
+            }
+            if (open < 0 || trimmed.substring(open).replace(" ", "").equals("(*)")) {
+                if (function != Function.COUNT) {
+                    throw new IllegalArgumentException("Aggregate '" + spec + "' needs a column");
+                }
+                return new Aggregate(function, -1);
+            }
+            if (!trimmed.endsWith(")")) {
+                throw new IllegalArgumentException("Invalid aggregate '" + spec + "'");
+            }
+            String columnName = trimmed.substring(open + 1, trimmed.length() - 1).trim();
+            int column = table.columnIndex(columnName);
+            if (column < 0) {
+                throw new IllegalArgumentException("Unknown column '" + columnName + "'");
+            }
+            return new Aggregate(function, column);
+        }
+
+        public String label(DataTable table) {
+            String name = function.name().toLowerCase(Locale.ROOT);
+            return name + "(" + (column < 0 ? "*" : table.headers().get(column)) + ")";
+        }
+    }
+
+    // Groups in ascending order of their key values, nulls first. Each row holds the group-by
+    // values, then the aggregate values; groupCount counts all groups, rows only the first `limit`.
+    public record Result(int groupCount, List<Object[]> rows) {
+    }
+
+    // Reads a column's value at a row as a group or distinct key
+    @FunctionalInterface
+    private interface KeyReader {
+        long key(int row);
+    }
+
+    private final Column[] groupColumns;
+    private final KeyReader[] groupKeys;
+    private final List<Aggregate> aggregates;
+    private final Column[] aggregateColumns;
+
+    public GroupAggregator(DataTable table, int[] groupBy, List<Aggregate> aggregates) {
+        if (groupBy.length > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " group-by columns are supported");
+        }
+        groupColumns = new Column[groupBy.length];
+        groupKeys = new KeyReader[groupBy.length];
+        for (int i = 0; i < groupBy.length; i++) {
+            groupColumns[i] = table.column(groupBy[i]);
+            groupKeys[i] = keyReader(groupColumns[i]);
+        }
+        this.aggregates = List.copyOf(aggregates);
+        aggregateColumns = new Column[aggregates.size()];
+        for (int i = 0; i < aggregateColumns.length; i++) {
+            Aggregate aggregate = aggregates.get(i);
+            if (aggregate.column() < 0) continue;
+            Column column = table.column(aggregate.column());
+            boolean numeric = column instanceof LongColumn || column instanceof DoubleColumn;
+            if ((aggregate.function() == Function.SUM || aggregate.function() == Function.AVG) && !numeric) {
+                throw new IllegalArgumentException("Cannot " + aggregate.function().name().toLowerCase(Locale.ROOT)
+                        + " column '" + table.headers().get(aggregate.column()) + "' of type " + column.type().getSimpleName());
+            }
+            aggregateColumns[i] = column;
+        }
+    }
+
+    // Aggregates rows[from, to)
+    public Partial aggregate(int[] rows, int from, int to) {
+        Partial partial = new Partial();
+        long[] key = new long[groupKeys.length];
+        for (int i = from; i < to; i++) {
+            int row = rows[i];
+            long nulls = 0;
+            for (int k = 0; k < key.length; k++) {
+                if (groupColumns[k].isNull(row)) {
+                    nulls |= 1L << k;
+                    key[k] = 0;
+                } else {
+                    key[k] = groupKeys[k].key(row);
+                }
+            }
+            int group = partial.group(key, nulls, row);
+            for (Accumulator accumulator : partial.accumulators) {
+                accumulator.add(group, row);
+            }
+        }
+        return partial;
+    }
+
+    // Folds `right` into `left`, which should hold the earlier rows
+    public Partial merge(Partial left, Partial right) {
+        for (int group = 0; group < right.groups.size(); group++) {
+            int target = left.groupFrom(right.groups, group);
+            for (int i = 0; i < left.accumulators.length; i++) {
+                left.accumulators[i].merge(target, right.accumulators[i], group);
+            }
+        }
+        return left;
+    }
+
+    // The first `limit` groups in key order. Without group-by columns there is always one row,
+    // even for no rows: counts are then 0 and the other aggregates null.
+    public Result result(Partial partial, int limit) {
+        if (groupColumns.length == 0 && partial.groups.size() == 0) {
+            partial.group(new long[0], 0, -1);
+        }
+        int groupCount = partial.groups.size();
+        int[] groups = new int[groupCount];
+        for (int i = 0; i < groupCount; i++) groups[i] = i;
+        RowOrder byKey = null;
+        for (Column column : groupColumns) {
+            RowOrder next = RowOrder.of(column, true);
+            byKey = byKey == null ? next : byKey.then(next);
+        }
+        if (byKey != null) {
+            RowOrder rows = byKey;
+            GroupTable table = partial.groups;
+            groups = RowSorter.topK(groups, limit, (g1, g2) -> rows.compare(table.firstRow(g1), table.firstRow(g2)));
+        } else {
+            groups = Arrays.copyOf(groups, Math.min(limit, groupCount));
+        }
+
+        List<Object[]> rows = new ArrayList<>(groups.length);
+        for (int group : groups) {
+            Object[] values = new Object[groupColumns.length + aggregates.size()];
+            int row = partial.groups.firstRow(group);
+            for (int k = 0; k < groupColumns.length; k++) {
+                values[k] = groupColumns[k].get(row);
+            }
+            for (int i = 0; i < aggregates.size(); i++) {
+                values[groupColumns.length + i] = partial.accumulators[i].value(group);
+            }
+            rows.add(values);
+        }
+        return new Result(groupCount, rows);
+    }
+
+    // Groups and aggregate states for a range of rows
+    public final class Partial {
+        private final GroupTable groups = new GroupTable(groupColumns.length);
+        private final Accumulator[] accumulators = new Accumulator[aggregates.size()];
+        private int capacity = 16;
+
+        private Partial() {
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i] = accumulator(aggregates.get(i), aggregateColumns[i], capacity);
+            }
+        }
+
+        private int group(long[] key, long nulls, int row) {
+            return ensureCapacity(groups.add(key, nulls, row));
+        }
+
+        private int groupFrom(GroupTable other, int group) {
+            return ensureCapacity(groups.addFrom(other, group));
+        }
+
+        private int ensureCapacity(int group) {
+            if (group == capacity) {
+                capacity *= 2;
+                for (Accumulator accumulator : accumulators) accumulator.grow(capacity);
+            }
+            return group;
+        }
+    }
+
+    private static KeyReader keyReader(Column column) {
+        if (column instanceof LongColumn c) return c::getLong;
+        if (column instanceof StringColumn c) return c::code;
+        if (column instanceof BooleanColumn c) return row -> c.getBoolean(row) ? 1 : 0;
+        if (column instanceof DoubleColumn c) {
+            return row -> {
+                double value = c.getDouble(row);
+                return Double.doubleToLongBits(value == 0 ? 0.0 : value); // -0.0 groups with 0.0
+            };
+        }
+        throw new IllegalArgumentException("Cannot aggregate columns of type " + column.type().getSimpleName());
+    }
+
+    private static Accumulator accumulator(Aggregate aggregate, Column column, int capacity) {
+        return switch (aggregate.function()) {
+            case COUNT -> new Count(column, capacity);
+            case SUM, AVG -> column instanceof LongColumn c
+                    ? new LongSum(c, aggregate.function() == Function.AVG, capacity)
+                    : new DoubleSum((DoubleColumn) column, aggregate.function() == Function.AVG, capacity);
+            case MIN, MAX -> new Extreme(column, aggregate.function() == Function.MAX, capacity);
+            case COUNT_DISTINCT -> new Distinct(column, capacity);
+        };
+    }
+
+    // One aggregate's state for every group of a partial
+    private interface Accumulator {
+        void add(int group, int row);
+
+        void merge(int group, Accumulator other, int otherGroup);
+
+        void grow(int groups);
+
+        Object value(int group);
+    }
+
+    // count(*) when column is null, else the rows where the column is not null
+    private static final class Count implements Accumulator {
+        private final Column column;
+        private long[] counts;
+
+        Count(Column column, int capacity) {
+            this.column = column;
+            this.counts = new long[capacity];
+        }
+
+        @Override
+        public void add(int group, int row) {
+            if (column == null || !column.isNull(row)) counts[group]++;
+        }
+
+        @Override
+        public void merge(int group, Accumulator other, int otherGroup) {
+            counts[group] += ((Count) other).counts[otherGroup];
+        }
+
+        @Override
+        public void grow(int groups) {
+            counts = Arrays.copyOf(counts, groups);
+        }
+
+        @Override
+        public Object value(int group) {
+            return counts[group];
+        }
+    }
+
+    // Exact long sums; a sum beyond the long range throws ArithmeticException. An average only
+    // needs the sum on the way, so it carries the sum in 128 bits instead, which no count of longs
+    // overflows, and is the exact sum divided by the count.
+    private static final class LongSum implements Accumulator {
+        private final LongColumn column;
+        private final boolean average;
+        // For averages, the low 64 bits of each sum, with the high ones in highs
+        private long[] sums;
+        private long[] highs;
+        private long[] counts;
+
+        LongSum(LongColumn column, boolean average, int capacity) {
+            this.column = column;
+            this.average = average;
+            this.sums = new long[capacity];
+            this.highs = average ? new long[capacity] : null;
+            this.counts = new long[capacity];
+        }
+
+        @Override
+        public void add(int group, int row) {
+            if (column.isNull(row)) return;
+            long value = column.getLong(row);
+            if (average) add(group, value >> 63, value);
+            else sums[group] = Math.addExact(sums[group], value);
+            counts[group]++;
+        }
+
+        @Override
+        public void merge(int group, Accumulator other, int otherGroup) {
+            LongSum o = (LongSum) other;
+            if (average) add(group, o.highs[otherGroup], o.sums[otherGroup]);
+            else sums[group] = Math.addExact(sums[group], o.sums[otherGroup]);
+            counts[group] += o.counts[otherGroup];
+        }
+
+        // Adds the 128-bit value high:low to the group's sum
+        private void add(int group, long high, long low) {
+            long sum = sums[group] + low;
+            long carry = Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+            sums[group] = sum;
+            highs[group] += high + carry;
+        }
+
+        @Override
+        public void grow(int groups) {
+            sums = Arrays.copyOf(sums, groups);
+            if (highs != null) highs = Arrays.copyOf(highs, groups);
+            counts = Arrays.copyOf(counts, groups);
+        }
+
+        @Override
+        public Object value(int group) {
+            long count = counts[group];
+            if (count == 0) return null;
+            if (!average) return sums[group];
+            long low = sums[group];
+            if (highs[group] == low >> 63) {
+                return (double) low / count; // The sum fits in a long
+            }
+            BigInteger sum = BigInteger.valueOf(highs[group]).shiftLeft(64)
+                    .add(new BigInteger(Long.toUnsignedString(low)));
+            return new BigDecimal(sum).divide(BigDecimal.valueOf(count), MathContext.DECIMAL128).doubleValue();
+        }
+    }
+
+    private static final class DoubleSum implements Accumulator {
+        private final DoubleColumn column;
+        private final boolean average;
+        private double[] sums;
+        private long[] counts;
+
+        DoubleSum(DoubleColumn column, boolean average, int capacity) {
+            this.column = column;
+            this.average = average;
+            this.sums = new double[capacity];
+            this.counts = new long[capacity];
+        }
+
+        @Override
+        public void add(int group, int row) {
+            if (column.isNull(row)) return;
+            sums[group] += column.getDouble(row);
+            counts[group]++;
+        }
+
+        @Override
+        public void merge(int group, Accumulator other, int otherGroup) {
+            DoubleSum o = (DoubleSum) other;
+            sums[group] += o.sums[otherGroup];
+            counts[group] += o.counts[otherGroup];
+        }
+
+        @Override
+        public void grow(int groups) {
+            sums = Arrays.copyOf(sums, groups);
+            counts = Arrays.copyOf(counts, groups);
+        }
+
+        @Override
+        public Object value(int group) {
+            if (counts[group] == 0) return null;
+            return average ? sums[group] / counts[group] : sums[group];
+        }
+    }
+
+    // Keeps the row holding the least (or greatest) non-null value, in the column's natural order
+    private static final class Extreme implements Accumulator {
+        private final Column column;
+        private final RowOrder order;
+        private int[] rows;
+
+        Extreme(Column column, boolean max, int capacity) {
+            this.column = column;
+            this.order = RowOrder.of(column, !max);
+            this.rows = new int[capacity];
+            Arrays.fill(rows, -1);
+        }
+
+        @Override
+        public void add(int group, int row) {
+            if (column.isNull(row)) return;
+            int best = rows[group];
+            if (best < 0 || order.compare(row, best) < 0) rows[group] = row;
+        }
+
+        @Override
+        public void merge(int group, Accumulator other, int otherGroup) {
+            int row = ((Extreme) other).rows[otherGroup];
+            if (row >= 0) add(group, row);
+        }
+
+        @Override
+        public void grow(int groups) {
+            int old = rows.length;
+            rows = Arrays.copyOf(rows, groups);
+            Arrays.fill(rows, old, groups, -1);
+        }
+
+        @Override
+        public Object value(int group) {
+            return rows[group] < 0 ? null : column.get(rows[group]);
+        }
+    }
+
+    // Distinct non-null values, as keys, in a set per group
+    private static final class Distinct implements Accumulator {
+        private final Column column;
+        private final KeyReader keys;
+        private LongSet[] sets;
+
+        Distinct(Column column, int capacity) {
+            this.column = column;
+            this.keys = keyReader(column);
+            this.sets = new LongSet[capacity];
+        }
+
+        @Override
+        public void add(int group, int row) {
+            if (column.isNull(row)) return;
+            set(group).add(keys.key(row));
+        }
+
+        @Override
+        public void merge(int group, Accumulator other, int otherGroup) {
+            LongSet from = ((Distinct) other).sets[otherGroup];
+            if (from != null) set(group).addAll(from);
+        }
+
+        private LongSet set(int group) {
+            LongSet set = sets[group];
+            if (set == null) sets[group] = set = new LongSet();
+            return set;
+        }
+
+        @Override
+        public void grow(int groups) {
+            sets = Arrays.copyOf(sets, groups);
+        }
+
+        @Override
+        public Object value(int group) {
+            return sets[group] == null ? 0L : (long) sets[group].size();
+        }
+    }
+
+    // Open-addressing set of longs; 0 is tracked apart, since empty slots hold 0
+    private static final class LongSet {
+        private long[] slots = new long[8];
+        private boolean hasZero;
+        private int size;
+
+        void add(long value) {
+            if (value == 0) {
+                if (!hasZero) {
+                    hasZero = true;
+                    size++;
+                }
+                return;
+            }
+            int mask = slots.length - 1;
+            for (int slot = GroupTable.mix(value) & mask; ; slot = (slot + 1) & mask) {
+                if (slots[slot] == value) return;
+                if (slots[slot] == 0) {
+                    slots[slot] = value;
+                    if (++size * 2 > slots.length) rehash();
+                    return;
+                }
+            }
+        }
+
+        void addAll(LongSet other) {
+            if (other.hasZero) add(0);
+            for (long value : other.slots) {
+                if (value != 0) add(value);
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void rehash() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            size = hasZero ? 1 : 0;
+            for (long value : old) {
+                if (value != 0) add(value);
+            }
+        }
+    }
+}
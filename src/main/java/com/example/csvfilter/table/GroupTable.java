@@ -0,0 +1,118 @@
+package com.example.csvfilter.table;
+
+import java.util.Arrays;
+
+// Open-addressing hash table from group keys to dense group ids (0, 1, 2, ... in order of first
+// appearance). A key is one long per group-by column plus a bitmask of the columns that are null,
+// stored flat and group-major, so lookups neither box nor allocate. Linear probing, kept at most
+// half full.
+final class GroupTable {
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    private final int width;
+    private long[] keys;
+    private long[] nullMasks;
+    private int[] hashes;
+    private int[] firstRows;
+    // Group id + 1 per slot; 0 marks an empty slot
+    private int[] slots;
+    private int size;
+
+    GroupTable(int width) {
+        this.width = width;
+        int groups = 16;
+        keys = new long[groups * width];
+        nullMasks = new long[groups];
+        hashes = new int[groups];
+        firstRows = new int[groups];
+        slots = new int[groups * 2];
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The first row seen for a group; groups merged from other tables keep the lowest one given
+    int firstRow(int group) {
+        return firstRows[group];
+    }
+
+    // The group of a key, added with `row` as its first row when new
+    int add(long[] key, long nulls, int row) {
+        return add(key, 0, nulls, row);
+    }
+
+    // Adds another table's group, for merging partial aggregates
+    int addFrom(GroupTable other, int group) {
+        return add(other.keys, group * width, other.nullMasks[group], other.firstRows[group]);
+    }
+
+    private int add(long[] key, int offset, long nulls, int row) {
+        int hash = hash(key, offset, nulls);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                int group = insert(key, offset, nulls, hash, row);
+                slots[slot] = group + 1;
+                if (size * 2 > slots.length) {
+                    rehash();
+                }
+                return group;
+            }
+            int group = entry - 1;
+            if (hashes[group] == hash && nullMasks[group] == nulls && sameKey(group, key, offset)) {
+                if (row < firstRows[group]) firstRows[group] = row;
+                return group;
+            }
+        }
+    }
+
+    private int insert(long[] key, int offset, long nulls, int hash, int row) {
+        if (size == nullMasks.length) {
+            int groups = size * 2;
+            keys = Arrays.copyOf(keys, groups * width);
+            nullMasks = Arrays.copyOf(nullMasks, groups);
+            hashes = Arrays.copyOf(hashes, groups);
+            firstRows = Arrays.copyOf(firstRows, groups);
+        }
+        System.arraycopy(key, offset, keys, size * width, width);
+        nullMasks[size] = nulls;
+        hashes[size] = hash;
+        firstRows[size] = row;
+        return size++;
+    }
+
+    private boolean sameKey(int group, long[] key, int offset) {
+        int start = group * width;
+        for (int i = 0; i < width; i++) {
+            if (keys[start + i] != key[offset + i]) return false;
+        }
+        return true;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int group = 0; group < size; group++) {
+            int slot = hashes[group] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = group + 1;
+        }
+    }
+
+    private int hash(long[] key, int offset, long nulls) {
+        long h = nulls * MIX;
+        for (int i = 0; i < width; i++) {
+            h = (h ^ key[offset + i]) * MIX;
+        }
+        return mix(h);
+    }
+
+    // Spreads the high bits into the low ones that slots are taken from
+    static int mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return (int) (h ^ (h >>> 33));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.csvfilter.table;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Values are held in an array, or, once moved into a ColumnFile, read from its memory mapping.
+// Heap columns read the array directly; going through a LongBuffer made sorts about 10% slower.
+public final class LongColumn implements Column {
+    private transient long[] values; // null when mapped
+    private transient LongBuffer mapped;
+    private final BitSet nulls;
+    private final int size;
+    private final ZoneMap zoneMap;
+
+    public LongColumn(long[] values, BitSet nulls, int size) {
+        this.values = values;
+        this.nulls = nulls;
+        this.size = size;
+        this.zoneMap = ZoneMap.build(size, nulls, row -> values[row]);
+    }
+
+    private LongColumn(LongBuffer mapped, BitSet nulls, int size, ZoneMap zoneMap) {
+        this.mapped = mapped;
+        this.nulls = nulls;
+        this.size = size;
+        this.zoneMap = zoneMap;
+    }
+
+    public long getLong(int row) {
+        return values != null ? values[row] : mapped.get(row);
+    }
+
+    // The values array, for kernels that read runs of values, or null once the column is mapped.
+    // Not to be modified.
+    public long[] array() {
+        return values;
+    }
+
+    // Copies the values of rows [from, from + length) into the start of `target`
+    public void read(int from, long[] target, int length) {
+        if (values != null) System.arraycopy(values, from, target, 0, length);
+        else mapped.get(from, target, 0, length);
+    }
+
+    // The first null row at or after `from`, or -1 if there is none
+    public int nextNull(int from) {
+        return nulls.nextSetBit(from);
+    }
+
+    public ZoneMap zoneMap() {
+        return zoneMap;
+    }
+
+    @Override
+    public Class<?> type() {
+        return Long.class;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public Object get(int row) {
+        return isNull(row) ? null : getLong(row);
+    }
+
+    @Override
+    public int compareRows(int row1, int row2) {
+        boolean null1 = nulls.get(row1);
+        boolean null2 = nulls.get(row2);
+        if (null1 || null2) return Boolean.compare(null2, null1);
+        return Long.compare(getLong(row1), getLong(row2));
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long valueBytes = values != null ? 8L * values.length : 0;
+        return valueBytes + nulls.size() / 8 + zoneMap.estimatedBytes();
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return mapped != null ? 8L * mapped.capacity() : 0;
+    }
+
+    // Copies the values into `region` (8*size bytes of a mapped file) and reads them from there
+    LongColumn moveTo(ByteBuffer region) {
+        LongBuffer target = region.order(ByteOrder.nativeOrder()).asLongBuffer();
+        if (values != null) target.put(0, values, 0, size);
+        else target.put(0, mapped, 0, size);
+        return new LongColumn(target, nulls, size, zoneMap);
+    }
+
+    // A mapped column is written out as a plain array and comes back on heap
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        long[] copy = values;
+        if (copy == null) {
+            copy = new long[size];
+            mapped.get(0, copy);
+        }
+        out.writeObject(copy);
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        values = (long[]) in.readObject();
+    }
+
+    public static final class Builder implements ColumnBuilder {
+        private long[] values = new long[ColumnBuilder.INITIAL_CAPACITY];
+        private final BitSet nulls = new BitSet();
+        private int size;
+
+        public void add(long value) {
+            ensureCapacity();
+            values[size++] = value;
+        }
+
+        @Override
+        public void addNull() {
+            ensureCapacity();
+            nulls.set(size++);
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value == null) addNull();
+            else add(((Number) value).longValue());
+        }
+
+        @Override
+        public void addAll(Column column) {
+            LongColumn other = (LongColumn) column;
+            if (size + other.size > values.length) values = Arrays.copyOf(values, Math.max(size + other.size, ColumnBuilder.grow(size)));
+            for (int row = other.nulls.nextSetBit(0); row >= 0; row = other.nulls.nextSetBit(row + 1)) {
+                nulls.set(size + row);
+            }
+            if (other.values != null) System.arraycopy(other.values, 0, values, size, other.size);
+            else other.mapped.get(0, values, size, other.size);
+            size += other.size;
+        }
+
+        private void ensureCapacity() {
+            if (size == values.length) values = Arrays.copyOf(values, ColumnBuilder.grow(size));
+        }
+
+        @Override
+        public LongColumn build() {
+            return new LongColumn(Arrays.copyOf(values, size), nulls, size);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.csvfilter.table;
+
+// Compares a run of column values against a literal and writes the result as a bitmap: bit i of
+// words[i >> 6] is set when values[offset + i] matches, for i < length; the rest of the last word
+// is cleared. Comparisons follow FilterCompiler, nulls aside, which are left to the caller: long
+// values compare as doubles, the ordering comparisons order as Double.compare does (-0.0 below
+// 0.0, NaN above everything) and EQUAL and NOT_EQUAL use ==.
+// VECTOR uses jdk.incubator.vector and exists only when that module is in the boot layer, i.e. the
+// JVM runs with --add-modules jdk.incubator.vector; PREFERRED falls back to SCALAR without it.
+public interface NumericKernels {
+
+    enum Comparison {
+        LESS, LESS_EQUAL, GREATER, GREATER_EQUAL, EQUAL, NOT_EQUAL
+    }
+
+    NumericKernels SCALAR = new ScalarKernels();
+    NumericKernels VECTOR = loadVector();
+    NumericKernels PREFERRED = VECTOR != null ? VECTOR : SCALAR;
+
+    void compare(long[] values, int offset, int length, Comparison comparison, double literal, long[] words);
+
+    void compare(double[] values, int offset, int length, Comparison comparison, double literal, long[] words);
+
+    // The kernels for a setting: "scalar", "vector" (which needs the module) or "auto" (PREFERRED)
+    static NumericKernels named(String name) {
+        return switch (name) {
+            case "auto" -> PREFERRED;
+            case "scalar" -> SCALAR;
+            case "vector" -> {
+                if (VECTOR == null) {
+                    throw new IllegalStateException("Vector kernels need the JVM option --add-modules jdk.incubator.vector");
+                }
+                yield VECTOR;
+            }
+            default -> throw new IllegalArgumentException("Unknown filter kernels '" + name + "'");
+        };
+    }
+
+    // Loaded by name, so that nothing links against the incubator module when it is not there
+    private static NumericKernels loadVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (NumericKernels) Class.forName("com.example.csvfilter.table.VectorKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.csvfilter.table;
+
+// Orders row indexes by column values, without boxing.
+// Nulls come first in ascending order and last in descending order.
+@FunctionalInterface
+public interface RowOrder {
+    int compare(int row1, int row2);
+
+    // Lexicographic order: this one first, `next` for ties
+    default RowOrder then(RowOrder next) {
+        return (row1, row2) -> {
+            int cmp = compare(row1, row2);
+            return cmp != 0 ? cmp : next.compare(row1, row2);
+        };
+    }
+
+    // One lambda per concrete column class keeps each comparison call monomorphic
+    static RowOrder of(Column column, boolean ascending) {
+        if (column instanceof LongColumn c) {
+            return ascending ? c::compareRows : (row1, row2) -> c.compareRows(row2, row1);
+        }
+        if (column instanceof DoubleColumn c) {
+            return ascending ? c::compareRows : (row1, row2) -> c.compareRows(row2, row1);
+        }
+        if (column instanceof StringColumn c) {
+            return ascending ? c::compareRows : (row1, row2) -> c.compareRows(row2, row1);
+        }
+        if (column instanceof BooleanColumn c) {
+            return ascending ? c::compareRows : (row1, row2) -> c.compareRows(row2, row1);
+        }
+        return ascending ? column::compareRows : (row1, row2) -> column.compareRows(row2, row1);
+    }
+}
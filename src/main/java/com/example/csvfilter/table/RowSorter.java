@@ -0,0 +1,172 @@
+package com.example.csvfilter.table;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Sorting of row index arrays. Rows that compare equal are ordered by row index,
+// which gives the same result as a stable sort of rows in file order.
+public final class RowSorter {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private RowSorter() {
+    }
+
+    public static int[] sort(int[] rows, RowOrder order) {
+        int[] sorted = rows.clone();
+        mergeSort(sorted, rows.clone(), 0, sorted.length, order);
+        return sorted;
+    }
+
+    // The first k rows of sort(rows, order), using a bounded heap: O(n log k) instead of O(n log n)
+    public static int[] topK(int[] rows, int k, RowOrder order) {
+        if (k >= rows.length) {
+            return sort(rows, order);
+        }
+        if (k <= 0) {
+            return new int[0];
+        }
+        // Max-heap on the order: the root is the worst row kept so far
+        int[] heap = new int[k];
+        int size = 0;
+        for (int row : rows) {
+            if (size < k) {
+                heap[size] = row;
+                siftUp(heap, size++, order);
+            } else if (compare(order, row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, k, order);
+            }
+        }
+        return sort(heap, order);
+    }
+
+    // Walks a precomputed SortIndex instead of sorting. Rows not in `members` (null means every row)
+    // are skipped; ties on the indexed column are broken by `refine` (may be null), then row index.
+    // Stops once the result holds `limit` rows, or at the end of the tie group that first reaches it.
+    public static int[] walk(SortIndex index, boolean ascending, BitSet members, RowOrder refine, int limit) {
+        int[] permutation = index.permutation();
+        int wanted = Math.min(limit, members != null ? members.cardinality() : permutation.length);
+        int[] result = new int[wanted];
+        int[] group = new int[16];
+        int count = 0;
+        int position = ascending ? 0 : permutation.length - 1;
+        while (count < wanted && position >= 0 && position < permutation.length) {
+            // Rows with an equal value sit next to each other, in row order, in both directions
+            int start;
+            int end;
+            if (ascending) {
+                start = position;
+                end = index.groupEnd(position);
+                position = end + 1;
+            } else {
+                start = index.groupStart(position);
+                end = position;
+                position = start - 1;
+            }
+
+            int size = 0;
+            for (int i = start; i <= end; i++) {
+                int row = permutation[i];
+                if (members == null || members.get(row)) {
+                    if (size == group.length) group = Arrays.copyOf(group, size * 2);
+                    group[size++] = row;
+                }
+            }
+            int[] ordered = group;
+            if (refine != null && size > 1) {
+                // A large group of ties only needs to be ordered as far as the limit
+                int missing = wanted - count;
+                ordered = size > missing
+                        ? topK(Arrays.copyOf(group, size), missing, refine)
+                        : sort(Arrays.copyOf(group, size), refine);
+                size = ordered.length;
+            }
+            if (count + size > result.length) result = Arrays.copyOf(result, count + size);
+            System.arraycopy(ordered, 0, result, count, size);
+            count += size;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // Stable counting sort by the rank of each row in `index`. Rows with equal values keep their
+    // relative order, so applying it key by key, from the last sort key to the first, gives a
+    // multi-column order in linear time.
+    public static int[] sortByRank(int[] rows, SortIndex index, boolean ascending) {
+        int last = index.distinctCount() - 1;
+        int[] starts = new int[index.distinctCount() + 1];
+        for (int row : rows) {
+            starts[(ascending ? index.rank(row) : last - index.rank(row)) + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        int[] sorted = new int[rows.length];
+        for (int row : rows) {
+            sorted[starts[ascending ? index.rank(row) : last - index.rank(row)]++] = row;
+        }
+        return sorted;
+    }
+
+    private static int compare(RowOrder order, int row1, int row2) {
+        int cmp = order.compare(row1, row2);
+        return cmp != 0 ? cmp : Integer.compare(row1, row2);
+    }
+
+    private static void siftUp(int[] heap, int index, RowOrder order) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(order, row, heap[parent]) <= 0) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private static void siftDown(int[] heap, int size, RowOrder order) {
+        int row = heap[0];
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && compare(order, heap[child + 1], heap[child]) > 0) child++;
+            if (compare(order, row, heap[child]) >= 0) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+
+    // Sorts dest[from, to); src holds the same values and is used as scratch space
+    private static void mergeSort(int[] dest, int[] src, int from, int to, RowOrder order) {
+        int length = to - from;
+        if (length <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int row = dest[i];
+                int j = i - 1;
+                while (j >= from && compare(order, dest[j], row) > 0) {
+                    dest[j + 1] = dest[j];
+                    j--;
+                }
+                dest[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(src, dest, from, middle, order);
+        mergeSort(src, dest, middle, to, order);
+
+        if (compare(order, src[middle - 1], src[middle]) <= 0) {
+            System.arraycopy(src, from, dest, from, length); // Already in order
+            return;
+        }
+        for (int i = from, p = from, q = middle; i < to; i++) {
+            if (q >= to || (p < middle && compare(order, src[p], src[q]) <= 0)) {
+                dest[i] = src[p++];
+            } else {
+                dest[i] = src[q++];
+            }
+        }
+    }
+}
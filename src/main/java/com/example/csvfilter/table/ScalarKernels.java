@@ -0,0 +1,136 @@
+package com.example.csvfilter.table;
+
+import java.util.Arrays;
+
+// One value at a time, without branches in the loops: each comparison result is shifted into its
+// word. Ordering comparisons compare sortable keys, which order as Double.compare does; see
+// sortable. NOT_EQUAL is EQUAL inverted.
+final class ScalarKernels implements NumericKernels {
+
+    @Override
+    public void compare(long[] values, int offset, int length, Comparison comparison, double literal, long[] words) {
+        int wordCount = wordCount(length);
+        if (comparison == Comparison.EQUAL || comparison == Comparison.NOT_EQUAL) {
+            for (int w = 0; w < wordCount; w++) {
+                int base = offset + (w << 6);
+                int n = Math.min(64, length - (w << 6));
+                long bits = 0;
+                for (int j = 0; j < n; j++) {
+                    bits |= ((double) values[base + j] == literal ? 1L : 0L) << j;
+                }
+                words[w] = bits;
+            }
+        } else if (isLower(comparison)) {
+            long threshold = threshold(comparison, literal);
+            for (int w = 0; w < wordCount; w++) {
+                int base = offset + (w << 6);
+                int n = Math.min(64, length - (w << 6));
+                long bits = 0;
+                for (int j = 0; j < n; j++) {
+                    bits |= (sortable((double) values[base + j]) > threshold ? 1L : 0L) << j;
+                }
+                words[w] = bits;
+            }
+        } else {
+            long threshold = threshold(comparison, literal);
+            for (int w = 0; w < wordCount; w++) {
+                int base = offset + (w << 6);
+                int n = Math.min(64, length - (w << 6));
+                long bits = 0;
+                for (int j = 0; j < n; j++) {
+                    bits |= (sortable((double) values[base + j]) < threshold ? 1L : 0L) << j;
+                }
+                words[w] = bits;
+            }
+        }
+        if (comparison == Comparison.NOT_EQUAL) {
+            invert(words, length);
+        }
+    }
+
+    @Override
+    public void compare(double[] values, int offset, int length, Comparison comparison, double literal, long[] words) {
+        int wordCount = wordCount(length);
+        if (comparison == Comparison.EQUAL || comparison == Comparison.NOT_EQUAL) {
+            for (int w = 0; w < wordCount; w++) {
+                int base = offset + (w << 6);
+                int n = Math.min(64, length - (w << 6));
+                long bits = 0;
+                for (int j = 0; j < n; j++) {
+                    bits |= (values[base + j] == literal ? 1L : 0L) << j;
+                }
+                words[w] = bits;
+            }
+        } else if (isLower(comparison)) {
+            long threshold = threshold(comparison, literal);
+            for (int w = 0; w < wordCount; w++) {
+                int base = offset + (w << 6);
+                int n = Math.min(64, length - (w << 6));
+                long bits = 0;
+                for (int j = 0; j < n; j++) {
+                    bits |= (sortable(values[base + j]) > threshold ? 1L : 0L) << j;
+                }
+                words[w] = bits;
+            }
+        } else {
+            long threshold = threshold(comparison, literal);
+            for (int w = 0; w < wordCount; w++) {
+                int base = offset + (w << 6);
+                int n = Math.min(64, length - (w << 6));
+                long bits = 0;
+                for (int j = 0; j < n; j++) {
+                    bits |= (sortable(values[base + j]) < threshold ? 1L : 0L) << j;
+                }
+                words[w] = bits;
+            }
+        }
+        if (comparison == Comparison.NOT_EQUAL) {
+            invert(words, length);
+        }
+    }
+
+    static int wordCount(int length) {
+        return (length + 63) >>> 6;
+    }
+
+    // A long that orders as Double.compare orders doubles: the bits of a negative double have
+    // everything but the sign flipped. Values parsed from text only hold the canonical NaN, so the
+    // raw bits are used, as Double.doubleToLongBits would return them anyway.
+    static long sortable(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        return bits ^ ((bits >> 63) >>> 1);
+    }
+
+    static boolean isLower(Comparison comparison) {
+        return comparison == Comparison.GREATER || comparison == Comparison.GREATER_EQUAL;
+    }
+
+    // The bound that sortable keys are compared with: keys above it for GREATER and GREATER_EQUAL,
+    // keys below it for LESS and LESS_EQUAL. Sortable keys of doubles never reach Long.MIN_VALUE
+    // or Long.MAX_VALUE, so the inclusive forms can move the bound by one.
+    static long threshold(Comparison comparison, double literal) {
+        long key = sortable(Double.isNaN(literal) ? Double.NaN : literal);
+        return switch (comparison) {
+            case GREATER_EQUAL -> key - 1;
+            case LESS_EQUAL -> key + 1;
+            default -> key;
+        };
+    }
+
+    // Turns EQUAL into NOT_EQUAL, leaving the bits past `length` clear
+    static void invert(long[] words, int length) {
+        int wordCount = wordCount(length);
+        for (int w = 0; w < wordCount; w++) {
+            words[w] = ~words[w];
+        }
+        int rest = length & 63;
+        if (rest != 0) {
+            words[wordCount - 1] &= (1L << rest) - 1;
+        }
+    }
+
+    // Clears the words the vector kernels OR lanes into
+    static void clear(long[] words, int length) {
+        Arrays.fill(words, 0, wordCount(length), 0L);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.csvfilter.table;
+
+import java.util.BitSet;
+
+// Every row of a column in ascending order (nulls first, ties by row index), plus the rank of
+// each row's value among the column's distinct values. Built once, then any sorted view on the
+// column is a walk over the permutation instead of a sort.
+public final class SortIndex {
+    private final int[] permutation;
+    private final int[] ranks;
+    // Set at each position of the permutation where a new distinct value starts
+    private final BitSet groupStarts;
+    private final int distinctCount;
+
+    private SortIndex(int[] permutation, int[] ranks, BitSet groupStarts) {
+        this.permutation = permutation;
+        this.ranks = ranks;
+        this.groupStarts = groupStarts;
+        this.distinctCount = groupStarts.cardinality();
+    }
+
+    public static SortIndex build(Column column) {
+        int[] rows = new int[column.size()];
+        for (int i = 0; i < rows.length; i++) rows[i] = i;
+        int[] permutation = RowSorter.sort(rows, RowOrder.of(column, true));
+
+        int[] ranks = new int[permutation.length];
+        BitSet groupStarts = new BitSet(permutation.length);
+        int rank = 0;
+        for (int i = 0; i < permutation.length; i++) {
+            if (i == 0 || column.compareRows(permutation[i - 1], permutation[i]) != 0) {
+                groupStarts.set(i);
+                if (i > 0) rank++;
+            }
+            ranks[permutation[i]] = rank;
+        }
+        return new SortIndex(permutation, ranks, groupStarts);
+    }
+
+    public int[] permutation() {
+        return permutation;
+    }
+
+    public int rank(int row) {
+        return ranks[row];
+    }
+
+    // Number of distinct values, nulls included; ranks run from 0 to distinctCount() - 1
+    public int distinctCount() {
+        return distinctCount;
+    }
+
+    // First position of the group of equal values containing `position`
+    int groupStart(int position) {
+        return groupStarts.previousSetBit(position);
+    }
+
+    // Last position of the group of equal values containing `position`
+    int groupEnd(int position) {
+        int next = groupStarts.nextSetBit(position + 1);
+        return next < 0 ? permutation.length - 1 : next - 1;
+    }
+
+    // Orders rows by rank alone, which is cheaper than comparing the values again
+    public RowOrder order(boolean ascending) {
+        return ascending
+                ? (row1, row2) -> Integer.compare(ranks[row1], ranks[row2])
+                : (row1, row2) -> Integer.compare(ranks[row2], ranks[row1]);
+    }
+
+    public long estimatedBytes() {
+        return 8L * permutation.length + permutation.length / 8;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.csvfilter.table;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Dictionary-encoded strings: one int code per row, each distinct value stored once.
+// A code of -1 marks a null. Codes are held in an array, or, once moved into a ColumnFile, read
+// from its memory mapping; the dictionary always stays on heap.
+// Rows are ordered by the rank of their code in the sorted dictionary, computed on first use.
+public final class StringColumn implements Column {
+    // A column has low cardinality with at most one distinct value per this many rows
+    private static final int LOW_CARDINALITY_RATIO = 4;
+
+    private transient int[] codes; // null when mapped
+    private transient IntBuffer mapped;
+    private final String[] dictionary;
+    private final int size;
+    private transient volatile int[] ranks;
+
+    public StringColumn(int[] codes, String[] dictionary, int size) {
+        this.codes = codes;
+        this.dictionary = dictionary;
+        this.size = size;
+    }
+
+    private StringColumn(IntBuffer mapped, String[] dictionary, int size) {
+        this.mapped = mapped;
+        this.dictionary = dictionary;
+        this.size = size;
+    }
+
+    public String getString(int row) {
+        int code = code(row);
+        return code < 0 ? null : dictionary[code];
+    }
+
+    public int code(int row) {
+        return codes != null ? codes[row] : mapped.get(row);
+    }
+
+    public String[] dictionary() {
+        return dictionary;
+    }
+
+    // Few enough distinct values that a test is cheaper once per dictionary entry than once per row
+    public boolean isLowCardinality() {
+        return (long) dictionary.length * LOW_CARDINALITY_RATIO <= size;
+    }
+
+    // Position of each code's value in the sorted dictionary; codes of equal rank hold equal values
+    public int[] ranks() {
+        int[] result = ranks;
+        if (result == null) {
+            int[] order = new int[dictionary.length];
+            for (int code = 0; code < order.length; code++) order[code] = code;
+            order = RowSorter.sort(order, (a, b) -> dictionary[a].compareTo(dictionary[b]));
+            result = new int[order.length];
+            for (int rank = 0; rank < order.length; rank++) result[order[rank]] = rank;
+            ranks = result; // Racing threads compute the same array
+        }
+        return result;
+    }
+
+    @Override
+    public Class<?> type() {
+        return String.class;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return code(row) < 0;
+    }
+
+    @Override
+    public Object get(int row) {
+        return getString(row);
+    }
+
+    @Override
+    public int compareRows(int row1, int row2) {
+        int code1 = code(row1);
+        int code2 = code(row2);
+        if (code1 == code2) return 0;
+        if (code1 < 0) return -1;
+        if (code2 < 0) return 1;
+        int[] ranks = ranks();
+        return Integer.compare(ranks[code1], ranks[code2]);
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = codes != null ? 4L * codes.length : 0;
+        if (ranks != null) bytes += 4L * ranks.length;
+        for (String value : dictionary) {
+            bytes += 40 + value.length(); // object headers plus latin-1 payload
+        }
+        return bytes;
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return mapped != null ? 4L * mapped.capacity() : 0;
+    }
+
+    // Copies the codes into `region` (4*size bytes of a mapped file) and reads them from there
+    StringColumn moveTo(ByteBuffer region) {
+        IntBuffer target = region.order(ByteOrder.nativeOrder()).asIntBuffer();
+        if (codes != null) target.put(0, codes, 0, size);
+        else target.put(0, mapped, 0, size);
+        StringColumn moved = new StringColumn(target, dictionary, size);
+        moved.ranks = ranks;
+        return moved;
+    }
+
+    // A mapped column is written out as a plain array and comes back on heap
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        int[] copy = codes;
+        if (copy == null) {
+            copy = new int[size];
+            mapped.get(0, copy);
+        }
+        out.writeObject(copy);
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        codes = (int[]) in.readObject();
+    }
+
+    public static final class Builder implements ColumnBuilder {
+        private int[] codes = new int[ColumnBuilder.INITIAL_CAPACITY];
+        private final Map<String, Integer> lookup = new HashMap<>();
+        private String[] dictionary = new String[16];
+        private int size;
+
+        public void add(String value) {
+            ensureCapacity();
+            codes[size++] = codeOf(value);
+        }
+
+        private int codeOf(String value) {
+            Integer code = lookup.get(value);
+            if (code == null) {
+                code = lookup.size();
+                if (code == dictionary.length) dictionary = Arrays.copyOf(dictionary, code * 2);
+                dictionary[code] = value;
+                lookup.put(value, code);
+            }
+            return code;
+        }
+
+        @Override
+        public void addNull() {
+            ensureCapacity();
+            codes[size++] = -1;
+        }
+
+        @Override
+        public void add(Object value) {
+            if (value == null) addNull();
+            else add(value.toString());
+        }
+
+        // Codes are remapped onto this builder's dictionary, which keeps first-appearance order
+        @Override
+        public void addAll(Column column) {
+            StringColumn other = (StringColumn) column;
+            int[] remap = new int[other.dictionary.length];
+            for (int code = 0; code < remap.length; code++) {
+                remap[code] = codeOf(other.dictionary[code]);
+            }
+            if (size + other.size > codes.length) codes = Arrays.copyOf(codes, Math.max(size + other.size, ColumnBuilder.grow(size)));
+            for (int row = 0; row < other.size; row++) {
+                int code = other.code(row);
+                codes[size++] = code < 0 ? -1 : remap[code];
+            }
+        }
+
+        private void ensureCapacity() {
+            if (size == codes.length) codes = Arrays.copyOf(codes, ColumnBuilder.grow(size));
+        }
+
+        @Override
+        public StringColumn build() {
+            return new StringColumn(Arrays.copyOf(codes, size), Arrays.copyOf(dictionary, lookup.size()), size);
+        }
+    }
+}
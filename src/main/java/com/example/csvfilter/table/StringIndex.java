@@ -0,0 +1,247 @@
+package com.example.csvfilter.table;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// Secondary indexes over a dictionary-encoded string column, each built on first use. They work on
+// the dictionary: a lookup returns candidate codes whose case-folded value can match, the caller
+// checks those few values exactly, and the postings turn the surviving codes into rows.
+public final class StringIndex {
+
+    public enum Kind { POSTINGS, HASH, SORTED, TRIGRAM }
+
+    private final StringColumn column;
+
+    // Rows grouped by code: rows of code c are postingRows[postingOffsets[c] .. postingOffsets[c + 1])
+    private int[] postingOffsets;
+    private int[] postingRows;
+    // Case-folded value -> codes with that folded value
+    private Map<String, int[]> hash;
+    // Codes ordered by case-folded value, for prefix ranges
+    private int[] sortedCodes;
+    private String[] sortedKeys;
+    // Three folded chars packed into a long -> ascending codes whose folded value contains them
+    private Map<Long, int[]> trigrams;
+
+    public StringIndex(StringColumn column) {
+        this.column = column;
+    }
+
+    public synchronized boolean isBuilt(Kind kind) {
+        return switch (kind) {
+            case POSTINGS -> postingRows != null;
+            case HASH -> hash != null;
+            case SORTED -> sortedCodes != null;
+            case TRIGRAM -> trigrams != null;
+        };
+    }
+
+    public synchronized void build(Kind kind) {
+        if (isBuilt(kind)) return;
+        switch (kind) {
+            case POSTINGS -> buildPostings();
+            case HASH -> buildHash();
+            case SORTED -> buildSorted();
+            case TRIGRAM -> buildTrigrams();
+        }
+    }
+
+    public synchronized long estimatedBytes(Kind kind) {
+        if (!isBuilt(kind)) return 0;
+        return switch (kind) {
+            case POSTINGS -> 4L * postingOffsets.length + 4L * postingRows.length;
+            case HASH -> 64L * hash.size() + foldedBytes();
+            case SORTED -> 8L * sortedCodes.length + foldedBytes();
+            case TRIGRAM -> trigrams.values().stream().mapToLong(codes -> 80 + 4L * codes.length).sum();
+        };
+    }
+
+    private long foldedBytes() {
+        long bytes = 0;
+        for (String value : column.dictionary()) bytes += 40 + value.length();
+        return bytes;
+    }
+
+    private void buildPostings() {
+        String[] dictionary = column.dictionary();
+        int[] offsets = new int[dictionary.length + 2]; // The last bucket holds the nulls
+        for (int row = 0; row < column.size(); row++) {
+            offsets[bucket(row) + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) offsets[i] += offsets[i - 1];
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        int[] rows = new int[column.size()];
+        for (int row = 0; row < column.size(); row++) {
+            rows[next[bucket(row)]++] = row;
+        }
+        postingOffsets = offsets;
+        postingRows = rows;
+    }
+
+    private int bucket(int row) {
+        int code = column.code(row);
+        return code < 0 ? column.dictionary().length : code;
+    }
+
+    private void buildHash() {
+        String[] dictionary = column.dictionary();
+        Map<String, int[]> map = new HashMap<>(dictionary.length * 2);
+        for (int code = 0; code < dictionary.length; code++) {
+            int value = code;
+            map.merge(fold(dictionary[code]), new int[]{code}, (codes, one) -> {
+                int[] merged = Arrays.copyOf(codes, codes.length + 1);
+                merged[codes.length] = value;
+                return merged;
+            });
+        }
+        hash = map;
+    }
+
+    private void buildSorted() {
+        String[] dictionary = column.dictionary();
+        String[] folded = new String[dictionary.length];
+        int[] codes = new int[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            folded[code] = fold(dictionary[code]);
+            codes[code] = code;
+        }
+        codes = RowSorter.sort(codes, (a, b) -> folded[a].compareTo(folded[b]));
+        String[] keys = new String[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            keys[i] = folded[codes[i]];
+        }
+        sortedCodes = codes;
+        sortedKeys = keys;
+    }
+
+    private void buildTrigrams() {
+        String[] dictionary = column.dictionary();
+        // While building, slot 0 of each list holds its length
+        Map<Long, int[]> lists = new HashMap<>();
+        long[] seen = new long[0];
+        for (int code = 0; code < dictionary.length; code++) {
+            String value = fold(dictionary[code]);
+            int count = Math.max(0, value.length() - 2);
+            if (seen.length < count) seen = new long[count];
+            for (int i = 0; i < count; i++) seen[i] = trigram(value, i);
+            Arrays.sort(seen, 0, count);
+            for (int i = 0; i < count; i++) {
+                if (i > 0 && seen[i] == seen[i - 1]) continue;
+                int[] codes = lists.get(seen[i]);
+                if (codes == null || codes[0] == codes.length - 1) {
+                    codes = codes == null ? new int[4] : Arrays.copyOf(codes, codes.length * 2);
+                    lists.put(seen[i], codes);
+                }
+                codes[++codes[0]] = code;
+            }
+        }
+        lists.replaceAll((key, codes) -> Arrays.copyOfRange(codes, 1, codes[0] + 1));
+        trigrams = lists;
+    }
+
+    // --- Lookups; each builds what it needs ---
+
+    // Codes whose value may equal `value` ignoring case
+    public int[] equalCandidates(String value) {
+        build(Kind.HASH);
+        return hash.getOrDefault(fold(value), new int[0]);
+    }
+
+    // Codes whose value may start with `prefix` ignoring case
+    public int[] prefixCandidates(String prefix) {
+        build(Kind.SORTED);
+        String key = fold(prefix);
+        // First key >= the prefix; values that fold alike are adjacent, so no binarySearch
+        int from = 0;
+        int high = sortedKeys.length;
+        while (from < high) {
+            int middle = (from + high) >>> 1;
+            if (sortedKeys[middle].compareTo(key) < 0) from = middle + 1;
+            else high = middle;
+        }
+        int to = from;
+        while (to < sortedKeys.length && sortedKeys[to].startsWith(key)) to++;
+        return Arrays.copyOfRange(sortedCodes, from, to);
+    }
+
+    // Whether substringCandidates can narrow down `part`; shorter parts have no trigram
+    public static boolean hasTrigrams(String part) {
+        return fold(part).length() >= 3;
+    }
+
+    // Codes whose value may contain `part` ignoring case; null when every code may
+    public int[] substringCandidates(String part) {
+        String key = fold(part);
+        if (key.length() < 3) return null;
+        build(Kind.TRIGRAM);
+        int[] result = null;
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            int[] codes = trigrams.get(trigram(key, i));
+            if (codes == null) return new int[0];
+            result = result == null ? codes : intersect(result, codes);
+            if (result.length == 0) break;
+        }
+        return result;
+    }
+
+    // Rows holding any of the codes marked in `codes`
+    public BitSet rows(BitSet codes) {
+        build(Kind.POSTINGS);
+        BitSet rows = new BitSet(column.size());
+        for (int code = codes.nextSetBit(0); code >= 0; code = codes.nextSetBit(code + 1)) {
+            addRows(code, rows);
+        }
+        return rows;
+    }
+
+    public BitSet nullRows() {
+        build(Kind.POSTINGS);
+        BitSet rows = new BitSet(column.size());
+        addRows(column.dictionary().length, rows);
+        return rows;
+    }
+
+    private void addRows(int bucket, BitSet rows) {
+        for (int i = postingOffsets[bucket]; i < postingOffsets[bucket + 1]; i++) {
+            rows.set(postingRows[i]);
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static long trigram(String folded, int index) {
+        return ((long) folded.charAt(index) << 32) | ((long) folded.charAt(index + 1) << 16) | folded.charAt(index + 2);
+    }
+
+    // Case folding consistent with equalsIgnoreCase/regionMatches: values equal ignoring case fold to
+    // equal strings, so an index keyed on folded values never misses a match
+    public static String fold(String value) {
+        StringBuilder folded = null;
+        for (int i = 0; i < value.length(); ) {
+            int c = value.codePointAt(i);
+            int f = Character.toLowerCase(Character.toUpperCase(c));
+            if (f != c && folded == null) {
+                folded = new StringBuilder(value.length());
+                folded.append(value, 0, i);
+            }
+            if (folded != null) folded.appendCodePoint(f);
+            i += Character.charCount(c);
+        }
+        return folded == null ? value : folded.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.csvfilter.table;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.example.csvfilter.table.ScalarKernels.*;
+
+// The kernels on jdk.incubator.vector, as many values per instruction as the CPU's preferred
+// vector shape holds. Each lane comparison yields a mask whose bits go straight into the word;
+// long values are converted to doubles lane by lane, and sortable keys are built with shifts and
+// an XOR, as in ScalarKernels. The values past the last full vector are compared one by one.
+// Only instantiated, by name, when the module is present; see NumericKernels.
+final class VectorKernels implements NumericKernels {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    // The operators are constants in each loop: C2 only compiles vector operations to vector
+    // instructions when it can see which operator they take
+    @Override
+    public void compare(long[] values, int offset, int length, Comparison comparison, double literal, long[] words) {
+        clear(words, length);
+        int step = LONGS.length();
+        int bound = LONGS.loopBound(length);
+        if (comparison == Comparison.EQUAL || comparison == Comparison.NOT_EQUAL) {
+            for (int i = 0; i < bound; i += step) {
+                VectorMask<Double> mask = doubles(values, offset + i).compare(VectorOperators.EQ, literal);
+                words[i >>> 6] |= mask.toLong() << (i & 63);
+            }
+        } else if (isLower(comparison)) {
+            long threshold = threshold(comparison, literal);
+            for (int i = 0; i < bound; i += step) {
+                VectorMask<Long> mask = sortableKeys(doubles(values, offset + i)).compare(VectorOperators.GT, threshold);
+                words[i >>> 6] |= mask.toLong() << (i & 63);
+            }
+        } else {
+            long threshold = threshold(comparison, literal);
+            for (int i = 0; i < bound; i += step) {
+                VectorMask<Long> mask = sortableKeys(doubles(values, offset + i)).compare(VectorOperators.LT, threshold);
+                words[i >>> 6] |= mask.toLong() << (i & 63);
+            }
+        }
+        for (int i = bound; i < length; i++) {
+            tail(values[offset + i], i, comparison, literal, words);
+        }
+        if (comparison == Comparison.NOT_EQUAL) {
+            invert(words, length);
+        }
+    }
+
+    @Override
+    public void compare(double[] values, int offset, int length, Comparison comparison, double literal, long[] words) {
+        clear(words, length);
+        int step = DOUBLES.length();
+        int bound = DOUBLES.loopBound(length);
+        if (comparison == Comparison.EQUAL || comparison == Comparison.NOT_EQUAL) {
+            for (int i = 0; i < bound; i += step) {
+                VectorMask<Double> mask = DoubleVector.fromArray(DOUBLES, values, offset + i).compare(VectorOperators.EQ, literal);
+                words[i >>> 6] |= mask.toLong() << (i & 63);
+            }
+        } else if (isLower(comparison)) {
+            long threshold = threshold(comparison, literal);
+            for (int i = 0; i < bound; i += step) {
+                VectorMask<Long> mask = sortableKeys(DoubleVector.fromArray(DOUBLES, values, offset + i)).compare(VectorOperators.GT, threshold);
+                words[i >>> 6] |= mask.toLong() << (i & 63);
+            }
+        } else {
+            long threshold = threshold(comparison, literal);
+            for (int i = 0; i < bound; i += step) {
+                VectorMask<Long> mask = sortableKeys(DoubleVector.fromArray(DOUBLES, values, offset + i)).compare(VectorOperators.LT, threshold);
+                words[i >>> 6] |= mask.toLong() << (i & 63);
+            }
+        }
+        for (int i = bound; i < length; i++) {
+            tail(values[offset + i], i, comparison, literal, words);
+        }
+        if (comparison == Comparison.NOT_EQUAL) {
+            invert(words, length);
+        }
+    }
+
+    private static DoubleVector doubles(long[] values, int offset) {
+        return (DoubleVector) LongVector.fromArray(LONGS, values, offset).convert(VectorOperators.L2D, 0);
+    }
+
+    private static LongVector sortableKeys(DoubleVector values) {
+        LongVector bits = values.reinterpretAsLongs();
+        return bits.lanewise(VectorOperators.XOR, bits.lanewise(VectorOperators.ASHR, 63).lanewise(VectorOperators.LSHR, 1));
+    }
+
+    // One of the values past the last full vector; NOT_EQUAL is set as EQUAL and inverted later
+    private static void tail(double value, int i, Comparison comparison, double literal, long[] words) {
+        boolean match = switch (comparison) {
+            case EQUAL, NOT_EQUAL -> value == literal;
+            case GREATER, GREATER_EQUAL -> sortable(value) > threshold(comparison, literal);
+            default -> sortable(value) < threshold(comparison, literal);
+        };
+        words[i >>> 6] |= (match ? 1L : 0L) << i;
+    }
+}
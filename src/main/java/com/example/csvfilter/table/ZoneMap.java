@@ -0,0 +1,74 @@
+package com.example.csvfilter.table;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.function.IntToDoubleFunction;
+
+// Min, max and null count of a numeric column per block of BLOCK_SIZE rows. Min and max follow
+// Double.compare, the order filters compare numbers in; they are NaN for blocks of only nulls.
+public final class ZoneMap implements Serializable {
+    public static final int BLOCK_SIZE = 4096;
+
+    private final double[] min;
+    private final double[] max;
+    private final int[] nullCount;
+    private final int size;
+
+    private ZoneMap(double[] min, double[] max, int[] nullCount, int size) {
+        this.min = min;
+        this.max = max;
+        this.nullCount = nullCount;
+        this.size = size;
+    }
+
+    static ZoneMap build(int size, BitSet nulls, IntToDoubleFunction values) {
+        int blocks = blockCount(size);
+        double[] min = new double[blocks];
+        double[] max = new double[blocks];
+        int[] nullCount = new int[blocks];
+        for (int block = 0; block < blocks; block++) {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(from + BLOCK_SIZE, size);
+            double lo = Double.NaN;
+            double hi = Double.NaN;
+            boolean empty = true;
+            for (int row = from; row < to; row++) {
+                if (nulls.get(row)) {
+                    nullCount[block]++;
+                    continue;
+                }
+                double value = values.applyAsDouble(row);
+                if (empty || Double.compare(value, lo) < 0) lo = value;
+                if (empty || Double.compare(value, hi) > 0) hi = value;
+                empty = false;
+            }
+            min[block] = lo;
+            max[block] = hi;
+        }
+        return new ZoneMap(min, max, nullCount, size);
+    }
+
+    public static int blockCount(int rows) {
+        return (rows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    public double min(int block) {
+        return min[block];
+    }
+
+    public double max(int block) {
+        return max[block];
+    }
+
+    public int nullCount(int block) {
+        return nullCount[block];
+    }
+
+    public int rows(int block) {
+        return Math.min(BLOCK_SIZE, size - block * BLOCK_SIZE);
+    }
+
+    public long estimatedBytes() {
+        return 20L * min.length;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.csvfilter.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Exports are written after the request returns, so each one is started, then its body is
+// collected from the async dispatch
+@SpringBootTest
+@AutoConfigureMockMvc
+class CsvControllerExportTest {
+
+    // Fields with commas, quotes and line breaks, and a null
+    private static final String CSV = """
+            id,name,score
+            1,"Smith, John",3.5
+            2,"say ""hi\"\"",7
+            3,plain,
+            4,"two
+            lines",10
+            5,other,1
+            """;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void exportHoldsTheFilteredRowsWithEveryFieldQuoted() throws Exception {
+        MockHttpSession session = upload(CSV);
+
+        export(get("/export").param("filter", "score >= 3.5").session(session))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"filtered_data.csv\""))
+                .andExpect(content().string("""
+                        "id","name","score"
+                        "1","Smith, John","3.5"
+                        "2","say ""hi\"\"","7.0"
+                        "4","two
+                        lines","10.0"
+                        """));
+    }
+
+    @Test
+    void sortedExportOfChosenColumns() throws Exception {
+        MockHttpSession session = upload(CSV);
+
+        export(get("/export").param("filter", "id != 2").param("sort", "score").param("dir", "desc")
+                .param("cols", "name", "id").session(session))
+                .andExpect(status().isOk())
+                .andExpect(content().string("""
+                        "name","id"
+                        "two
+                        lines","4"
+                        "Smith, John","1"
+                        "other","5"
+                        "plain","3"
+                        """));
+    }
+
+    @Test
+    void filterErrorsAreReportedBeforeAnythingIsStreamed() throws Exception {
+        MockHttpSession session = upload(CSV);
+
+        export(get("/export").param("filter", "name > 3").session(session))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(startsWith("Export failed: ")));
+    }
+
+    @Test
+    void nothingToExportWithoutATable() throws Exception {
+        mockMvc.perform(get("/export").session(new MockHttpSession()))
+                .andExpect(status().isNoContent());
+    }
+
+    MockHttpSession upload(String csv) throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        MockMultipartFile file = new MockMultipartFile("file", "data.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/upload").file(file).session(session))
+                .andExpect(status().is3xxRedirection());
+        return session;
+    }
+
+    ResultActions export(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.csvfilter.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Row bodies are streamed, so each page is started, then collected from the async dispatch.
+// Errors found before streaming starts are answered directly by the exception handler.
+@SpringBootTest
+@AutoConfigureMockMvc
+class DataApiControllerTest {
+
+    private static final String CSV = """
+            id,name,score
+            1,ann,3.5
+            2,bob,7
+            3,cy,
+            4,dee,10
+            5,eve,1
+            6,fay,2.5
+            7,gus,7
+            """;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Test
+    void rowsAreJsonWithoutAnAcceptHeaderOrForAnyType() throws Exception {
+        MockHttpSession session = upload(CSV, new MockHttpSession());
+
+        for (MockHttpServletRequestBuilder builder : List.of(get("/api/rows"), get("/api/rows").accept(MediaType.ALL),
+                get("/api/rows").accept(MediaType.APPLICATION_JSON))) {
+            rows(builder.param("filter", "score >= 7").param("cols", "id", "name").session(session))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andExpect(content().json("""
+                            {"columns":[{"name":"id","type":"Long"},{"name":"name","type":"String"}],
+                             "total":3,"nextCursor":null,
+                             "rows":[{"id":2,"name":"bob"},{"id":4,"name":"dee"},{"id":7,"name":"gus"}]}
+                            """, true));
+        }
+    }
+
+    // The paging state moves to headers, and each row is a line of its own
+    @Test
+    void rowsAreNdjsonWhenTheClientPrefersIt() throws Exception {
+        MockHttpSession session = upload(CSV, new MockHttpSession());
+
+        for (String accept : List.of("application/x-ndjson", "application/json;q=0.5, application/x-ndjson")) {
+            rows(get("/api/rows").header("Accept", accept).param("limit", "2").session(session))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                    .andExpect(header().string("X-Total-Count", "7"))
+                    .andExpect(header().exists("X-Next-Cursor"))
+                    .andExpect(content().string("""
+                            {"id":1,"name":"ann","score":3.5}
+                            {"id":2,"name":"bob","score":7.0}
+                            """));
+        }
+        rows(get("/api/rows").accept(MediaType.APPLICATION_NDJSON).param("filter", "id = 3").session(session))
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(content().string("{\"id\":3,\"name\":\"cy\",\"score\":null}\n"));
+    }
+
+    // Following the cursors page by page gives the rows one request for all of them gives
+    @Test
+    void cursorsWalkTheRowsOfOneRequest() throws Exception {
+        MockHttpSession session = upload(CSV, new MockHttpSession());
+
+        for (String[] sort : List.of(new String[0], new String[]{"score"}, new String[]{"score", "name"})) {
+            for (String filter : List.of("", "id != 4", "score < 7 or name = \"gus\"")) {
+                for (int limit = 1; limit <= 3; limit++) {
+                    List<Integer> all = ids(JsonPath.read(json(session, filter, sort, null, 100), "$.rows[*].id"));
+                    List<Integer> paged = new ArrayList<>();
+                    String cursor = null;
+                    do {
+                        String page = json(session, filter, sort, cursor, limit);
+                        paged.addAll(ids(JsonPath.read(page, "$.rows[*].id")));
+                        cursor = JsonPath.read(page, "$.nextCursor");
+                    } while (cursor != null);
+
+                    assertEquals(all, paged, "filter '" + filter + "', sort " + List.of(sort) + ", limit " + limit);
+                }
+            }
+        }
+    }
+
+    // A cursor is bound to the table it was issued for; after a re-upload it is refused, not resumed
+    @Test
+    void cursorIsRefusedAfterAReupload() throws Exception {
+        MockHttpSession session = upload(CSV, new MockHttpSession());
+        String cursor = JsonPath.read(json(session, "", new String[0], null, 2), "$.nextCursor");
+        assertNotNull(cursor);
+
+        upload("id,name,score\n10,zed,1\n11,yan,2\n12,xi,3\n", session);
+
+        mockMvc.perform(get("/api/rows").param("cursor", cursor).param("limit", "2").session(session))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.error").value("Cursor belongs to a different table, filter or sort"));
+        rows(get("/api/rows").param("limit", "2").session(session))
+                .andExpect(jsonPath("$.rows[*].id").value(List.of(10, 11)));
+    }
+
+    @Test
+    void cursorOfAnotherFilterOrSortIsRefused() throws Exception {
+        MockHttpSession session = upload(CSV, new MockHttpSession());
+        String cursor = JsonPath.read(json(session, "score > 1", new String[]{"score"}, null, 2), "$.nextCursor");
+
+        mockMvc.perform(get("/api/rows").param("cursor", cursor).param("filter", "score > 2")
+                        .param("sort", "score").param("dir", "desc").session(session))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Cursor belongs to a different table, filter or sort"));
+        mockMvc.perform(get("/api/rows").param("cursor", cursor).param("filter", "score > 1")
+                        .param("sort", "name").param("dir", "desc").session(session))
+                .andExpect(status().isBadRequest());
+    }
+
+    // A cursor naming a row outside the rows it pages through is refused, not resumed next to it
+    @Test
+    void cursorOfARowOutsideTheResultIsRefused() throws Exception {
+        MockHttpSession session = upload(CSV, new MockHttpSession());
+        String cursor = JsonPath.read(json(session, "id != 4", new String[0], null, 2), "$.nextCursor");
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(":");
+        parts[parts.length - 1] = "3"; // The row of id 4
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join(":", parts).getBytes(StandardCharsets.US_ASCII));
+
+        mockMvc.perform(get("/api/rows").param("cursor", forged).param("filter", "id != 4").session(session))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Cursor is no longer valid"));
+    }
+
+    // Filter errors, unknown columns, bad parameters and overflowing sums are the client's to fix
+    @Test
+    void badRequestsAreAnsweredWithTheReason() throws Exception {
+        MockHttpSession session = upload(CSV + "8,hal,\n", new MockHttpSession());
+
+        badRequest(get("/api/rows").param("filter", "score >"), session)
+                .andExpect(jsonPath("$.error").isNotEmpty());
+        badRequest(get("/api/rows").param("filter", "missing = 1"), session)
+                .andExpect(jsonPath("$.error").isNotEmpty());
+        badRequest(get("/api/rows").param("cols", "id", "missing"), session)
+                .andExpect(jsonPath("$.error").value("Unknown column 'missing'"));
+        badRequest(get("/api/rows").param("limit", "0"), session)
+                .andExpect(jsonPath("$.error").value("limit must be between 1 and " + DataApiController.MAX_LIMIT));
+        badRequest(get("/api/rows").param("cursor", "not a cursor"), session)
+                .andExpect(jsonPath("$.error").value("Invalid cursor"));
+        badRequest(get("/api/rows").param("sort", "id").param("dir", "sideways"), session)
+                .andExpect(jsonPath("$.error").isNotEmpty());
+        badRequest(get("/api/aggregate").param("group", "missing"), session)
+                .andExpect(jsonPath("$.error").value("Unknown column 'missing'"));
+        badRequest(get("/api/aggregate").param("agg", "median(score)"), session)
+                .andExpect(jsonPath("$.error").isNotEmpty());
+        badRequest(get("/api/explain").param("filter", "(id = 1"), session)
+                .andExpect(jsonPath("$.error").isNotEmpty());
+
+        MockHttpSession big = upload("n\n9223372036854775807\n9223372036854775807\n", new MockHttpSession());
+        badRequest(get("/api/aggregate").param("agg", "sum(n)"), big)
+                .andExpect(jsonPath("$.error").isNotEmpty());
+    }
+
+    @Test
+    void nothingToServeWithoutATable() throws Exception {
+        rows(get("/api/rows").session(new MockHttpSession()))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("No data loaded"));
+        mockMvc.perform(get("/api/aggregate").session(new MockHttpSession()))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("No data loaded"));
+    }
+
+    private MockHttpSession upload(String csv, MockHttpSession session) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "data.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(multipart("/upload").file(file).session(session))
+                .andExpect(status().is3xxRedirection());
+        return session;
+    }
+
+    private ResultActions rows(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private ResultActions badRequest(MockHttpServletRequestBuilder builder, MockHttpSession session) throws Exception {
+        return mockMvc.perform(builder.session(session))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    // One JSON page, sorted descending by the given columns
+    private String json(MockHttpSession session, String filter, String[] sort, String cursor, int limit) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/rows").param("filter", filter).param("limit", Integer.toString(limit))
+                .session(session);
+        for (String column : sort) {
+            builder.param("sort", column).param("dir", "desc");
+        }
+        if (cursor != null) {
+            builder.param("cursor", cursor);
+        }
+        return rows(builder)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private static List<Integer> ids(List<Object> ids) {
+        List<Integer> list = new ArrayList<>();
+        for (Object id : ids) {
+            list.add(((Number) id).intValue());
+        }
+        return list;
+    }
+}
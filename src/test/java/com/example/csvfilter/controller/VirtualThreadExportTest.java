@@ -0,0 +1,26 @@
+package com.example.csvfilter.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The export tests again, with spring.threads.virtual.enabled: the streamed bodies are then
+// written by the async executor on virtual threads
+@SpringBootTest(properties = "spring.threads.virtual.enabled=true")
+@AutoConfigureMockMvc
+class VirtualThreadExportTest extends CsvControllerExportTest {
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    AsyncTaskExecutor taskExecutor;
+
+    @Test
+    void asyncExecutorRunsOnVirtualThreads() throws Exception {
+        assertTrue(taskExecutor.submit(() -> Thread.currentThread().isVirtual()).get());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.csvfilter.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CellScannerTest {
+
+    // Pieces of cells, weighted towards the ones that make numbers
+    private static final String[] PIECES = {
+            "0", "1", "2", "5", "7", "9", "00", "123", "4503599627370497", "9223372036854775807",
+            "9223372036854775808", "922337203685477580", ".", ".", "-", "+", "e", "E", "e-", "E+", "308",
+            "324", "22", "23", "f", "D", "x", "0x1", "p3", "P-2", "NaN", "Infinity", "true", "FaLsE",
+            "null", "NULL", " ", "\t", "\u00a0", "\u2003", "\u0663", "a", ","};
+
+    // Everything the scanner decides matches what the exception-driven parsers it replaced decide:
+    // the type, null-likeness and the parsed value
+    @Test
+    void randomCellsScanAsTheJdkParsersParseThem() {
+        Random random = new Random(41);
+        CellScanner scanner = new CellScanner();
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder cell = new StringBuilder();
+            for (int pieces = random.nextInt(5); pieces >= 0; pieces--) {
+                cell.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            check(scanner, cell.toString());
+        }
+    }
+
+    @Test
+    void edgeCells() {
+        CellScanner scanner = new CellScanner();
+        for (String cell : new String[]{"", " ", "null", "Null", "nulL ", "-", "+", "-0", "+0", "0", "007",
+                "-9223372036854775808", "-9223372036854775809", "9223372036854775807", "9223372036854775808",
+                "1e22", "1e23", "123456789012345e-22", "1234567890123456e-22", "4.9e-324", "2e-324", "1.7976931348623157e308",
+                "1.8e308", "0.1", "0.10", "1.", ".5", "5.d", " 1.5 ", "1.5 f", "0x1.8p1", "0X.8P-1f", "0x1p", "1e",
+                "1e+", "NaN", "-Infinity", "+NaN", "nan", "infinity", "TRUE", "tRuE", "truee", "\u0663\u0664", "1_000"}) {
+            check(scanner, cell);
+        }
+    }
+
+    private static void check(CellScanner scanner, String cell) {
+        boolean isNull = cell.isBlank() || cell.equalsIgnoreCase("null");
+        assertEquals(isNull, CellScanner.isNull(cell), cell);
+        if (isNull) return;
+
+        Class<?> type = scanner.scan(cell);
+        Long longValue = parseLong(cell);
+        Double doubleValue = parseDouble(cell);
+        boolean isBoolean = cell.equalsIgnoreCase("true") || cell.equalsIgnoreCase("false");
+        Class<?> expected = longValue != null ? Long.class : doubleValue != null ? Double.class
+                : isBoolean ? Boolean.class : String.class;
+        assertEquals(expected, type, cell);
+
+        if (type == Long.class) {
+            assertEquals(longValue.longValue(), scanner.longValue(), cell);
+            // Double.parseDouble takes no non-ASCII digits, which Long.parseLong does
+            double asDouble = doubleValue != null ? doubleValue : (double) longValue;
+            assertEquals(asDouble, scanner.doubleValue(), cell);
+            if (scanner.scale() >= 0) {
+                assertEquals(cell, Long.toString(scanner.longValue()), cell);
+            }
+        } else if (type == Double.class) {
+            assertEquals(doubleValue.doubleValue(), scanner.doubleValue(), cell);
+            if (scanner.scale() >= 0) {
+                assertEquals(cell, new BigDecimal(scanner.doubleValue()).setScale(scanner.scale(), RoundingMode.HALF_EVEN).toPlainString(), cell);
+            }
+        } else if (type == Boolean.class) {
+            assertEquals(cell.equalsIgnoreCase("true"), scanner.booleanValue(), cell);
+        }
+    }
+
+    private static Long parseLong(String cell) {
+        try {
+            return Long.parseLong(cell);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double parseDouble(String cell) {
+        try {
+            return Double.parseDouble(cell);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.csvfilter.csv;
+
+import com.example.csvfilter.table.DataTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelCsvParserTest {
+
+    private static final String[] WORDS = {"plain", "with space", "comma,inside", "quote\"inside", "\"quoted\"",
+            "two\nlines", "trailing,", "", "NULL", "null", "caf\u00e9", "\u65e5\u672c", "12", "1.5", "true", "x"};
+    private static final String[] NUMBERS = {"0", "-0", "12", "007", "1.50", "-3.25", "1e3", "", "NaN", "9007199254740993"};
+
+    @TempDir
+    Path spoolDirectory;
+
+    private ParallelCsvParser parser;
+
+    @AfterEach
+    void shutdown() {
+        if (parser != null) parser.shutdown();
+    }
+
+    // Small chunks put record boundaries inside quoted fields, right after quotes and at line
+    // breaks of every kind; the stitched table must be the sequential one
+    @Test
+    void randomFilesLoadAsTheSequentialParserLoadsThem() {
+        parser = new ParallelCsvParser(new TypeInferrer(), spoolDirectory.toString(), 4, 256);
+        Random random = new Random(37);
+        for (int i = 0; i < 40; i++) {
+            byte[] csv = csv(random, 50 + random.nextInt(800), random.nextBoolean() ? "\n" : "\r\n");
+
+            assertSameTable(sequential(csv), parser.load(new ByteArrayInputStream(csv)), "file " + i);
+        }
+    }
+
+    @Test
+    void quotedFieldsSpanningChunkBoundaries() {
+        parser = new ParallelCsvParser(new TypeInferrer(), spoolDirectory.toString(), 3, 64);
+        StringBuilder csv = new StringBuilder("id,text\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append(i).append(",\"").append("a\"\"b,\n".repeat(i % 17)).append("\"\n");
+        }
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        assertSameTable(sequential(bytes), parser.load(new ByteArrayInputStream(bytes)), csv.toString());
+    }
+
+    private static byte[] csv(Random random, int rows, String lineEnd) {
+        StringBuilder csv = new StringBuilder("id,number,text,flag,late").append(lineEnd);
+        int widensAt = random.nextInt(rows + 1);
+        for (int row = 0; row < rows; row++) {
+            csv.append(row).append(',');
+            csv.append(NUMBERS[random.nextInt(NUMBERS.length)]).append(',');
+            csv.append(field(WORDS[random.nextInt(WORDS.length)], random)).append(',');
+            csv.append(random.nextInt(10) == 0 ? "" : random.nextBoolean() ? "TRUE" : "false").append(',');
+            csv.append(row == widensAt ? "n/a" : Integer.toString(random.nextInt(1000)));
+            csv.append(lineEnd);
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Quoted when it has to be, and sometimes when it need not be
+    private static String field(String value, Random random) {
+        boolean quote = value.contains(",") || value.contains("\"") || value.contains("\n") || random.nextInt(4) == 0;
+        return quote ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    private static DataTable sequential(byte[] csv) {
+        TableLoader loader = new TableLoader(new TypeInferrer());
+        new CsvParser().parse(new ByteArrayInputStream(csv), loader);
+        return loader.finish();
+    }
+
+    private static void assertSameTable(DataTable expected, DataTable actual, String message) {
+        assertEquals(expected.headers(), actual.headers(), message);
+        assertEquals(expected.schema(), actual.schema(), message);
+        assertEquals(expected.rowCount(), actual.rowCount(), message);
+        for (int row = 0; row < expected.rowCount(); row++) {
+            assertEquals(expected.rowAsMap(row), actual.rowAsMap(row), message + " at row " + row);
+        }
+    }
+}
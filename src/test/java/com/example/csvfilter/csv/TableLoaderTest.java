@@ -0,0 +1,130 @@
+package com.example.csvfilter.csv;
+
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TableLoaderTest {
+
+    // Numbers written in every way a Long or Double cell can be; none of these may change when the
+    // column turns out to hold text
+    private static final List<String> NUMBERS = List.of(
+            "12", "1.50", "0.10", "-3.25", "007", "+5", "-0", "-0.0", "0", "0.000", "1e3", "1.0E-7",
+            "5.", ".5", "NaN", "-Infinity", "0x1p3", "2.5d", "12345678901234567",
+            "9007199254740993", "3.141592653589793238", "100000000000000000000", "123456789012345.5");
+
+    @TempDir
+    Path spoolDirectory;
+
+    @Test
+    void numbersKeepTheirTextWhenTheColumnWidensToString() {
+        List<String> cells = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            cells.add(NUMBERS.get(i % NUMBERS.size()));
+        }
+        cells.add("n/a"); // Past the sample, so the column starts out numeric
+        cells.addAll(NUMBERS);
+
+        DataTable table = load(csv(cells));
+
+        assertEquals(String.class, table.schema().get("value"));
+        assertEquals(cells, texts(table.column(1)));
+    }
+
+    @Test
+    void numbersKeepTheirTextAfterWideningToDoubleFirst() {
+        List<String> cells = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            cells.add(i % 3 == 0 ? "9007199254740993" : i % 3 == 1 ? "-12" : "0042");
+        }
+        cells.add("2.50"); // Long to Double
+        cells.add("-9007199254740993");
+        cells.add("text"); // Double to String
+
+        DataTable table = load(csv(cells));
+
+        assertEquals(cells, texts(table.column(1)));
+    }
+
+    @Test
+    void booleansKeepTheirCaseWhenTheColumnWidensToString() {
+        List<String> cells = new ArrayList<>();
+        String[] booleans = {"true", "FALSE", "True", "false", "tRuE", "TRUE", "False"};
+        for (int i = 0; i < 200; i++) {
+            cells.add(booleans[i % booleans.length]);
+        }
+        cells.add("maybe");
+
+        DataTable table = load(csv(cells));
+
+        assertEquals(cells, texts(table.column(1)));
+    }
+
+    @Test
+    void columnsThatStayNumericHoldTheParsedValues() {
+        List<String> cells = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            cells.add(Integer.toString(i));
+        }
+        cells.add("1.50");
+        cells.add("");
+
+        DataTable table = load(csv(cells));
+
+        assertEquals(Double.class, table.schema().get("value"));
+        assertEquals(149.0, table.getValue(149, 1));
+        assertEquals(1.5, table.getValue(150, 1));
+        assertEquals(null, table.getValue(151, 1));
+    }
+
+    @Test
+    void parallelChunksKeepTheTextOfRowsLoadedBeforeTheyWidened() throws Exception {
+        List<String> cells = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            cells.add(NUMBERS.get(i % NUMBERS.size()));
+            if (i == 1_200) cells.add("n/a"); // In a later chunk, after earlier chunks loaded numbers
+        }
+        byte[] csv = csv(cells);
+
+        ParallelCsvParser parser = new ParallelCsvParser(new TypeInferrer(), spoolDirectory.toString(), 4, 1 << 10);
+        try {
+            DataTable parallel = parser.load(new ByteArrayInputStream(csv));
+            assertEquals(cells, texts(parallel.column(1)));
+            assertEquals(texts(load(csv).column(0)), texts(parallel.column(0)));
+        } finally {
+            parser.shutdown();
+        }
+    }
+
+    private static byte[] csv(List<String> values) {
+        StringBuilder csv = new StringBuilder("id,value\n");
+        for (int i = 0; i < values.size(); i++) {
+            csv.append(i).append(',').append(values.get(i)).append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static DataTable load(byte[] csv) {
+        TableLoader loader = new TableLoader(new TypeInferrer());
+        new CsvParser().parse(new ByteArrayInputStream(csv), loader);
+        return loader.finish();
+    }
+
+    private static List<String> texts(Column column) {
+        List<String> texts = new ArrayList<>();
+        for (int row = 0; row < column.size(); row++) {
+            Object value = column.get(row);
+            texts.add(value == null ? null : value.toString());
+        }
+        return texts;
+    }
+}
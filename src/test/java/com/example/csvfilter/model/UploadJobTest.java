@@ -0,0 +1,65 @@
+package com.example.csvfilter.model;
+
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.LongColumn;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UploadJobTest {
+
+    @Test
+    void progressOfARunningJob() {
+        UploadJob job = new UploadJob("a", 1_000);
+        assertNull(job.progress().etaSeconds()); // Nothing read yet
+
+        job.addBytes(250);
+        job.setRows(40);
+
+        UploadJob.Progress progress = job.progress();
+        assertEquals(UploadJob.State.RUNNING, progress.state());
+        assertEquals(250, progress.bytesRead());
+        assertEquals(1_000, progress.totalBytes());
+        assertEquals(40, progress.rows());
+        assertNotNull(progress.etaSeconds());
+    }
+
+    @Test
+    void finishingDropsTheSnapshot() {
+        UploadJob job = new UploadJob("a", 10);
+        job.publish(table(3));
+
+        job.finish(7);
+
+        assertNull(job.snapshot());
+        assertEquals(UploadJob.State.DONE, job.state());
+        assertEquals(7, job.progress().rows());
+        assertNull(job.progress().etaSeconds());
+    }
+
+    // Cancelling a job that has ended, as clearing its session does, keeps how it ended
+    @Test
+    void failingAnEndedJobChangesNothing() {
+        UploadJob done = new UploadJob("a", 10);
+        done.finish(3);
+        done.fail("Upload cancelled");
+        assertEquals(UploadJob.State.DONE, done.state());
+        assertNull(done.error());
+
+        UploadJob failed = new UploadJob("b", 10);
+        failed.fail("Bad file");
+        failed.fail("Upload cancelled");
+        assertEquals(UploadJob.State.FAILED, failed.state());
+        assertEquals("Bad file", failed.error());
+    }
+
+    private static DataTable table(int rows) {
+        return new DataTable(List.of("id"), new Column[]{new LongColumn(new long[rows], new BitSet(), rows)}, rows);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.csvfilter.model;
+
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.ColumnBuilder;
+import com.example.csvfilter.table.DataTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserSessionDataTest {
+
+    private final UserSessionData session = new UserSessionData();
+
+    @Test
+    void completedUploadInstallsItsTable() {
+        UploadJob job = new UploadJob("a", 10);
+        session.startUpload(job);
+        DataTable table = table(3);
+
+        assertTrue(session.completeUpload(job, table, null));
+
+        assertSame(table, session.getTable());
+        assertEquals(UploadJob.State.DONE, job.state());
+        assertSame(job, session.getUpload());
+        assertFalse(session.isLoading());
+    }
+
+    // The loader owns a table the session refuses, and releases it itself
+    @Test
+    void uploadTheSessionDroppedIsNotInstalled() {
+        UploadJob first = new UploadJob("a", 10);
+        session.startUpload(first);
+        UploadJob second = new UploadJob("b", 10);
+        session.startUpload(second);
+        AtomicInteger closed = new AtomicInteger();
+        Closeable storage = closed::incrementAndGet;
+
+        assertFalse(session.completeUpload(first, table(3), storage));
+
+        assertEquals(UploadJob.State.FAILED, first.state());
+        assertEquals("Upload cancelled", first.error());
+        assertNull(session.getTable());
+        assertTrue(session.isLoading());
+        assertEquals(0, closed.get());
+    }
+
+    @Test
+    void uploadCancelledByClearingIsNotInstalled() {
+        UploadJob job = new UploadJob("a", 10);
+        session.startUpload(job);
+        session.clearData();
+
+        assertFalse(session.completeUpload(job, table(3), null));
+
+        assertNull(session.getTable());
+        assertNull(session.getUpload());
+        assertEquals(UploadJob.State.FAILED, job.state());
+    }
+
+    // While an upload runs, the schema is that of its latest snapshot, and no longer the old table's
+    @Test
+    void runningUploadShowsItsSnapshot() {
+        session.setData(table(5));
+        UploadJob job = new UploadJob("a", 10);
+        session.startUpload(job);
+        assertNull(session.getHeaders());
+
+        job.publish(table(2));
+
+        assertEquals(List.of("id"), session.getHeaders());
+        assertEquals(2, job.progress().rows());
+    }
+
+    @Test
+    void replacingTheTableReleasesTheOldStorage() {
+        AtomicInteger closed = new AtomicInteger();
+        session.setData(table(1), closed::incrementAndGet);
+
+        session.setData(table(2));
+        session.clearData();
+
+        assertEquals(1, closed.get());
+    }
+
+    // A lease moved before the session listens hands over the moved table at once
+    @Test
+    void tableMovedBeforeItIsSetIsReadMoved() {
+        DataTable moved = table(2);
+        Lease lease = new Lease();
+        lease.move(moved);
+
+        session.setData(table(2), lease);
+
+        assertSame(moved, session.getTable());
+    }
+
+    // A table the session has replaced stays replaced when its old storage moves it
+    @Test
+    void moveOfAReplacedTableIsIgnored() {
+        Lease old = new Lease();
+        session.setData(table(1), old);
+        DataTable current = table(2);
+        session.setData(current, new Lease());
+
+        old.move(table(1));
+
+        assertSame(current, session.getTable());
+        assertEquals(1, old.closed);
+    }
+
+    private static final class Lease implements TableLease {
+        private Consumer<DataTable> listener;
+        private DataTable moved;
+        private int closed;
+
+        void move(DataTable to) {
+            moved = to;
+            if (listener != null) listener.accept(to);
+        }
+
+        @Override
+        public void touch() {
+        }
+
+        @Override
+        public void onMove(Consumer<DataTable> listener) {
+            this.listener = listener;
+            if (moved != null) listener.accept(moved);
+        }
+
+        @Override
+        public void close() {
+            closed++;
+        }
+    }
+
+    private static DataTable table(int rows) {
+        ColumnBuilder ids = ColumnBuilder.forType(Long.class);
+        for (int row = 0; row < rows; row++) {
+            ids.add((long) row);
+        }
+        return new DataTable(List.of("id"), new Column[]{ids.build()}, rows);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.NumericKernels;
+import com.example.csvfilter.table.ZoneMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BitmapFilterCompilerTest {
+
+    private final DataTable table = RandomFilters.table(new Random(27));
+
+    // The vector kernels exist only when the JVM runs with jdk.incubator.vector, as the build's
+    // tests do; they are checked whenever they are there
+    private static List<NumericKernels> kernels() {
+        List<NumericKernels> kernels = new ArrayList<>(List.of(NumericKernels.SCALAR));
+        if (NumericKernels.VECTOR != null) kernels.add(NumericKernels.VECTOR);
+        return kernels;
+    }
+
+    // Runs of whole blocks, and shorter runs that end inside a word, set exactly the bits of the
+    // rows the Evaluator selects
+    @Test
+    void selectedBitsAreTheRowsTheEvaluatorSelects() {
+        for (NumericKernels kernels : kernels()) {
+            Random random = new Random(29);
+            int compiled = 0;
+            for (int i = 0; i < 500; i++) {
+                String filter = RandomFilters.filter(random, 3);
+                Expression ast = RandomFilters.parse(table, filter);
+                BitmapFilter bitmap = new BitmapFilterCompiler(table, kernels).compile(ast);
+                if (bitmap == null) continue;
+                compiled++;
+                BitSet expected = bits(RandomFilters.evaluated(table, ast));
+
+                assertEquals(expected, select(bitmap, ZoneMap.BLOCK_SIZE), kernels + ": " + filter);
+                assertEquals(expected, select(bitmap, 64 * 7), kernels + ": " + filter);
+            }
+            assertTrue(compiled > 150, "Too few filters compiled to bitmaps: " + compiled);
+        }
+    }
+
+    // Refining keeps exactly the rows that were set and match
+    @Test
+    void refinedBitsAreTheSetRowsTheEvaluatorSelects() {
+        for (NumericKernels kernels : kernels()) {
+            Random random = new Random(31);
+            for (int i = 0; i < 150; i++) {
+                String filter = RandomFilters.filter(random, 3);
+                Expression ast = RandomFilters.parse(table, filter);
+                BitmapFilter bitmap = new BitmapFilterCompiler(table, kernels).compile(ast);
+                if (bitmap == null) continue;
+                BitSet set = new BitSet(table.rowCount());
+                for (int row = 0; row < table.rowCount(); row++) {
+                    if (random.nextInt(3) > 0) set.set(row);
+                }
+                BitSet expected = bits(RandomFilters.evaluated(table, ast));
+                expected.and(set);
+
+                assertEquals(expected, refine(bitmap, set), kernels + ": " + filter);
+            }
+        }
+    }
+
+    @Test
+    void numericComparisonsCompile() {
+        assertNotNull(new BitmapFilterCompiler(table, NumericKernels.SCALAR).compile(RandomFilters.parse(table, "x >= 0 and n < 20")));
+    }
+
+    // Bits past the end of a run in its last word are cleared, so words start out with every bit set
+    private BitSet select(BitmapFilter bitmap, int runLength) {
+        BitSet selected = new BitSet(table.rowCount());
+        for (int from = 0; from < table.rowCount(); from += runLength) {
+            int to = Math.min(from + runLength, table.rowCount());
+            long[] words = new long[(to - from + 63) / 64];
+            Arrays.fill(words, -1L);
+            bitmap.select(from, to, words);
+            add(selected, words, from, to);
+        }
+        return selected;
+    }
+
+    private BitSet refine(BitmapFilter bitmap, BitSet set) {
+        BitSet refined = new BitSet(table.rowCount());
+        for (int from = 0; from < table.rowCount(); from += ZoneMap.BLOCK_SIZE) {
+            int to = Math.min(from + ZoneMap.BLOCK_SIZE, table.rowCount());
+            long[] words = Arrays.copyOf(set.get(from, to).toLongArray(), (to - from + 63) / 64);
+            bitmap.refine(from, to, words);
+            add(refined, words, from, to);
+        }
+        return refined;
+    }
+
+    // Adds the bits of a run, failing on any bit past its end
+    private static void add(BitSet rows, long[] words, int from, int to) {
+        BitSet run = BitSet.valueOf(words);
+        assertTrue(run.length() <= to - from, "Bit set past the end of the run");
+        for (int i = run.nextSetBit(0); i >= 0; i = run.nextSetBit(i + 1)) {
+            rows.set(from + i);
+        }
+    }
+
+    private static BitSet bits(int[] rows) {
+        BitSet bits = new BitSet();
+        for (int row : rows) bits.set(row);
+        return bits;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.ZoneMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlockFilterCompilerTest {
+
+    private final DataTable table = RandomFilters.table(new Random(5));
+
+    // A block classified ALL or NONE holds only rows the Evaluator selects, or only rows it rejects
+    @Test
+    void decidedBlocksAgreeWithTheEvaluator() {
+        Random random = new Random(13);
+        int decided = 0;
+        for (int i = 0; i < 1_000; i++) {
+            String filter = RandomFilters.filter(random, 3);
+            Expression ast = RandomFilters.parse(table, filter);
+            BlockFilter blocks = new BlockFilterCompiler(table).compile(ast);
+            Evaluator evaluator = new Evaluator(table);
+
+            for (int block = 0; block < ZoneMap.blockCount(table.rowCount()); block++) {
+                BlockMatch match = blocks.match(block);
+                if (match == BlockMatch.SOME) continue;
+                decided++;
+                int from = block * ZoneMap.BLOCK_SIZE;
+                int to = Math.min(from + ZoneMap.BLOCK_SIZE, table.rowCount());
+                for (int row = from; row < to; row++) {
+                    assertEquals(match == BlockMatch.ALL, evaluator.evaluate(ast, row), filter + " at row " + row);
+                }
+            }
+        }
+        assertTrue(decided > 500, "Too few blocks decided: " + decided);
+    }
+
+    @Test
+    void rangesOverRisingValuesDecideWholeBlocks() {
+        BlockFilter blocks = new BlockFilterCompiler(table).compile(RandomFilters.parse(table, "n >= 10 and n < 20"));
+
+        assertEquals(BlockMatch.NONE, blocks.match(0));
+        assertEquals(BlockMatch.SOME, blocks.match(1)); // Holds nulls
+        assertEquals(BlockMatch.NONE, blocks.match(2));
+        assertEquals(BlockMatch.ALL, new BlockFilterCompiler(table).compile(RandomFilters.parse(table, "n < 10")).match(0));
+    }
+}
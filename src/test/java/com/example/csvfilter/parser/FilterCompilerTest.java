@@ -0,0 +1,62 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.parser.exception.EvaluationException;
+import com.example.csvfilter.table.DataTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FilterCompilerTest {
+
+    private final DataTable table = RandomFilters.table(new Random(3));
+
+    // Compiled predicates select exactly the rows the Evaluator does
+    @Test
+    void compiledFiltersSelectTheSameRowsAsTheEvaluator() {
+        Random random = new Random(11);
+        for (int i = 0; i < 1_000; i++) {
+            String filter = RandomFilters.filter(random, 3);
+            Expression ast = RandomFilters.parse(table, filter);
+            RowPredicate predicate = new FilterCompiler(table).compile(ast);
+
+            int[] compiled = IntStream.range(0, table.rowCount()).filter(predicate::test).toArray();
+
+            assertArrayEquals(RandomFilters.evaluated(table, ast), compiled, filter);
+        }
+    }
+
+    @Test
+    void signedZeroAndNaNFollowTheEvaluator() {
+        for (String filter : new String[]{"x == 0", "x != 0.0", "x < 0", "x >= 0", "x > 100", "x == x", "x != x", "n <= x"}) {
+            Expression ast = RandomFilters.parse(table, filter);
+            RowPredicate predicate = new FilterCompiler(table).compile(ast);
+
+            assertArrayEquals(RandomFilters.evaluated(table, ast),
+                    IntStream.range(0, table.rowCount()).filter(predicate::test).toArray(), filter);
+        }
+    }
+
+    // Lowering "\u0130" gives "i" and a combining dot, so "\u0130nk" does not contain "in"
+    @Test
+    void stringTestsLowerNonAsciiValuesAsTheEvaluatorDoes() {
+        for (String filter : new String[]{"s contains \"in\"", "s startsWith \"in\"", "s endsWith \"\u0131nk\"",
+                "s contains \"\u0131\"", "s endsWith \"\u03c2\"", "t contains \"\u0131d\""}) {
+            Expression ast = RandomFilters.parse(table, filter);
+            RowPredicate predicate = new FilterCompiler(table).compile(ast);
+
+            assertArrayEquals(RandomFilters.evaluated(table, ast),
+                    IntStream.range(0, table.rowCount()).filter(predicate::test).toArray(), filter);
+        }
+    }
+
+    @Test
+    void typeErrorsAreReportedWhenCompiling() {
+        assertThrows(EvaluationException.class, () -> new FilterCompiler(table).compile(RandomFilters.parse(table, "n contains \"1\"")));
+        assertThrows(EvaluationException.class, () -> new FilterCompiler(table).compile(RandomFilters.parse(table, "s > 5")));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.parser.ast.LiteralExpression;
+import com.example.csvfilter.table.DataTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilterPlannerTest {
+
+    private final DataTable table = RandomFilters.table(new Random(21));
+
+    // Folding constants and reordering terms leaves the rows a filter selects unchanged
+    @Test
+    void plannedFiltersSelectTheSameRowsAsTheParsedOnes() {
+        Random random = new Random(23);
+        for (int i = 0; i < 400; i++) {
+            String filter = RandomFilters.filter(random, 3);
+            Expression ast = RandomFilters.parse(table, filter);
+            Expression planned = FilterPlanner.plan(table, ast).expression();
+
+            assertArrayEquals(RandomFilters.evaluated(table, ast), RandomFilters.evaluated(table, planned), filter);
+        }
+    }
+
+    @Test
+    void chainsALiteralDecidesBecomeThatLiteral() {
+        Expression planned = FilterPlanner.plan(table, RandomFilters.parse(table, "n > 3 and (false and s == \"red\")")).expression();
+
+        assertEquals(new LiteralExpression(false), planned);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.StringColumn;
+import com.example.csvfilter.table.StringIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexPlannerTest {
+
+    private final DataTable table = RandomFilters.table(new Random(9));
+    private final Map<Integer, StringIndex> indexes = new HashMap<>();
+    private final IndexPlanner planner = new IndexPlanner(table, (column, kind) -> {
+        StringIndex index = indexes.computeIfAbsent(column, c -> new StringIndex((StringColumn) table.column(c)));
+        index.build(kind);
+        return index;
+    });
+
+    // Any filter or AND term the indexes answer is answered with exactly the Evaluator's rows
+    @Test
+    void indexedLookupsSelectTheSameRowsAsTheEvaluator() {
+        Random random = new Random(17);
+        int answered = 0;
+        for (int i = 0; i < 1_000; i++) {
+            String filter = RandomFilters.filter(random, 3);
+            Expression ast = RandomFilters.parse(table, filter);
+            for (Expression term : IndexPlanner.conjuncts(ast)) {
+                BitSet rows = planner.lookup(term);
+                if (rows == null) continue;
+                answered++;
+                assertArrayEquals(RandomFilters.evaluated(table, term), rows.stream().toArray(), filter);
+            }
+            BitSet rows = planner.lookup(ast);
+            if (rows != null) {
+                assertArrayEquals(RandomFilters.evaluated(table, ast), rows.stream().toArray(), filter);
+            }
+        }
+        assertTrue(answered > 100, "Too few terms answered from indexes: " + answered);
+    }
+
+    @Test
+    void nonAsciiTextIsMatchedAsTheEvaluatorLowersIt() {
+        for (String filter : new String[]{"s contains \"in\"", "s startsWith \"in\"", "s endsWith \"\u0131nk\"",
+                "s contains \"\u0131\"", "s contains \"\u03c3\u03b1\u03c2\"", "s endsWith \"\u03c2\"",
+                "t startsWith \"\u0131d1\"", "s == \"\u0130NK\""}) {
+            Expression ast = RandomFilters.parse(table, filter);
+            BitSet rows = planner.lookup(ast);
+
+            assertNotNull(rows, filter);
+            assertArrayEquals(RandomFilters.evaluated(table, ast), rows.stream().toArray(), filter);
+        }
+    }
+
+    @Test
+    void termsOnOtherColumnsNeedAScan() {
+        assertNull(planner.lookup(RandomFilters.parse(table, "n > 3")));
+        assertNull(planner.lookup(RandomFilters.parse(table, "s == \"red\" or n > 3")));
+        assertNull(planner.lookup(RandomFilters.parse(table, "s > \"red\"")));
+    }
+}
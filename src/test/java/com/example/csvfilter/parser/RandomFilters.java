@@ -0,0 +1,104 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.ColumnBuilder;
+import com.example.csvfilter.table.DataTable;
+import com.example.csvfilter.table.ZoneMap;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+// A table and random well-typed filters over it, for tests that check a filtering path against
+// the Evaluator. The table spans several blocks: n rises from block to block so that zone maps
+// decide whole blocks, only every other block has nulls, x holds -0.0 and NaN, s is a
+// low-cardinality string column, with values whose lowering is not char by char, and t a
+// high-cardinality one.
+final class RandomFilters {
+
+    static final int ROWS = 3 * ZoneMap.BLOCK_SIZE + 100;
+
+    private static final String[] OPERATORS = {"==", "!=", "<", "<=", ">", ">="};
+    private static final String[] STRING_OPERATORS = {"contains", "startsWith", "endsWith"};
+    private static final Object[] DOUBLES = {-0.0, 0.0, 1.5, -2.0, 3.25, 7.0, Double.NaN};
+    private static final String[] NUMBERS = {"0", "0.0", "1.5", "3", "7", "10", "15", "20", "25", "39", "100", "null"};
+    // Lowering "\u0130nk" gives four chars and "\u03a3\u0391\u03a3" ends in a final sigma
+    private static final String[] COLORS = {"red", "Green", "blue", "BLUE", "yellow", "", "\u0130nk", "\u03a3\u0391\u03a3"};
+    private static final String[] WORDS = {"\"red\"", "\"green\"", "\"Blue\"", "\"e\"", "\"bl\"", "\"low\"",
+            "\"\"", "\"id1\"", "\"ID12\"", "\"d12\"", "\"7\"", "\"xyz\"", "\"i\"",
+            "\"in\"", "\"nk\"", "\"\u0131\"", "\"\u03c2\"", "\"\u03c3\u03b1\u03c3\""};
+
+    private RandomFilters() {
+    }
+
+    static DataTable table(Random random) {
+        ColumnBuilder n = ColumnBuilder.forType(Long.class);
+        ColumnBuilder x = ColumnBuilder.forType(Double.class);
+        ColumnBuilder s = ColumnBuilder.forType(String.class);
+        ColumnBuilder t = ColumnBuilder.forType(String.class);
+        ColumnBuilder b = ColumnBuilder.forType(Boolean.class);
+        for (int row = 0; row < ROWS; row++) {
+            int block = row / ZoneMap.BLOCK_SIZE;
+            boolean nulls = block % 2 == 1;
+            add(n, nulls, random, (long) block * 10 + random.nextInt(10));
+            add(x, nulls, random, DOUBLES[random.nextInt(DOUBLES.length)]);
+            add(s, nulls, random, COLORS[random.nextInt(COLORS.length)]);
+            add(t, nulls, random, (random.nextBoolean() ? "id" : "ID") + random.nextInt(ROWS));
+            add(b, nulls, random, random.nextBoolean());
+        }
+        return new DataTable(List.of("n", "x", "s", "t", "b"),
+                new Column[]{n.build(), x.build(), s.build(), t.build(), b.build()}, ROWS);
+    }
+
+    private static void add(ColumnBuilder builder, boolean nulls, Random random, Object value) {
+        if (nulls && random.nextInt(20) == 0) builder.addNull();
+        else builder.add(value);
+    }
+
+    // AND and OR of up to `depth` levels of terms, some of them grouped
+    static String filter(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return term(random);
+        }
+        String left = filter(random, depth - 1);
+        String right = filter(random, depth - 1);
+        String joined = left + (random.nextBoolean() ? " and " : " or ") + right;
+        return random.nextInt(3) == 0 ? "(" + joined + ")" : joined;
+    }
+
+    static String term(Random random) {
+        String operator = OPERATORS[random.nextInt(OPERATORS.length)];
+        return switch (random.nextInt(10)) {
+            case 0, 1 -> "n " + operator + " " + pick(random, NUMBERS);
+            case 2 -> "x " + operator + " " + pick(random, NUMBERS);
+            case 3 -> pick(random, NUMBERS) + " " + operator + " " + (random.nextBoolean() ? "n" : "x");
+            case 4 -> (random.nextBoolean() ? "n " : "x ") + operator + (random.nextBoolean() ? " x" : " n");
+            case 5 -> "s " + (random.nextBoolean() ? operator : pick(random, STRING_OPERATORS)) + " " + pick(random, WORDS);
+            case 6 -> "t " + (random.nextBoolean() ? operator : pick(random, STRING_OPERATORS)) + " " + pick(random, WORDS);
+            case 7 -> (random.nextBoolean() ? "s " : "t ") + (random.nextBoolean() ? "== " : "!= ") + "null";
+            case 8 -> switch (random.nextInt(4)) {
+                case 0 -> "b";
+                case 1 -> "b == true";
+                case 2 -> "b != false";
+                default -> "b == null";
+            };
+            default -> random.nextBoolean() ? "true" : "false";
+        };
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    static Expression parse(DataTable table, String filter) {
+        return new Parser(new Tokenizer(filter).tokenize(), Set.copyOf(table.headers())).parse();
+    }
+
+    // The rows the reference interpreter selects
+    static int[] evaluated(DataTable table, Expression filter) {
+        Evaluator evaluator = new Evaluator(table);
+        return IntStream.range(0, table.rowCount()).filter(row -> evaluator.evaluate(filter, row)).toArray();
+    }
+}
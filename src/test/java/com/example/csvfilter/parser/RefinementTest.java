@@ -0,0 +1,130 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.Expression;
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.ColumnBuilder;
+import com.example.csvfilter.table.DataTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RefinementTest {
+
+    private static final Object[] DOUBLES = {-0.0, 0.0, 1.5, 2.0, -3.0, 5.0, 7.25, Double.NaN, null};
+    private static final Object[] LONGS = {0L, 1L, 2L, 5L, 7L, -4L, null};
+    private static final Object[] STRINGS = {"apple", "Banana", "cherry", "", "date", null};
+    private static final String[] OPERATORS = {"==", "!=", "<", "<=", ">", ">="};
+    private static final String[] NUMBERS = {"0", "0.0", "1.5", "5", "7"};
+    private static final String[] WORDS = {"\"apple\"", "\"banana\"", "\"c\"", "\"date\""};
+
+    private final DataTable table = table(new Random(7), 400);
+
+    @Test
+    void tighterBoundsNarrowLooserOnes() {
+        assertNotNull(residual("a > 7", "a > 5"));
+        assertNotNull(residual("a >= 5 and a < 3", "a < 5"));
+        assertNotNull(residual("b == 7", "b > 5"));
+        assertNotNull(residual("s > \"b\"", "s >= \"B\""));
+        assertNull(residual("a > 5", "a > 7"));
+        assertNull(residual("b == 5", "b > 5"));
+        assertNull(residual("a < 5", "a > 3"));
+    }
+
+    // `a == 0` also selects rows holding -0.0, which bounds order below 0.0, so it is not within
+    // `a >= 0`; taking it for a refinement dropped those rows
+    @Test
+    void equalityWithZeroIsNotWithinABoundThatExcludesNegativeZero() {
+        assertNull(residual("a == 0", "a >= 0"));
+        assertNull(residual("a == 0", "a > 0"));
+        assertNotNull(residual("a == 0", "a <= 0"));
+        assertNotNull(residual("a == 0", "a < 1"));
+        assertNotNull(residual("b == 0", "b <= 0"));
+
+        assertArrayEquals(scan("a == 0"), refined("a == 0", "a <= 0"));
+    }
+
+    // Any filter that Refinement takes for a narrowing of another, evaluated over the other's
+    // rows, selects exactly the rows it selects over the whole table
+    @Test
+    void refinedFiltersSelectTheSameRowsAsFullScans() {
+        Random random = new Random(42);
+        int refinements = 0;
+        for (int i = 0; i < 20_000; i++) {
+            String broad = filter(random);
+            String narrow = random.nextBoolean() ? broad + " and " + filter(random) : filter(random);
+            if (Refinement.residual(parse(narrow), parse(broad)) != null) {
+                refinements++;
+                assertArrayEquals(scan(narrow), refined(narrow, broad), narrow + " within " + broad);
+            }
+        }
+        assertEquals(true, refinements > 500, "Too few refinements tested: " + refinements);
+    }
+
+    private static String filter(Random random) {
+        int terms = 1 + random.nextInt(2);
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < terms; i++) {
+            parts.add(term(random));
+        }
+        return String.join(" and ", parts);
+    }
+
+    private static String term(Random random) {
+        String operator = OPERATORS[random.nextInt(OPERATORS.length)];
+        return switch (random.nextInt(3)) {
+            case 0 -> "a " + operator + " " + NUMBERS[random.nextInt(NUMBERS.length)];
+            case 1 -> "b " + operator + " " + NUMBERS[random.nextInt(NUMBERS.length)];
+            default -> random.nextInt(4) == 0
+                    ? NUMBERS[random.nextInt(NUMBERS.length)] + " " + operator + " a" // Literal on the left
+                    : "s " + operator + " " + WORDS[random.nextInt(WORDS.length)];
+        };
+    }
+
+    private List<Expression> residual(String narrow, String broad) {
+        return Refinement.residual(parse(narrow), parse(broad));
+    }
+
+    private int[] scan(String filter) {
+        RowPredicate predicate = new FilterCompiler(table).compile(parse(filter));
+        return IntStream.range(0, table.rowCount()).filter(predicate::test).toArray();
+    }
+
+    // The rows of `narrow`, found by testing its residual terms on the rows of `broad`
+    private int[] refined(String narrow, String broad) {
+        List<Expression> residual = Refinement.residual(parse(narrow), parse(broad));
+        assertNotNull(residual);
+        FilterCompiler compiler = new FilterCompiler(table);
+        List<RowPredicate> terms = residual.stream().map(compiler::compile).toList();
+        return IntStream.of(scan(broad)).filter(row -> terms.stream().allMatch(t -> t.test(row))).toArray();
+    }
+
+    private Expression parse(String filter) {
+        return new Parser(new Tokenizer(filter).tokenize(), Set.copyOf(table.headers())).parse();
+    }
+
+    private static DataTable table(Random random, int rows) {
+        ColumnBuilder a = ColumnBuilder.forType(Double.class);
+        ColumnBuilder b = ColumnBuilder.forType(Long.class);
+        ColumnBuilder s = ColumnBuilder.forType(String.class);
+        for (int row = 0; row < rows; row++) {
+            add(a, DOUBLES[random.nextInt(DOUBLES.length)]);
+            add(b, LONGS[random.nextInt(LONGS.length)]);
+            add(s, STRINGS[random.nextInt(STRINGS.length)]);
+        }
+        return new DataTable(List.of("a", "b", "s"), new Column[]{a.build(), b.build(), s.build()}, rows);
+    }
+
+    private static void add(ColumnBuilder builder, Object value) {
+        if (value == null) builder.addNull();
+        else builder.add(value);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.csvfilter.parser;
+
+import com.example.csvfilter.parser.ast.BinaryExpression;
+import com.example.csvfilter.parser.ast.Expression;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class TokenizerTest {
+
+    @Test
+    void stringOperatorsAreKeywordsInAnyCase() {
+        for (String keyword : List.of("startsWith", "startswith", "STARTSWITH")) {
+            assertEquals(List.of(TokenType.IDENTIFIER, TokenType.STARTS_WITH, TokenType.STRING, TokenType.EOF),
+                    types("name " + keyword + " \"ab\""), keyword);
+        }
+        for (String keyword : List.of("endsWith", "endswith", "EndsWith")) {
+            assertEquals(List.of(TokenType.IDENTIFIER, TokenType.ENDS_WITH, TokenType.STRING, TokenType.EOF),
+                    types("name " + keyword + " \"ab\""), keyword);
+        }
+        assertEquals(List.of(TokenType.IDENTIFIER, TokenType.CONTAINS, TokenType.STRING, TokenType.EOF),
+                types("name Contains \"ab\""));
+    }
+
+    // Read as identifiers, the operators used to end the filter early: "name startsWith "ab""
+    // parsed as just "name", which matched every row where name is not null
+    @Test
+    void stringOperatorsParseAsComparisons() {
+        Expression expression = new Parser(new Tokenizer("name startsWith \"ab\"").tokenize(), Set.of("name")).parse();
+
+        BinaryExpression comparison = assertInstanceOf(BinaryExpression.class, expression);
+        assertEquals(TokenType.STARTS_WITH, comparison.operator().type());
+    }
+
+    private static List<TokenType> types(String filter) {
+        return new Tokenizer(filter).tokenize().stream().map(Token::type).toList();
+    }
+}
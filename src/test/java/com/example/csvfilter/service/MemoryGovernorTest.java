@@ -0,0 +1,220 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.table.Column;
+import com.example.csvfilter.table.ColumnBuilder;
+import com.example.csvfilter.table.ColumnSource;
+import com.example.csvfilter.table.DataTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryGovernorTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private MemoryGovernor governor;
+
+    @AfterEach
+    void shutdown() {
+        if (governor != null) governor.shutdown();
+    }
+
+    @Test
+    void admitsUploadsWhileTheirEstimatesFitTheBudget() {
+        TableStorage storage = storage(1_000);
+        governor = governor(storage, 1_000, 0, 0, HOUR);
+
+        MemoryGovernor.Admission first = governor.admit(100);
+        MemoryGovernor.Admission second = governor.admit(200);
+        assertThrows(IllegalStateException.class, () -> governor.admit(50)); // 300 + 600 + 150 > 1000
+
+        second.close();
+        governor.admit(50).close();
+        first.close();
+        assertEquals(3, count("admissions", "result", "admitted"));
+        assertEquals(1, count("admissions", "result", "refused"));
+    }
+
+    @Test
+    void refusesAnUploadLargerThanTheWholeBudget() {
+        governor = governor(storage(1_000), 1_000, HOUR, 0, HOUR);
+
+        IllegalStateException refused = assertThrows(IllegalStateException.class, () -> governor.admit(400));
+
+        assertTrue(refused.getMessage().contains("more than the server allows"), refused.getMessage());
+        assertEquals(1, count("admissions", "result", "refused"));
+    }
+
+    @Test
+    void queuedUploadIsAdmittedOnceAnotherFinishes() throws Exception {
+        governor = governor(storage(1_000), 1_000, HOUR, 0, HOUR);
+        MemoryGovernor.Admission first = governor.admit(300);
+
+        CompletableFuture<MemoryGovernor.Admission> queued = CompletableFuture.supplyAsync(() -> governor.admit(100));
+        Thread.sleep(100);
+        assertFalse(queued.isDone());
+        first.close();
+
+        queued.get(5, TimeUnit.SECONDS).close();
+        assertEquals(1, count("admissions", "result", "queued"));
+    }
+
+    @Test
+    void spillsIdleTablesToMakeRoomForAnUpload() throws Exception {
+        TableStorage storage = storage(100_000);
+        governor = governor(storage, 100_000, 0, 0, HOUR);
+        DataTable table = table(5_000);
+        TableStorage.Stored stored = storage.store(table);
+        AtomicReference<DataTable> moved = new AtomicReference<>();
+        ((TableStorage.Dataset) stored.release()).onMove(moved::set);
+        long upload = (100_000 - table.estimatedBytes()) / MemoryGovernor.LOAD_FACTOR + 1;
+
+        governor.admit(upload).close();
+
+        assertNotNull(moved.get());
+        assertEquals(moved.get().estimatedBytes(), storage.heapBytes()); // The dictionary stays on heap
+        assertEquals(table.rowCount(), moved.get().rowCount());
+        assertEquals(1, count("evictions", "reason", "pressure"));
+        assertEquals(table.estimatedBytes() - moved.get().estimatedBytes(), registry.counter("csvfilter.governor.evicted").count());
+        stored.release().close();
+        assertEquals(0, storage.heapBytes());
+    }
+
+    @Test
+    void refusesRatherThanSpillTablesInUse() throws Exception {
+        TableStorage storage = storage(100_000);
+        governor = governor(storage, 100_000, 0, HOUR, HOUR);
+        TableStorage.Stored stored = storage.store(table(5_000));
+
+        assertThrows(IllegalStateException.class, () -> governor.admit(100_000 / MemoryGovernor.LOAD_FACTOR));
+
+        assertTrue(((TableStorage.Dataset) stored.release()).onHeap());
+        assertEquals(0, count("evictions", "reason", "pressure"));
+        stored.release().close();
+    }
+
+    @Test
+    void sweepSpillsOnlyTablesIdleForTheIdleTimeout() throws Exception {
+        TableStorage storage = storage(100_000);
+        governor = governor(storage, 100_000, 0, 0, 50);
+        TableStorage.Stored idle = storage.store(table(1_000));
+        Thread.sleep(100);
+        TableStorage.Stored recent = storage.store(table(1_000));
+
+        governor.sweep();
+
+        assertFalse(((TableStorage.Dataset) idle.release()).onHeap());
+        assertTrue(((TableStorage.Dataset) recent.release()).onHeap());
+        assertEquals(1, count("evictions", "reason", "idle"));
+        idle.release().close();
+        recent.release().close();
+    }
+
+    @Test
+    void tableStoredPastTheBudgetChargesWhatItKeepsOnHeap() throws Exception {
+        TableStorage storage = storage(1_000);
+        DataTable table = table(5_000);
+
+        TableStorage.Stored stored = storage.store(table);
+
+        assertFalse(((TableStorage.Dataset) stored.release()).onHeap());
+        assertTrue(stored.table().offHeapBytes() > 0);
+        assertEquals(stored.table().estimatedBytes(), storage.heapBytes());
+        assertTrue(storage.heapBytes() > 0 && storage.heapBytes() < table.estimatedBytes());
+        stored.release().close();
+        assertEquals(0, storage.heapBytes());
+    }
+
+    @Test
+    void spilledTableIsReadFromTheFile() throws Exception {
+        TableStorage storage = storage(100_000);
+        DataTable table = table(1_000);
+        TableStorage.Stored stored = storage.store(table);
+        TableStorage.Dataset dataset = (TableStorage.Dataset) stored.release();
+        AtomicReference<DataTable> moved = new AtomicReference<>();
+        dataset.onMove(moved::set);
+
+        long freed = storage.spill(dataset);
+
+        assertEquals(table.estimatedBytes() - moved.get().estimatedBytes(), freed);
+        assertEquals(0, storage.spill(dataset)); // Already in a file
+        for (int row = 0; row < table.rowCount(); row += 97) {
+            assertEquals(table.getValue(row, 0), moved.get().getValue(row, 0));
+            assertEquals(table.getValue(row, 1), moved.get().getValue(row, 1));
+        }
+        stored.release().close();
+        assertEquals(0, storage.heapBytes());
+    }
+
+    // A column loaded after the table is stored is charged then, and given back when the table spills
+    @Test
+    void columnsLoadedAfterStoringAreCharged() throws Exception {
+        TableStorage storage = storage(100_000);
+        DataTable full = table(1_000);
+        Column[] columns = {full.column(0), null};
+        DataTable table = new DataTable(full.headers(), columns, full.rowCount(), new ColumnSource() {
+            @Override
+            public Column[] load(int[] indexes) {
+                return new Column[]{full.column(1)};
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        TableStorage.Stored stored = storage.store(table);
+        assertEquals(full.column(0).estimatedBytes(), storage.heapBytes());
+
+        table.getValue(0, 1);
+
+        assertEquals(full.estimatedBytes(), storage.heapBytes());
+        TableStorage.Dataset dataset = (TableStorage.Dataset) stored.release();
+        long freed = storage.spill(dataset);
+        assertEquals(full.estimatedBytes() - freed, storage.heapBytes());
+        assertTrue(freed > 0);
+        stored.release().close();
+        assertEquals(0, storage.heapBytes());
+    }
+
+    private TableStorage storage(long budget) {
+        return new TableStorage(budget, directory.toString(), registry);
+    }
+
+    private MemoryGovernor governor(TableStorage storage, long budget, long queueTimeout, long minIdle, long idleTimeout) {
+        return new MemoryGovernor(storage, registry, budget, queueTimeout, minIdle, idleTimeout, 0);
+    }
+
+    private double count(String name, String... tags) {
+        return registry.counter("csvfilter.governor." + name, tags).count();
+    }
+
+    // A Long column and a String column with a small dictionary
+    private static DataTable table(int rows) {
+        ColumnBuilder ids = ColumnBuilder.forType(Long.class);
+        ColumnBuilder names = ColumnBuilder.forType(String.class);
+        for (int row = 0; row < rows; row++) {
+            ids.add((long) row);
+            if (row % 10 == 0) names.addNull();
+            else names.add("name" + row % 7);
+        }
+        return new DataTable(List.of("id", "name"), new Column[]{ids.build(), names.build()}, rows);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.csvfilter.service;
+
+import com.example.csvfilter.csv.CsvParser;
+import com.example.csvfilter.csv.LazyCsvLoader;
+import com.example.csvfilter.csv.ParallelCsvParser;
+import com.example.csvfilter.csv.TypeInferrer;
+import com.example.csvfilter.model.UploadJob;
+import com.example.csvfilter.model.UserSessionData;
+import com.example.csvfilter.table.DataTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadServiceTest {
+
+    private static final long BUDGET = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final TypeInferrer typeInferrer = new TypeInferrer();
+    private final CsvParser csvParser = new CsvParser();
+    private TableStorage storage;
+    private MemoryGovernor governor;
+    private ParallelCsvParser parallelParser;
+    private UploadService uploads;
+
+    @BeforeEach
+    void setUp() {
+        storage = new TableStorage(BUDGET, directory.toString(), registry);
+        governor = new MemoryGovernor(storage, registry, BUDGET, TimeUnit.HOURS.toMillis(1), 0, TimeUnit.HOURS.toMillis(1), 0);
+        parallelParser = new ParallelCsvParser(typeInferrer, directory.toString(), 1);
+        // Uploads load into their job's session; the session the load service is given goes unused
+        uploads = new UploadService(loadService(new UserSessionData(), storage), storage, governor,
+                directory.toString(), 1);
+    }
+
+    @AfterEach
+    void shutdown() {
+        uploads.shutdown();
+        governor.shutdown();
+        parallelParser.shutdown();
+    }
+
+    @Test
+    void completedUploadReplacesTheSessionsTable() throws Exception {
+        UserSessionData session = new UserSessionData();
+
+        UploadJob job = uploads.submit(csv("id,name\n1,a\n2,b\n3,c\n"), session);
+
+        awaitEnd(job);
+        assertEquals(UploadJob.State.DONE, job.state());
+        assertEquals(3, session.getTable().rowCount());
+        assertEquals(3, job.progress().rows());
+        assertFalse(session.isLoading());
+        assertEquals(0, spoolFiles());
+    }
+
+    @Test
+    void failedUploadReportsWhyAndLeavesNoTable() throws Exception {
+        UserSessionData session = new UserSessionData();
+
+        UploadJob job = uploads.submit(csv("id,name\n"), session);
+
+        awaitEnd(job);
+        assertEquals(UploadJob.State.FAILED, job.state());
+        assertEquals("CSV file is empty or invalid.", job.error());
+        assertNull(session.getTable());
+        assertFalse(session.isLoading());
+        assertEquals(0, spoolFiles());
+        assertEquals(0, storage.heapBytes());
+    }
+
+    // An upload cancelled while it waits for memory never loads, and gives its spool file back
+    @Test
+    void uploadCancelledWhileQueuedIsNeverLoaded() throws Exception {
+        UserSessionData session = new UserSessionData();
+        MemoryGovernor.Admission held = governor.admit(BUDGET / MemoryGovernor.LOAD_FACTOR);
+        UploadJob job;
+        try {
+            job = uploads.submit(csv("id,name\n1,a\n"), session);
+            Thread.sleep(100);
+            assertTrue(job.isRunning()); // Queued behind the held admission
+
+            session.clearData();
+            assertEquals(UploadJob.State.FAILED, job.state());
+            assertEquals("Upload cancelled", job.error());
+        } finally {
+            held.close();
+        }
+
+        awaitSpoolDeleted();
+        assertNull(session.getTable());
+        assertEquals(0, job.progress().bytesRead());
+        assertEquals(0, storage.heapBytes());
+    }
+
+    // A second upload to the same session cancels the first; only the second one's table is kept
+    @Test
+    void laterUploadToTheSameSessionWins() throws Exception {
+        UserSessionData session = new UserSessionData();
+        MemoryGovernor.Admission held = governor.admit(BUDGET / MemoryGovernor.LOAD_FACTOR);
+        UploadJob first;
+        UploadJob second;
+        try {
+            first = uploads.submit(csv("id\n1\n"), session);
+            Thread.sleep(100);
+            second = uploads.submit(csv("id\n1\n2\n"), session);
+        } finally {
+            held.close();
+        }
+
+        awaitEnd(second);
+        assertEquals(UploadJob.State.FAILED, first.state());
+        assertEquals(UploadJob.State.DONE, second.state());
+        assertEquals(2, session.getTable().rowCount());
+    }
+
+    // Storage that cannot write its file fails the load; the session keeps the table it had
+    @Test
+    void synchronousLoadThatCannotStoreKeepsTheOldTable() throws Exception {
+        UserSessionData session = new UserSessionData();
+        loadService(session, storage).loadAndStoreCsv(stream("id\n1\n"));
+        DataTable old = session.getTable();
+        TableStorage unwritable = new TableStorage(0, Files.createFile(directory.resolve("taken")).toString(), registry);
+
+        assertThrows(RuntimeException.class,
+                () -> loadService(session, unwritable).loadAndStoreCsv(stream("id\n1\n2\n")));
+
+        assertSame(old, session.getTable());
+        assertTrue(storage.heapBytes() > 0);
+    }
+
+    private LoadService loadService(UserSessionData session, TableStorage tableStorage) {
+        return new LoadService(session, csvParser, parallelParser,
+                new LazyCsvLoader(csvParser, typeInferrer, directory.toString()), typeInferrer, tableStorage, governor,
+                new DataMetrics(registry), false, false);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void awaitEnd(UploadJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (job.isRunning() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(job.isRunning(), "Upload still running");
+        awaitSpoolDeleted();
+    }
+
+    // The loading thread deletes its spool file last
+    private void awaitSpoolDeleted() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (spoolFiles() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private long spoolFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("csvfilter-upload-")).count();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.csvfilter.table;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GroupAggregatorTest {
+
+    @Test
+    void averageOfLongsWhoseSumOverflows() {
+        DataTable table = longs(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE - 2);
+
+        assertEquals((double) Long.MAX_VALUE - 1, aggregate(table, "avg(value)"));
+    }
+
+    @Test
+    void averageOfLongsWhoseSumUnderflowsAcrossMergedPartials() {
+        long[] values = new long[1_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 2 == 0 ? Long.MIN_VALUE : Long.MIN_VALUE + 2;
+        }
+        DataTable table = longs(values);
+        GroupAggregator aggregator = new GroupAggregator(table, new int[0],
+                List.of(GroupAggregator.Aggregate.parse("avg(value)", table)));
+        int[] rows = IntStream.range(0, values.length).toArray();
+
+        GroupAggregator.Partial partial = aggregator.merge(aggregator.aggregate(rows, 0, 333), aggregator.aggregate(rows, 333, 1_000));
+
+        assertEquals((double) (Long.MIN_VALUE + 1), aggregator.result(partial, 10).rows().get(0)[0]);
+    }
+
+    @Test
+    void averageOfLongsWithinRangeIsTheSumOverTheCount() {
+        DataTable table = longs(1, 2, 4, -10, 17);
+
+        assertEquals(14.0 / 5, aggregate(table, "avg(value)"));
+        assertEquals(14L, aggregate(table, "sum(value)"));
+    }
+
+    @Test
+    void sumOfLongsBeyondTheLongRangeIsAnError() {
+        DataTable table = longs(Long.MAX_VALUE, 1);
+
+        assertThrows(ArithmeticException.class, () -> aggregate(table, "sum(value)"));
+    }
+
+    @Test
+    void averagePerGroupIgnoresNulls() {
+        BitSet nulls = new BitSet();
+        nulls.set(2);
+        DataTable table = new DataTable(List.of("group", "value"), new Column[]{
+                new LongColumn(new long[]{1, 1, 1, 2}, new BitSet(), 4),
+                new LongColumn(new long[]{Long.MAX_VALUE, Long.MAX_VALUE, 5, 3}, nulls, 4)}, 4);
+        GroupAggregator aggregator = new GroupAggregator(table, new int[]{0},
+                List.of(GroupAggregator.Aggregate.parse("avg(value)", table)));
+
+        GroupAggregator.Result result = aggregator.result(aggregator.aggregate(new int[]{0, 1, 2, 3}, 0, 4), 10);
+
+        assertEquals(2, result.groupCount());
+        assertArrayEquals(new Object[]{1L, (double) Long.MAX_VALUE}, result.rows().get(0));
+        assertArrayEquals(new Object[]{2L, 3.0}, result.rows().get(1));
+    }
+
+    private static DataTable longs(long... values) {
+        return new DataTable(List.of("value"), new Column[]{new LongColumn(values, new BitSet(), values.length)}, values.length);
+    }
+
+    private static Object aggregate(DataTable table, String spec) {
+        GroupAggregator aggregator = new GroupAggregator(table, new int[0], List.of(GroupAggregator.Aggregate.parse(spec, table)));
+        int[] rows = IntStream.range(0, table.rowCount()).toArray();
+        return aggregator.result(aggregator.aggregate(rows, 0, rows.length), 10).rows().get(0)[0];
+    }
+}